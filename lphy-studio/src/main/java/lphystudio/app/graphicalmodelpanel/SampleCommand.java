@@ -1,13 +1,16 @@
 package lphystudio.app.graphicalmodelpanel;
 
 import lphy.core.Arguments;
+import lphy.core.OnlineStatsLogger;
 import lphy.core.TreeFileLogger;
 import lphy.core.VarFileLogger;
 import lphy.evolution.alignment.AlignmentFileLogger;
 import lphy.graphicalModel.Command;
 import lphy.graphicalModel.RandomValueLogger;
 import lphy.graphicalModel.Value;
+import lphy.util.LoggerUtils;
 
+import java.io.FileNotFoundException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -19,8 +22,8 @@ public class SampleCommand implements Command {
 
     GraphicalModelPanel graphicalModelPanel;
 
-    static String[] arguments = {"n", "logFile", "treeFiles", "alignmentFiles", "name"};
-    static Object[] defaults = {1, false, false, false, "model"};
+    static String[] arguments = {"n", "logFile", "treeFiles", "alignmentFiles", "name", "statsFile"};
+    static Object[] defaults = {1, false, false, false, "model", false};
 
     public SampleCommand(GraphicalModelPanel graphicalModelPane) {
         this.graphicalModelPanel = graphicalModelPanel;
@@ -71,6 +74,7 @@ public class SampleCommand implements Command {
         boolean writeTreesToFile = args.getBoolean(arguments[2], defaults[2]);
         boolean writeAlignmentsToFile = args.getBoolean(arguments[3], defaults[3]);
         String name = args.getString(arguments[4], defaults[4]);
+        boolean writeStatsToFile = args.getBoolean(arguments[5], defaults[5]);
 
         List<RandomValueLogger> loggers = new ArrayList<>();
 
@@ -80,6 +84,14 @@ public class SampleCommand implements Command {
         }
         if (writeTreesToFile) loggers.add(new TreeFileLogger(name));
         if (writeAlignmentsToFile) loggers.add(new AlignmentFileLogger(name));
+        if (writeStatsToFile) {
+            try {
+                loggers.add(new OnlineStatsLogger(name, Math.max(1, n / 10), true, true));
+            } catch (FileNotFoundException e) {
+                LoggerUtils.log.severe("Cannot write the statistics file " + name + ".stats: " + e.getMessage());
+                return;
+            }
+        }
 
         graphicalModelPanel.sample(n, loggers);
     }
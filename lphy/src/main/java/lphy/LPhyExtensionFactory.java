@@ -4,8 +4,11 @@ import jebl.evolution.sequences.SequenceType;
 import lphy.graphicalModel.Func;
 import lphy.graphicalModel.GenerativeDistribution;
 import lphy.graphicalModel.Generator;
+import lphy.graphicalModel.GeneratorSignature;
 import lphy.spi.LPhyExtension;
 
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
@@ -14,6 +17,9 @@ import java.util.stream.Collectors;
  * The implementation to load LPhy extensions using {@link ServiceLoader}.
  * All distributions, functions and data types will be collected
  * in this class for later use.
+ * If the system property {@value RegistrySnapshot#PROPERTY} gives a file,
+ * the registry is saved there at the first run and loaded from it later,
+ * so that the classes of generators are only loaded when they are used.
  *
  * @author Walter Xie
  */
@@ -23,8 +29,11 @@ public class LPhyExtensionFactory {
 
     private LPhyExtensionFactory() {
         loader = ServiceLoader.load(LPhyExtension.class);
+        String snapshotFile = System.getProperty(RegistrySnapshot.PROPERTY);
+        Path snapshotPath = snapshotFile == null || snapshotFile.isEmpty() ? null : Paths.get(snapshotFile);
         // register all ext
-        registerExtensions(loader, null);
+        if (snapshotPath == null || !registerSnapshot(snapshotPath))
+            registerExtensions(loader, null, snapshotPath);
     }
 
     // singleton
@@ -51,6 +60,18 @@ public class LPhyExtensionFactory {
      */
     public Map<String, SequenceType> dataTypeMap;
 
+    // the constructor signatures of every registered generator, so they are inspected once
+    private final Map<Class<?>, List<GeneratorSignature>> signatureIndex = new ConcurrentHashMap<>();
+
+    /**
+     * @return the signatures of the public constructors of the generator class,
+     *         from the index built at registration, or inspected on first request for an unregistered class
+     *         or when the extensions are registered from a snapshot.
+     */
+    public List<GeneratorSignature> getSignatures(Class<?> generatorClass) {
+        return signatureIndex.computeIfAbsent(generatorClass, GeneratorSignature::getSignatures);
+    }
+
     /**
      * for creating doc only.
      * @param fullClsName  the full name with package of the class
@@ -59,7 +80,7 @@ public class LPhyExtensionFactory {
      */
     public void loadExtension(String fullClsName) {
         loader.reload();
-        registerExtensions(loader, fullClsName);
+        registerExtensions(loader, fullClsName, null);
     }
 
     /**
@@ -74,12 +95,127 @@ public class LPhyExtensionFactory {
         return extList;
     }
 
-    private void registerExtensions(ServiceLoader<LPhyExtension> loader, String clsName) {
+    // the provider classes by name, which are loaded but not instantiated
+    private Map<String, Class<?>> getProviderTypes() {
+        Map<String, Class<?>> providers = new LinkedHashMap<>();
+        loader.stream().forEach(provider -> providers.put(provider.type().getName(), provider.type()));
+        return providers;
+    }
+
+    /**
+     * Registers the extensions from the snapshot, if it is valid for the providers on the class path and module path.
+     * The sequence types are created by the extensions on first use of {@link #dataTypeMap}.
+     * @return false if the snapshot is missing, out of date, or of a code source without a fingerprint.
+     */
+    private boolean registerSnapshot(Path snapshotPath) {
+        RegistrySnapshot snapshot = RegistrySnapshot.read(snapshotPath);
+        if (snapshot == null) return false;
+
+        Map<String, Class<?>> providers;
+        try {
+            providers = getProviderTypes();
+        } catch (ServiceConfigurationError serviceError) {
+            return false;
+        }
+        if (!snapshot.isValidFor(RegistrySnapshot.getSources(providers))) return false;
+
+        Map<String, Set<Class<?>>> genDists = new TreeMap<>();
+        Map<String, Set<Class<?>>> functions = new TreeMap<>();
+        TreeSet<Class<?>> snapshotTypes = new TreeSet<>(Comparator.comparing(Class::getName));
+        try {
+            for (String[] record : snapshot.getRecords()) {
+                ClassLoader classLoader = providers.get(record[1]).getClassLoader();
+                switch (record[0]) {
+                    case RegistrySnapshot.DISTRIBUTION:
+                        ((RegistrySnapshot.GeneratorClasses) genDists.computeIfAbsent(record[2],
+                                k -> new RegistrySnapshot.GeneratorClasses())).addClassName(record[3], classLoader);
+                        break;
+                    case RegistrySnapshot.FUNCTION:
+                        ((RegistrySnapshot.GeneratorClasses) functions.computeIfAbsent(record[2],
+                                k -> new RegistrySnapshot.GeneratorClasses())).addClassName(record[3], classLoader);
+                        break;
+                    case RegistrySnapshot.TYPE:
+                        // data types are few and mostly from the JDK, so are loaded now, but not initialised
+                        snapshotTypes.add(Class.forName(record[2], false, classLoader));
+                        break;
+                    default:
+                        return false;
+                }
+            }
+        } catch (ClassNotFoundException | RuntimeException e) {
+            return false;
+        }
+        if (genDists.size() < 1 || functions.size() < 1) return false;
+
+        genDistDictionary = genDists;
+        functionDictionary = functions;
+        types.addAll(snapshotTypes);
+        dataTypeMap = new SequenceTypeMap();
+
+        System.out.println("Registered extensions from the snapshot " + snapshotPath);
+        return true;
+    }
+
+    // the sequence types of all extensions, which are instantiated on first use
+    private class SequenceTypeMap extends AbstractMap<String, SequenceType> {
+
+        private Map<String, SequenceType> sequenceTypes;
+
+        private synchronized Map<String, SequenceType> getSequenceTypes() {
+            if (sequenceTypes == null) {
+                Map<String, SequenceType> map = new ConcurrentHashMap<>();
+                for (LPhyExtension lPhyExt : getExtensions()) {
+                    Map<String, ? extends SequenceType> newDataTypes = lPhyExt.getSequenceTypes();
+                    if (newDataTypes != null)
+                        newDataTypes.forEach(map::putIfAbsent);
+                }
+                sequenceTypes = map;
+            }
+            return sequenceTypes;
+        }
+
+        @Override
+        public Set<Entry<String, SequenceType>> entrySet() {
+            return getSequenceTypes().entrySet();
+        }
+
+        @Override
+        public SequenceType get(Object key) {
+            return getSequenceTypes().get(key);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return getSequenceTypes().containsKey(key);
+        }
+
+        @Override
+        public SequenceType put(String key, SequenceType value) {
+            return getSequenceTypes().put(key, value);
+        }
+    }
+
+    /**
+     * @param clsName       the provider class to register, or null to register all.
+     * @param snapshotPath  the file to save the registry of all extensions to, or null.
+     */
+    private void registerExtensions(ServiceLoader<LPhyExtension> loader, String clsName, Path snapshotPath) {
 
         genDistDictionary = new TreeMap<>();
         functionDictionary = new TreeMap<>();
         dataTypeMap = new ConcurrentHashMap<>();
 
+        RegistrySnapshot snapshot = null;
+        if (snapshotPath != null && clsName == null) {
+            try {
+                List<String> sources = RegistrySnapshot.getSources(getProviderTypes());
+                // a snapshot that could never be checked is not worth writing
+                if (RegistrySnapshot.isFingerprinted(sources)) snapshot = new RegistrySnapshot(sources);
+            } catch (ServiceConfigurationError serviceError) {
+                snapshot = null;
+            }
+        }
+
         try {
             Iterator<LPhyExtension> extensions = loader.iterator();
 
@@ -91,6 +227,8 @@ public class LPhyExtensionFactory {
                 if (clsName == null || lPhyExt.getClass().getName().equalsIgnoreCase(clsName)) {
                     System.out.println("Registering extension from " + lPhyExt.getClass().getName());
 
+                    TreeSet<Class<?>> extTypes = new TreeSet<>(Comparator.comparing(Class::getName));
+
                     // GenerativeDistribution
                     List<Class<? extends GenerativeDistribution>> genDist = lPhyExt.getDistributions();
 
@@ -99,10 +237,14 @@ public class LPhyExtensionFactory {
 
                         Set<Class<?>> genDistSet = genDistDictionary.computeIfAbsent(name, k -> new HashSet<>());
                         genDistSet.add(genClass);
+                        // a snapshot registers lazily, so only index the signatures without one
+                        if (snapshotPath == null) getSignatures(genClass);
                         // collect LPhy data types from GenerativeDistribution
-                        types.add(GenerativeDistribution.getReturnType(genClass));
-                        Collections.addAll(types, Generator.getParameterTypes(genClass, 0));
-                        Collections.addAll(types, Generator.getReturnType(genClass));
+                        extTypes.add(GenerativeDistribution.getReturnType(genClass));
+                        Collections.addAll(extTypes, Generator.getParameterTypes(genClass, 0));
+                        Collections.addAll(extTypes, Generator.getReturnType(genClass));
+                        if (snapshot != null)
+                            snapshot.addGenerator(RegistrySnapshot.DISTRIBUTION, lPhyExt.getClass(), name, genClass);
                     }
 //        for (Class<?> genClass : lightWeightGenClasses) {
 //            String name = Generator.getGeneratorName(genClass);
@@ -119,9 +261,17 @@ public class LPhyExtensionFactory {
 
                         Set<Class<?>> funcSet = functionDictionary.computeIfAbsent(name, k -> new HashSet<>());
                         funcSet.add(functionClass);
+                        if (snapshotPath == null) getSignatures(functionClass);
                         // collect LPhy data types from Func
-                        Collections.addAll(types, Generator.getParameterTypes(functionClass, 0));
-                        Collections.addAll(types, Generator.getReturnType(functionClass));
+                        Collections.addAll(extTypes, Generator.getParameterTypes(functionClass, 0));
+                        Collections.addAll(extTypes, Generator.getReturnType(functionClass));
+                        if (snapshot != null)
+                            snapshot.addGenerator(RegistrySnapshot.FUNCTION, lPhyExt.getClass(), name, functionClass);
+                    }
+                    types.addAll(extTypes);
+                    if (snapshot != null) {
+                        for (Class<?> type : extTypes)
+                            snapshot.addType(lPhyExt.getClass(), type);
                     }
 
                     // sequence types
@@ -142,6 +292,8 @@ public class LPhyExtensionFactory {
             System.out.println("LPhy data types : " + typeNames);
             System.out.println("LPhy sequence types : " + Arrays.toString(dataTypeMap.values().toArray(new SequenceType[0])));
 
+            if (snapshot != null) snapshot.write(snapshotPath);
+
         } catch (ServiceConfigurationError serviceError) {
             System.err.println(serviceError);
             serviceError.printStackTrace();
@@ -0,0 +1,250 @@
+package lphy;
+
+import lphy.spi.LPhyExtension;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A snapshot of the registry of {@link LPhyExtensionFactory}, i.e. the names and classes of the generators
+ * and the data types of every extension, saved as a text file, so that a new JVM can register the extensions
+ * without reflecting over their classes.
+ * The snapshot records the code source of each {@link LPhyExtension} provider, i.e. the jar or class directory it is loaded from,
+ * with a fingerprint of its content, and is only valid for the same providers in unchanged code sources.
+ * The fingerprint of a jar is its size and modification time, and the fingerprint of a directory is a digest
+ * of the paths, sizes and modification times of all its files, since compiling a class does not touch the others.
+ * A code source that is not a local file, e.g. a jar loaded from a URL, has no fingerprint,
+ * so a snapshot is neither trusted nor written for it, and the extensions are registered by reflection instead.
+ * The fingerprints are checked at every start: a jar costs two file attribute reads,
+ * while a class directory is walked and every file's attributes are read and digested,
+ * which is much cheaper than loading the generator classes, but grows with the size of the directory.
+ * Each record is a line of tab separated fields: the kind, the provider class, and the name and class of an entry.
+ */
+final class RegistrySnapshot {
+
+    /**
+     * The system property of the path to the snapshot file.
+     * The snapshot is written at the first run, and used until the extensions change.
+     */
+    static final String PROPERTY = "lphy.registry.snapshot";
+
+    static final String HEADER = "lphy-registry-snapshot\t2";
+
+    // the fingerprint of a code source whose content cannot be checked
+    static final String UNKNOWN = "-1";
+
+    static final String SOURCE = "source";
+    static final String DISTRIBUTION = "distribution";
+    static final String FUNCTION = "function";
+    static final String TYPE = "type";
+
+    private final List<String> sources;
+    private final List<String[]> records = new ArrayList<>();
+
+    RegistrySnapshot(List<String> sources) {
+        this.sources = sources;
+    }
+
+    /**
+     * @return the code source of each provider, as the provider class, the location of its code source,
+     *         and the fingerprint of the code source.
+     */
+    static List<String> getSources(Map<String, Class<?>> providers) {
+        // providers often share a code source
+        Map<String, String> fingerprints = new HashMap<>();
+        List<String> sources = new ArrayList<>();
+        for (Class<?> provider : providers.values()) {
+            CodeSource codeSource = provider.getProtectionDomain().getCodeSource();
+            URL location = codeSource == null ? null : codeSource.getLocation();
+            String fingerprint = fingerprints.computeIfAbsent(String.valueOf(location), k -> getFingerprint(location));
+            sources.add(provider.getName() + "\t" + location + "\t" + fingerprint);
+        }
+        return sources;
+    }
+
+    /**
+     * @return true if every source has a fingerprint, i.e. a snapshot of these sources can be checked.
+     */
+    static boolean isFingerprinted(List<String> sources) {
+        for (String source : sources) {
+            if (source.endsWith("\t" + UNKNOWN)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return true if this snapshot was taken of the same sources, and they all have a fingerprint.
+     */
+    boolean isValidFor(List<String> sources) {
+        return this.sources.equals(sources) && isFingerprinted(sources);
+    }
+
+    /**
+     * @return the size and modification time of a jar, a digest of the files in a directory,
+     *         or {@link #UNKNOWN} if the location is not a local file or cannot be read.
+     */
+    static String getFingerprint(URL location) {
+        if (location == null || !"file".equals(location.getProtocol())) return UNKNOWN;
+        try {
+            Path root = Paths.get(location.toURI());
+            if (!Files.isDirectory(root))
+                return Files.size(root) + "\t" + Files.getLastModifiedTime(root).toMillis();
+
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            List<Path> files;
+            try (Stream<Path> walk = Files.walk(root)) {
+                files = walk.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+            }
+            for (Path file : files) {
+                String entry = root.relativize(file) + "\t" + Files.size(file) + "\t" +
+                        Files.getLastModifiedTime(file).toMillis() + "\n";
+                digest.update(entry.getBytes(StandardCharsets.UTF_8));
+            }
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest.digest()) hex.append(String.format("%02x", b));
+            return hex.toString();
+        } catch (IOException | URISyntaxException | NoSuchAlgorithmException | RuntimeException e) {
+            return UNKNOWN;
+        }
+    }
+
+    List<String> getSources() {
+        return sources;
+    }
+
+    /**
+     * @return the records other than sources, as arrays of the kind, provider class, name and class.
+     *         A type has no name, and its class is the third field.
+     */
+    List<String[]> getRecords() {
+        return records;
+    }
+
+    void addGenerator(String kind, Class<?> provider, String name, Class<?> generatorClass) {
+        records.add(new String[]{kind, provider.getName(), name, generatorClass.getName()});
+    }
+
+    void addType(Class<?> provider, Class<?> type) {
+        records.add(new String[]{TYPE, provider.getName(), type.getName()});
+    }
+
+    /**
+     * @return the snapshot in the file, or null if there is no such file or it is not a snapshot.
+     */
+    static RegistrySnapshot read(Path file) {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            if (!HEADER.equals(reader.readLine())) return null;
+
+            List<String> sources = new ArrayList<>();
+            List<String[]> records = new ArrayList<>();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(SOURCE + "\t")) sources.add(line.substring(SOURCE.length() + 1));
+                else if (!line.isEmpty()) records.add(line.split("\t"));
+            }
+            RegistrySnapshot snapshot = new RegistrySnapshot(sources);
+            snapshot.records.addAll(records);
+            return snapshot;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            System.err.println("Cannot read the extension registry snapshot " + file + " : " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Writes the snapshot to a temporary file, which then replaces the file,
+     * so that concurrent JVMs never read a partial snapshot.
+     */
+    void write(Path file) {
+        try {
+            Path dir = file.toAbsolutePath().getParent();
+            Files.createDirectories(dir);
+            Path tmp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+            try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                writer.write(HEADER);
+                writer.newLine();
+                for (String source : sources) {
+                    writer.write(SOURCE + "\t" + source);
+                    writer.newLine();
+                }
+                for (String[] record : records) {
+                    writer.write(String.join("\t", record));
+                    writer.newLine();
+                }
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Cannot write the extension registry snapshot " + file + " : " + e.getMessage());
+        }
+    }
+
+    /**
+     * The classes of a generator name in the snapshot, which are only loaded when the set is first used.
+     */
+    static class GeneratorClasses extends AbstractSet<Class<?>> {
+
+        private final List<String> classNames = new ArrayList<>();
+        private final List<ClassLoader> loaders = new ArrayList<>();
+        private volatile Set<Class<?>> classes;
+
+        void addClassName(String className, ClassLoader loader) {
+            if (classNames.contains(className)) return;
+            classNames.add(className);
+            loaders.add(loader);
+        }
+
+        private Set<Class<?>> getClasses() {
+            Set<Class<?>> classes = this.classes;
+            if (classes == null) {
+                synchronized (this) {
+                    classes = this.classes;
+                    if (classes == null) {
+                        classes = new HashSet<>();
+                        for (int i = 0; i < classNames.size(); i++) {
+                            try {
+                                classes.add(Class.forName(classNames.get(i), false, loaders.get(i)));
+                            } catch (ClassNotFoundException e) {
+                                throw new RuntimeException("Class " + classNames.get(i) +
+                                        " in the extension registry snapshot is not found, please delete the snapshot !", e);
+                            }
+                        }
+                        this.classes = classes;
+                    }
+                }
+            }
+            return classes;
+        }
+
+        @Override
+        public Iterator<Class<?>> iterator() {
+            return Collections.unmodifiableSet(getClasses()).iterator();
+        }
+
+        @Override
+        public int size() {
+            return classNames.size();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return getClasses().contains(o);
+        }
+    }
+}
@@ -53,9 +53,9 @@ public class bSiteRates implements GenerativeDistribution<Double[]> {
         boolean hasShape = useShape.value();
 
         if (hasShape) {
-            DiscretizedGamma discretizedGamma = new DiscretizedGamma(shape, ncat);
+            double[] rates = DiscretizedGamma.getCategoryRates(doubleValue(shape), ncat.value());
             for (int i = 0; i < siteRates.length; i++) {
-                siteRates[i] = discretizedGamma.sample().value();
+                siteRates[i] = rates[random.nextInt(rates.length)];
             }
         } else {
             Arrays.fill(siteRates, 1.0);
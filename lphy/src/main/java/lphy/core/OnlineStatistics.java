@@ -0,0 +1,170 @@
+package lphy.core;
+
+/**
+ * Streaming summary of a single log column, updated one sample at a time in O(1) memory.
+ * Keeps a running mean and variance (Welford), the lag-1 autocorrelation,
+ * and a fixed number of batch means from which the effective sample size is estimated.
+ * When all batches are filled, adjacent batches are merged and the batch size doubles,
+ * so the memory footprint does not grow with the number of samples.
+ */
+public class OnlineStatistics {
+
+    public static final int DEFAULT_MAX_BATCHES = 64;
+
+    private long n = 0;
+    private double mean = 0.0;
+    // sum of squared deviations from the mean
+    private double m2 = 0.0;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    // lag-1 co-moment of the pairs (x[t-1], x[t])
+    private double prev = Double.NaN;
+    private long nPairs = 0;
+    private double meanPrev = 0.0;
+    private double meanNext = 0.0;
+    private double coMoment = 0.0;
+
+    // batch means
+    private final double[] batchSums;
+    private int batchCount = 0;
+    private long batchSize = 1;
+    private double currentBatchSum = 0.0;
+    private long currentBatchLength = 0;
+
+    public OnlineStatistics() {
+        this(DEFAULT_MAX_BATCHES);
+    }
+
+    /**
+     * @param maxBatches the maximum number of complete batches kept, must be even and at least 4.
+     */
+    public OnlineStatistics(int maxBatches) {
+        if (maxBatches < 4 || maxBatches % 2 != 0)
+            throw new IllegalArgumentException("The maximum number of batches must be even and at least 4, but was " + maxBatches);
+        batchSums = new double[maxBatches];
+    }
+
+    /**
+     * Add the next sample in the stream. NaN values are ignored.
+     * @param x the value of the next sample
+     */
+    public void add(double x) {
+        if (Double.isNaN(x)) return;
+
+        n++;
+        double delta = x - mean;
+        mean += delta / n;
+        m2 += delta * (x - mean);
+        if (x < min) min = x;
+        if (x > max) max = x;
+
+        if (!Double.isNaN(prev)) {
+            nPairs++;
+            double dPrev = prev - meanPrev;
+            meanPrev += dPrev / nPairs;
+            meanNext += (x - meanNext) / nPairs;
+            coMoment += dPrev * (x - meanNext);
+        }
+        prev = x;
+
+        currentBatchSum += x;
+        currentBatchLength++;
+        if (currentBatchLength == batchSize) {
+            batchSums[batchCount++] = currentBatchSum;
+            currentBatchSum = 0.0;
+            currentBatchLength = 0;
+            if (batchCount == batchSums.length) mergeBatches();
+        }
+    }
+
+    // halve the number of batches by merging neighbours, and double the batch size
+    private void mergeBatches() {
+        int half = batchCount / 2;
+        for (int i = 0; i < half; i++) {
+            batchSums[i] = batchSums[2 * i] + batchSums[2 * i + 1];
+        }
+        for (int i = half; i < batchCount; i++) {
+            batchSums[i] = 0.0;
+        }
+        batchCount = half;
+        batchSize *= 2;
+    }
+
+    public long getCount() {
+        return n;
+    }
+
+    public double getMean() {
+        return n > 0 ? mean : Double.NaN;
+    }
+
+    /**
+     * @return the unbiased sample variance
+     */
+    public double getVariance() {
+        return n > 1 ? m2 / (n - 1) : Double.NaN;
+    }
+
+    public double getStandardDeviation() {
+        return Math.sqrt(getVariance());
+    }
+
+    public double getMin() {
+        return n > 0 ? min : Double.NaN;
+    }
+
+    public double getMax() {
+        return n > 0 ? max : Double.NaN;
+    }
+
+    /**
+     * @return the lag-1 autocorrelation of the samples seen so far.
+     */
+    public double getLag1Autocorrelation() {
+        double var = getVariance();
+        if (nPairs < 2 || !(var > 0.0)) return Double.NaN;
+        return (coMoment / (nPairs - 1)) / var;
+    }
+
+    /**
+     * The batch-means estimate of the effective sample size,
+     * using only the complete batches. It is capped at the number of samples.
+     * @return the effective sample size, or NaN if there are fewer than 2 complete batches.
+     */
+    public double getESS() {
+        if (batchCount < 2) return Double.NaN;
+        double var = getVariance();
+        if (!(var > 0.0)) return Double.NaN;
+
+        double batchMean = 0.0;
+        double batchM2 = 0.0;
+        for (int i = 0; i < batchCount; i++) {
+            double bm = batchSums[i] / batchSize;
+            double delta = bm - batchMean;
+            batchMean += delta / (i + 1);
+            batchM2 += delta * (bm - batchMean);
+        }
+        double batchVar = batchM2 / (batchCount - 1);
+        if (!(batchVar > 0.0)) return (double) n;
+
+        double ess = n * var / (batchSize * batchVar);
+        return Math.min(ess, (double) n);
+    }
+
+    /**
+     * @return the integrated autocorrelation time, i.e. the number of samples per effectively independent sample.
+     */
+    public double getAutocorrelationTime() {
+        double ess = getESS();
+        return ess > 0.0 ? n / ess : Double.NaN;
+    }
+
+    /**
+     * @return the standard error of the mean, using the effective sample size.
+     */
+    public double getStandardError() {
+        double ess = getESS();
+        return ess > 0.0 ? Math.sqrt(getVariance() / ess) : Double.NaN;
+    }
+}
@@ -0,0 +1,127 @@
+package lphy.core;
+
+import lphy.graphicalModel.*;
+
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.util.*;
+
+/**
+ * Convergence diagnostics computed online as the samples stream in,
+ * instead of loading the whole log into an external tool.
+ * Each logged column keeps an {@link OnlineStatistics}, so the memory does not grow with the number of replicates.
+ * A report is written every {@code reportEvery} replicates, and once more at the end.
+ */
+public class OnlineStatsLogger implements RandomValueLogger {
+
+    PrintStream out;
+    boolean closeStream;
+    int reportEvery;
+
+    boolean logVariables;
+    boolean logStatistics;
+
+    // keep the column order of the log file
+    Map<String, OnlineStatistics> columns;
+    int sampleCount;
+
+    /**
+     * Report to stdout.
+     * @param reportEvery the number of replicates between two reports, or 0 to only report at the end.
+     */
+    public OnlineStatsLogger(int reportEvery, boolean logStatistics, boolean logVariables) {
+        this(System.out, false, reportEvery, logStatistics, logVariables);
+    }
+
+    /**
+     * Report to the file <code>name.stats</code>.
+     * @param reportEvery the number of replicates between two reports, or 0 to only report at the end.
+     */
+    public OnlineStatsLogger(String name, int reportEvery, boolean logStatistics, boolean logVariables) throws FileNotFoundException {
+        this(new PrintStream(name + ".stats"), true, reportEvery, logStatistics, logVariables);
+    }
+
+    public OnlineStatsLogger(PrintStream out, boolean closeStream, int reportEvery,
+                             boolean logStatistics, boolean logVariables) {
+        if (reportEvery < 0)
+            throw new IllegalArgumentException("reportEvery must be non-negative, but was " + reportEvery);
+        this.out = out;
+        this.closeStream = closeStream;
+        this.reportEvery = reportEvery;
+        this.logStatistics = logStatistics;
+        this.logVariables = logVariables;
+    }
+
+    public void log(int rep, List<Value<?>> randomValues) {
+        if (rep == 0) columns = new LinkedHashMap<>();
+
+        for (Value randomValue : randomValues) {
+            if (isLogged(randomValue)) {
+                Loggable loggable = VarFileLogger.loggableMap.get(randomValue.value().getClass());
+                if (loggable != null) {
+                    String[] titles = loggable.getLogTitles(randomValue);
+                    Object[] logValues = loggable.getLogValues(randomValue);
+                    for (int i = 0; i < logValues.length; i++) {
+                        OnlineStatistics stats = columns.computeIfAbsent(titles[i], k -> new OnlineStatistics());
+                        stats.add(toDouble(logValues[i]));
+                    }
+                }
+            }
+        }
+        sampleCount = rep + 1;
+
+        if (reportEvery > 0 && sampleCount % reportEvery == 0) report();
+    }
+
+    private static double toDouble(Object logValue) {
+        if (logValue instanceof Number) {
+            return ((Number) logValue).doubleValue();
+        } else if (logValue instanceof Boolean) {
+            return ((Boolean) logValue) ? 1.0 : 0.0;
+        }
+        return Double.NaN;
+    }
+
+    /**
+     * Write the current diagnostics of every column as a tab-delimited table.
+     */
+    public void report() {
+        out.println("sample\t" + sampleCount);
+        out.println("column\tmean\tstdev\tstderr\tmin\tmax\tESS\tACT\tlag1");
+        for (Map.Entry<String, OnlineStatistics> entry : getColumns().entrySet()) {
+            OnlineStatistics s = entry.getValue();
+            out.println(entry.getKey() + "\t" + s.getMean() + "\t" + s.getStandardDeviation() + "\t" +
+                    s.getStandardError() + "\t" + s.getMin() + "\t" + s.getMax() + "\t" + s.getESS() + "\t" +
+                    s.getAutocorrelationTime() + "\t" + s.getLag1Autocorrelation());
+        }
+        out.println();
+        out.flush();
+    }
+
+    /**
+     * @return the online statistics of each logged column, keyed by column title.
+     */
+    public Map<String, OnlineStatistics> getColumns() {
+        return columns == null ? Collections.emptyMap() : Collections.unmodifiableMap(columns);
+    }
+
+    public int getSampleCount() {
+        return sampleCount;
+    }
+
+    /**
+     * Called once all replicates have been logged.
+     */
+    public void close() {
+        // avoid reporting the last replicate twice
+        if (reportEvery == 0 || sampleCount % reportEvery != 0) report();
+        if (closeStream) out.close();
+    }
+
+    public boolean isLogged(Value randomValue) {
+        return ((randomValue instanceof RandomVariable && logVariables) ||
+                // random value but no anonymous
+                (!(randomValue instanceof RandomVariable) && randomValue.isRandom() &&
+                        logStatistics && !randomValue.isAnonymous()));
+    }
+}
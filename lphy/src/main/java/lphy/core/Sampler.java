@@ -21,6 +21,9 @@ public class Sampler {
      */
     public void sample(int reps, List<RandomValueLogger> loggers) {
 
+        long cacheHits = DeterministicFunction.getCacheHits();
+        long evaluations = DeterministicFunction.getEvaluations();
+
         for (int i = 0; i < reps; i++) {
             Set<String> sampled = new TreeSet<>();
             List<Value<?>> sinks = parser.getModelSinks();
@@ -52,6 +55,11 @@ public class Sampler {
                 logger.close();
             }
         }
+        if (DeterministicFunction.isMemoized()) {
+            LoggerUtils.log.info("Deterministic functions were computed " +
+                    (DeterministicFunction.getEvaluations() - evaluations) + " times, and reused " +
+                    (DeterministicFunction.getCacheHits() - cacheHits) + " times, in " + reps + " replicates.");
+        }
         parser.notifyListeners();
     }
 
@@ -17,6 +17,11 @@ public class Beta implements GenerativeDistribution1D<Double> {
     private Value<Number> alpha;
     private Value<Number> beta;
 
+    // rebuilt only when the parameter values change
+    private BetaDistribution betaDistribution;
+    private double cachedAlpha = Double.NaN;
+    private double cachedBeta = Double.NaN;
+
     public Beta(@ParameterInfo(name = alphaParamName, description = "the first shape parameter.") Value<Number> alpha,
                 @ParameterInfo(name = betaParamName, description = "the second shape parameter.") Value<Number> beta) {
         this.alpha = alpha;
@@ -26,16 +31,24 @@ public class Beta implements GenerativeDistribution1D<Double> {
     @GeneratorInfo(name = "Beta", verbClause = "has", narrativeName = "Beta distribution prior", description = "The beta probability distribution.")
     public RandomVariable<Double> sample() {
 
-        BetaDistribution betaDistribution = new BetaDistribution(doubleValue(alpha), doubleValue(beta));
-
-        double randomVariable = betaDistribution.sample();
+        double randomVariable = Utils.randomBeta(doubleValue(alpha), doubleValue(beta));
 
         return new RandomVariable<>("x", randomVariable, this);
     }
 
     public double logDensity(Double d) {
-        BetaDistribution betaDistribution = new BetaDistribution(doubleValue(alpha), doubleValue(beta));
-        return betaDistribution.logDensity(d);
+        return getBetaDistribution().logDensity(d);
+    }
+
+    private BetaDistribution getBetaDistribution() {
+        double a = doubleValue(alpha);
+        double b = doubleValue(beta);
+        if (betaDistribution == null || a != cachedAlpha || b != cachedBeta) {
+            betaDistribution = new BetaDistribution(a, b);
+            cachedAlpha = a;
+            cachedBeta = b;
+        }
+        return betaDistribution;
     }
 
     @Override
@@ -21,18 +21,15 @@ public class Dirichlet implements GenerativeDistribution<Double[]> {
             description="The dirichlet probability distribution.")
     public RandomVariable<Double[]> sample() {
 
-        Double[] dirichlet = new Double[concentration.value().length];
-        double sum = 0.0;
-        for (int i = 0; i < dirichlet.length; i++) {
-            double val = Utils.randomGamma(concentration.value()[i].doubleValue(), 1.0);
-            dirichlet[i] = val;
-            sum += val;
-        }
-        for (int i = 0; i < dirichlet.length; i++) {
-            dirichlet[i] /= sum;
+        Number[] conc = concentration.value();
+        double[] alpha = new double[conc.length];
+        for (int i = 0; i < alpha.length; i++) {
+            alpha[i] = conc[i].doubleValue();
         }
+        double[] draw = new double[alpha.length];
+        Utils.randomDirichlet(alpha, draw);
 
-        return new RandomVariable<>("x", dirichlet, this);
+        return new RandomVariable<>("x", VectorUtils.box(draw), this);
     }
 
     public double density(Double[] d) {
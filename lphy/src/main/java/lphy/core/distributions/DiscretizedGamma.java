@@ -1,10 +1,11 @@
 package lphy.core.distributions;
 
 import lphy.graphicalModel.*;
-import org.apache.commons.math3.distribution.GammaDistribution;
+import org.apache.commons.math3.special.Gamma;
 
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static lphy.graphicalModel.ValueUtils.doubleValue;
 import static lphy.core.distributions.DistributionConstants.*;
@@ -18,9 +19,10 @@ public class DiscretizedGamma implements GenerativeDistribution<Double> {
     private Value<Number> shape;
     private Value<Integer> ncat;
 
-    GammaDistribution gammaDistribution;
-    double[] rates;
-
+    // the category rates keyed on shape and number of categories, shared by all instances and threads,
+    // and cleared when full, because a sampled shape rarely repeats exactly
+    private static final int MAX_CACHED_RATES = 4096;
+    private static final Map<RatesKey, double[]> categoryRates = new ConcurrentHashMap<>();
 
     public DiscretizedGamma(@ParameterInfo(name = shapeParamName, description = "the shape of the discretized gamma distribution.") Value<Number> shape,
                             @ParameterInfo(name = ncatParamName, description = "the number of bins in the discretization.") Value<Integer> ncat) {
@@ -29,12 +31,11 @@ public class DiscretizedGamma implements GenerativeDistribution<Double> {
         if (shape == null) throw new IllegalArgumentException("The shape value can't be null!");
         this.ncat = ncat;
 
-        constructGammaDistribution();
     }
 
     @GeneratorInfo(name = "DiscretizeGamma", description = "The discretized gamma probability distribution with mean = 1.")
     public RandomVariable<Double> sample() {
-        constructGammaDistribution();
+        double[] rates = categoryRates(doubleValue(shape), ncat.value());
 
         return new RandomVariable<>(null, rates[Utils.getRandom().nextInt(rates.length)], this);
     }
@@ -61,8 +62,6 @@ public class DiscretizedGamma implements GenerativeDistribution<Double> {
         } else {
             throw new RuntimeException("Unrecognised parameter name: " + paramName);
         }
-
-        constructGammaDistribution();
     }
 
     public Value<Number> getShape() {
@@ -78,20 +77,96 @@ public class DiscretizedGamma implements GenerativeDistribution<Double> {
     }
 
 
-    private void constructGammaDistribution() {
-        double sh = doubleValue(shape);
-
-        gammaDistribution = new GammaDistribution(sh, 1.0 / sh);
+    /**
+     * @return the rate of each category, the median of its equal-probability bin of a gamma distribution with mean 1.
+     */
+    public static double[] getCategoryRates(double shape, int ncat) {
+        return categoryRates(shape, ncat).clone();
+    }
 
-        rates = new double[ncat.value()];
+    // the cached array, which must not be modified
+    static double[] categoryRates(double shape, int ncat) {
+        if (!(shape > 0.0)) throw new IllegalArgumentException("The shape must be positive, but was " + shape);
+        if (ncat < 1) throw new IllegalArgumentException("The number of categories must be at least 1, but was " + ncat);
+
+        if (categoryRates.size() >= MAX_CACHED_RATES) categoryRates.clear();
+        return categoryRates.computeIfAbsent(new RatesKey(shape, ncat), key -> {
+            double[] p = new double[ncat];
+            for (int i = 0; i < ncat; i++) {
+                p[i] = (2.0 * i + 1.0) / (2.0 * ncat);
+            }
+            double[] rates = gammaQuantiles(shape, p);
+            // scale 1/shape for mean 1
+            for (int i = 0; i < ncat; i++) {
+                rates[i] /= shape;
+            }
+            return rates;
+        });
+    }
 
-        for (int i = 0; i < rates.length; i++) {
-            double q = (2.0 * i + 1.0) / (2.0 * rates.length);
-            rates[i] = gammaDistribution.inverseCumulativeProbability(q);
+    /**
+     * The quantiles of a gamma distribution with unit scale at all the probabilities together.
+     * Each quantile is found by Newton's method in log x on the regularized incomplete gamma function,
+     * which also converges for the tiny quantiles of a small shape, safeguarded by bisection in a bracket whose lower end is the larger of the previous quantile
+     * and the root of x^shape / (shape * Gamma(shape)) = p, which never exceeds the quantile.
+     * @param probabilities the probabilities in ascending order.
+     */
+    static double[] gammaQuantiles(double shape, double[] probabilities) {
+        double logGammaShape = Gamma.logGamma(shape);
+        double logShapeGamma = Math.log(shape) + logGammaShape;
+
+        double[] quantiles = new double[probabilities.length];
+        double previous = 0.0;
+        for (int i = 0; i < probabilities.length; i++) {
+            double p = probabilities[i];
+            double lower = Math.max(previous, Math.exp((Math.log(p) + logShapeGamma) / shape));
+            double upper = Double.POSITIVE_INFINITY;
+
+            double x = Math.max(lower, shape);
+            for (int iteration = 0; iteration < 200; iteration++) {
+                double error = Gamma.regularizedGammaP(shape, x) - p;
+                if (error == 0.0) break;
+                if (error < 0.0) lower = x;
+                else upper = x;
+
+                // the derivative of the incomplete gamma function with respect to log x is x times the density
+                double logDerivative = Math.exp(shape * Math.log(x) - x - logGammaShape);
+                double next = x * Math.exp(-error / logDerivative);
+                if (!(next > lower && next < upper)) {
+                    if (upper == Double.POSITIVE_INFINITY) next = 2.0 * x;
+                    else next = lower > 0.0 ? Math.sqrt(lower * upper) : 0.5 * upper;
+                }
+                if (Math.abs(next - x) <= 1e-14 * x) {
+                    x = next;
+                    break;
+                }
+                x = next;
+            }
+            quantiles[i] = x;
+            previous = x;
         }
+        return quantiles;
     }
 
+    private static final class RatesKey {
+        private final double shape;
+        private final int ncat;
 
+        RatesKey(double shape, int ncat) {
+            this.shape = shape;
+            this.ncat = ncat;
+        }
 
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof RatesKey)) return false;
+            RatesKey key = (RatesKey) o;
+            return Double.compare(shape, key.shape) == 0 && ncat == key.ncat;
+        }
 
+        @Override
+        public int hashCode() {
+            return 31 * Double.hashCode(shape) + ncat;
+        }
+    }
 }
\ No newline at end of file
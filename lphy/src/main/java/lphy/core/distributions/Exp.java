@@ -6,6 +6,7 @@ import org.apache.commons.math3.random.RandomGenerator;
 import java.util.*;
 
 import static lphy.core.distributions.DistributionConstants.*;
+import static lphy.graphicalModel.VectorUtils.broadcastDoubles;
 
 /**
  * Created by Alexei Drummond on 18/12/19.
@@ -36,6 +37,18 @@ public class Exp implements GenerativeDistribution<Double> {
         return new RandomVariable<>("x", x, this);
     }
 
+    @Override
+    public boolean sampleDoubles(Map<String, Value> params, double[] draws) {
+        Value meanValue = params.get(meanParamName);
+        double[] means = meanValue == null ? null : broadcastDoubles(meanValue, draws.length);
+        if (meanValue != null && means == null) return false;
+
+        for (int i = 0; i < draws.length; i++) {
+            draws[i] = - Math.log(random.nextDouble()) * (means == null ? 1.0 : means[i]);
+        }
+        return true;
+    }
+
     @Override
     public double density(Double aDouble) {
         return 0;
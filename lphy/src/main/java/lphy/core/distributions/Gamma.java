@@ -16,7 +16,10 @@ public class Gamma implements GenerativeDistribution1D<Double> {
     private Value<Double> shape;
     private Value<Double> scale;
 
+    // rebuilt only when the parameter values change
     GammaDistribution gammaDistribution;
+    private double cachedShape = Double.NaN;
+    private double cachedScale = Double.NaN;
 
     public Gamma(@ParameterInfo(name = shapeParamName, description = "the shape of the distribution.") Value<Double> shape,
                  @ParameterInfo(name = scaleParamName, description = "the scale of the distribution.") Value<Double> scale) {
@@ -26,19 +29,17 @@ public class Gamma implements GenerativeDistribution1D<Double> {
         this.scale = scale;
         if (scale == null) throw new IllegalArgumentException("The scale value can't be null!");
 
-        constructGammaDistribution();
     }
 
     @GeneratorInfo(name = "Gamma", description = "The gamma probability distribution.")
     public RandomVariable<Double> sample() {
-        constructGammaDistribution();
-        double x = gammaDistribution.sample();
+        double x = Utils.randomGamma(shapeValue(), scaleValue());
         return new RandomVariable<>("x", x, this);
     }
 
     @Override
     public double density(Double x) {
-        return gammaDistribution.density(x);
+        return getGammaDistribution().density(x);
     }
 
     public Map<String, Value> getParams() {
@@ -53,18 +54,27 @@ public class Gamma implements GenerativeDistribution1D<Double> {
         if (paramName.equals(shapeParamName)) shape = value;
         else if (paramName.equals(scaleParamName)) scale = value;
         else throw new RuntimeException("Unrecognised parameter name: " + paramName);
-
-        constructGammaDistribution();
     }
 
-    private void constructGammaDistribution() {
-        // in case the shape is type integer
-        double sh = ((Number) shape.value()).doubleValue();
+    // in case the shape is type integer
+    private double shapeValue() {
+        return ((Number) shape.value()).doubleValue();
+    }
 
-        // in case the scale is type integer
-        double sc = ((Number) scale.value()).doubleValue();
+    // in case the scale is type integer
+    private double scaleValue() {
+        return ((Number) scale.value()).doubleValue();
+    }
 
-        gammaDistribution = new GammaDistribution(Utils.getRandom(), sh, sc);
+    private GammaDistribution getGammaDistribution() {
+        double sh = shapeValue();
+        double sc = scaleValue();
+        if (gammaDistribution == null || sh != cachedShape || sc != cachedScale) {
+            gammaDistribution = new GammaDistribution(Utils.getRandom(), sh, sc);
+            cachedShape = sh;
+            cachedScale = sc;
+        }
+        return gammaDistribution;
     }
 
     public String toString() {
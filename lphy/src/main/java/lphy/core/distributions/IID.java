@@ -3,6 +3,7 @@ package lphy.core.distributions;
 import lphy.core.narrative.Narrative;
 import lphy.graphicalModel.*;
 import lphy.graphicalModel.types.IntegerValue;
+import lphy.reflection.Invokers;
 
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
@@ -35,7 +36,7 @@ public class IID<T> implements GenerativeDistribution<T[]> {
                 if (!key.equals(replicatesParamName)) elementParams.put(key, value);
             });
 
-            baseDistribution = (GenerativeDistribution<T>) baseDistributionConstructor.newInstance(initArgs);
+            baseDistribution = (GenerativeDistribution<T>) Invokers.newInstance(baseDistributionConstructor, initArgs);
         } catch (IllegalAccessException e) {
             e.printStackTrace();
         } catch (InvocationTargetException e) {
@@ -46,28 +47,25 @@ public class IID<T> implements GenerativeDistribution<T[]> {
     }
 
     /**
-     *
-     * @param arguments
-     * @param initargs
-     * @return true if the initargs matches the list of arguments with the addition of a valid "replicates" argument
+     * @param signature the signature of the constructor of the base distribution
+     * @param initargs the arguments of the base distribution
+     * @param params the full param map including replicates parameter
+     * @return true if the initargs matches the signature with the addition of a valid "replicates" argument
      */
-    public static boolean match(Constructor constructor, List<Argument> arguments, Object[] initargs, Map<String, Value> params) {
+    public static boolean match(GeneratorSignature signature, Object[] initargs, Map<String, Value> params) {
 
-        // the base distribution must be a generative distribution
-        if (!(GenerativeDistribution.class.isAssignableFrom(constructor.getDeclaringClass()))) return false;
+        // the base distribution must be a generative distribution,
+        // and if one of its arguments is replicates than you can't use IID on it
+        if (!signature.isReplicable()) return false;
 
         // there must be a value replicates parameter
         if (!hasValidReplicatesParam(params)) return false;
 
+        List<Argument> arguments = signature.getArguments();
         for (int i = 0; i < arguments.size(); i++) {
             Argument argument = arguments.get(i);
             Value argValue = (Value) initargs[i];
 
-            // if one of the arguments of the base distribution is replicates than you can't use IID on this base distribution
-            if (argument.name.equals(IID.replicatesParamName)) {
-                return false;
-            }
-
             // it is not a match unless all required arguments are provided
             if (argValue == null && !argument.optional) {
                 return false;
@@ -176,6 +174,12 @@ public class IID<T> implements GenerativeDistribution<T[]> {
     public RandomVariable<T[]> sample() {
 
         int size = size();
+
+        double[] draws = new double[size];
+        if (baseDistribution.sampleDoubles(params, draws)) {
+            return new VectorizedRandomVariable<>(null, (T[]) box(draws), this, i -> baseDistribution);
+        }
+
         List<RandomVariable> componentVariables = new ArrayList<>();
 
         for (int i = 0; i < size; i++) {
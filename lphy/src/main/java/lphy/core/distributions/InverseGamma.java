@@ -17,7 +17,10 @@ public class InverseGamma implements GenerativeDistribution1D<Double> {
     private Value<Number> alpha;
     private Value<Number> beta;
 
+    // rebuilt only when the parameter values change
     GammaDistribution gammaDistribution;
+    private double cachedAlpha = Double.NaN;
+    private double cachedBeta = Double.NaN;
 
     public InverseGamma(@ParameterInfo(name = alphaParamName, description = "the alpha parameter of inverse gamma.") Value<Number> alpha,
                         @ParameterInfo(name = betaParamName, description = "the beta parameter of inverse gamma.") Value<Number> beta) {
@@ -27,19 +30,17 @@ public class InverseGamma implements GenerativeDistribution1D<Double> {
         this.beta = beta;
         if (beta == null) throw new IllegalArgumentException("The " + betaParamName + " value can't be null!");
 
-        constructGammaDistribution();
     }
 
     @GeneratorInfo(name = "InverseGamma", description = "The inverse-gamma probability distribution.")
     public RandomVariable<Double> sample() {
-        constructGammaDistribution();
-        double x = 1.0 / gammaDistribution.sample();
+        double x = 1.0 / Utils.randomGamma(doubleValue(alpha), 1.0 / doubleValue(beta));
         return new RandomVariable<>(null, x, this);
     }
 
     @Override
     public double density(Double x) {
-        return gammaDistribution.density(x);
+        return getGammaDistribution().density(x);
     }
 
     public Map<String, Value> getParams() {
@@ -58,15 +59,17 @@ public class InverseGamma implements GenerativeDistribution1D<Double> {
         } else {
             throw new RuntimeException("Unrecognised parameter name: " + paramName);
         }
-
-        constructGammaDistribution();
     }
 
-    private void constructGammaDistribution() {
+    private GammaDistribution getGammaDistribution() {
         double a = doubleValue(alpha);
         double b = doubleValue(beta);
-
-        gammaDistribution = new GammaDistribution(a, 1.0/b);
+        if (gammaDistribution == null || a != cachedAlpha || b != cachedBeta) {
+            gammaDistribution = new GammaDistribution(a, 1.0/b);
+            cachedAlpha = a;
+            cachedBeta = b;
+        }
+        return gammaDistribution;
     }
 
     public String toString() {
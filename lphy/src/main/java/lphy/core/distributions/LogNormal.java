@@ -2,10 +2,12 @@ package lphy.core.distributions;
 
 import lphy.graphicalModel.*;
 import org.apache.commons.math3.distribution.LogNormalDistribution;
+import org.apache.commons.math3.random.RandomGenerator;
 
 import java.util.*;
 
 import static lphy.graphicalModel.ValueUtils.doubleValue;
+import static lphy.graphicalModel.VectorUtils.broadcastDoubles;
 
 /**
  * Created by Alexei Drummond on 18/12/19.
@@ -35,6 +37,19 @@ public class LogNormal implements GenerativeDistribution1D<Double> {
         return new RandomVariable<>(null, logNormalDistribution.sample(), this);
     }
 
+    @Override
+    public boolean sampleDoubles(Map<String, Value> params, double[] draws) {
+        double[] meanLogs = broadcastDoubles(params.get(meanLogParamName), draws.length);
+        double[] sdLogs = broadcastDoubles(params.get(sdLogParamName), draws.length);
+        if (meanLogs == null || sdLogs == null) return false;
+
+        RandomGenerator random = Utils.getRandom();
+        for (int i = 0; i < draws.length; i++) {
+            draws[i] = Math.exp(meanLogs[i] + sdLogs[i] * random.nextGaussian());
+        }
+        return true;
+    }
+
     public double logDensity(Double x) {
 
         return logNormalDistribution.logDensity(x);
@@ -8,6 +8,7 @@ import java.util.Map;
 import java.util.TreeMap;
 
 import static lphy.core.distributions.DistributionConstants.*;
+import static lphy.graphicalModel.VectorUtils.broadcastDoubles;
 
 /**
  * Normal distribution
@@ -42,6 +43,19 @@ public class Normal implements GenerativeDistribution1D<Double> {
         return new RandomVariable<>("x", x, this);
     }
 
+    @Override
+    public boolean sampleDoubles(Map<String, Value> params, double[] draws) {
+        double[] means = broadcastDoubles(params.get(meanParamName), draws.length);
+        double[] sds = broadcastDoubles(params.get(sdParamName), draws.length);
+        if (means == null || sds == null) return false;
+
+        RandomGenerator random = Utils.getRandom();
+        for (int i = 0; i < draws.length; i++) {
+            draws[i] = means[i] + sds[i] * random.nextGaussian();
+        }
+        return true;
+    }
+
     @Override
     public double density(Double x) {
         return normalDistribution.density(x);
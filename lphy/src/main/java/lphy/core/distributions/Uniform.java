@@ -8,6 +8,7 @@ import java.util.TreeMap;
 
 import static lphy.core.distributions.DistributionConstants.*;
 import static lphy.graphicalModel.ValueUtils.doubleValue;
+import static lphy.graphicalModel.VectorUtils.broadcastDoubles;
 
 /**
  * Created by Alexei Drummond on 18/12/19.
@@ -38,6 +39,18 @@ public class Uniform implements GenerativeDistribution<Double> {
         return new RandomVariable<Double>(null, x, this);
     }
 
+    @Override
+    public boolean sampleDoubles(Map<String, Value> params, double[] draws) {
+        double[] lowers = broadcastDoubles(params.get(lowerParamName), draws.length);
+        double[] uppers = broadcastDoubles(params.get(upperParamName), draws.length);
+        if (lowers == null || uppers == null) return false;
+
+        for (int i = 0; i < draws.length; i++) {
+            draws[i] = random.nextDouble() * (uppers[i] - lowers[i]) + lowers[i];
+        }
+        return true;
+    }
+
     public double logDensity(Double x) {
         if (x < doubleValue(lower) || x > doubleValue(upper)) return Double.NEGATIVE_INFINITY;
         return Math.log(1.0) - Math.log(doubleValue(upper) - doubleValue(lower));
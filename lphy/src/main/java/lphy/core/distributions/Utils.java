@@ -1,6 +1,5 @@
 package lphy.core.distributions;
 
-import org.apache.commons.math3.distribution.GammaDistribution;
 import org.apache.commons.math3.random.MersenneTwister;
 import org.apache.commons.math3.random.RandomGenerator;
 
@@ -16,7 +15,66 @@ public class Utils {
         random = r;
     }
 
+    /**
+     * @return a standard normal variate drawn by the ziggurat method.
+     */
+    public static double randomNormal() {
+        return Ziggurat.nextGaussian(random);
+    }
+
+    /**
+     * A gamma variate by the method of Marsaglia and Tsang (2000),
+     * which needs no setup, so no distribution object is created for each draw.
+     * A shape below 1 is boosted to shape + 1 and scaled down by U^(1/shape).
+     */
     public static double randomGamma(double shape, double scale) {
-        return new GammaDistribution(shape, scale).sample();
+        if (!(shape > 0.0)) throw new IllegalArgumentException("The shape of a gamma distribution must be positive, but was " + shape);
+        if (!(scale > 0.0)) throw new IllegalArgumentException("The scale of a gamma distribution must be positive, but was " + scale);
+
+        if (shape < 1.0) {
+            double u = 1.0 - random.nextDouble();
+            return randomGamma(shape + 1.0, scale) * Math.exp(Math.log(u) / shape);
+        }
+
+        double d = shape - 1.0 / 3.0;
+        double c = 1.0 / Math.sqrt(9.0 * d);
+        while (true) {
+            double x, v;
+            do {
+                x = randomNormal();
+                v = 1.0 + c * x;
+            } while (v <= 0.0);
+            v = v * v * v;
+            double u = random.nextDouble();
+            double x2 = x * x;
+            // squeeze, then the exact test
+            if (u < 1.0 - 0.0331 * x2 * x2) return d * v * scale;
+            if (Math.log(u) < 0.5 * x2 + d * (1.0 - v + Math.log(v))) return d * v * scale;
+        }
+    }
+
+    /**
+     * @return a beta variate as the ratio of two gamma variates.
+     */
+    public static double randomBeta(double alpha, double beta) {
+        double x = randomGamma(alpha, 1.0);
+        double y = randomGamma(beta, 1.0);
+        return x / (x + y);
+    }
+
+    /**
+     * Fills the draw with a Dirichlet variate, as normalised gamma variates.
+     * @param concentration the concentration parameters.
+     * @param draw the array to fill, of the same length as the concentration.
+     */
+    public static void randomDirichlet(double[] concentration, double[] draw) {
+        double sum = 0.0;
+        for (int i = 0; i < draw.length; i++) {
+            draw[i] = randomGamma(concentration[i], 1.0);
+            sum += draw[i];
+        }
+        for (int i = 0; i < draw.length; i++) {
+            draw[i] /= sum;
+        }
     }
 }
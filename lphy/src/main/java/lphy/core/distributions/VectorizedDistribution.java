@@ -149,6 +149,12 @@ public class VectorizedDistribution<T> implements GenerativeDistribution<T[]> {
     public RandomVariable<T[]> sample() {
 
         int vectorSize = getVectorSize(params, baseTypes);
+
+        double[] draws = new double[vectorSize];
+        if (getBaseDistribution(0).sampleDoubles(params, draws)) {
+            return new VectorizedRandomVariable<>(null, (T[]) box(draws), this, this::getBaseDistribution);
+        }
+
         List<RandomVariable> componentVariables = new ArrayList<>();
 
         for (int i = 0; i < vectorSize; i++) {
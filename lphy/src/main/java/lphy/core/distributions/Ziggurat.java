@@ -0,0 +1,67 @@
+package lphy.core.distributions;
+
+import org.apache.commons.math3.random.RandomGenerator;
+
+/**
+ * The ziggurat method of Marsaglia and Tsang (2000) for standard normal variates,
+ * with 128 layers and the tail and wedge tests of Doornik (2005).
+ * Most draws take one random long and a multiplication, and no draw allocates.
+ */
+final class Ziggurat {
+
+    private static final int LAYERS = 128;
+    // the start of the tail, and the area of each layer
+    private static final double R = 3.442619855899;
+    private static final double V = 9.91256303526217e-3;
+
+    // the right edge of each layer, and the ratio of the edges of the next and this layer
+    private static final double[] X = new double[LAYERS + 1];
+    private static final double[] RATIO = new double[LAYERS];
+
+    static {
+        double f = Math.exp(-0.5 * R * R);
+        // the base layer includes the tail, so its width is that of a rectangle of the same area
+        X[0] = V / f;
+        X[1] = R;
+        X[LAYERS] = 0.0;
+        for (int i = 2; i < LAYERS; i++) {
+            X[i] = Math.sqrt(-2.0 * Math.log(V / X[i - 1] + f));
+            f = Math.exp(-0.5 * X[i] * X[i]);
+        }
+        for (int i = 0; i < LAYERS; i++) {
+            RATIO[i] = X[i + 1] / X[i];
+        }
+    }
+
+    private Ziggurat() {
+    }
+
+    static double nextGaussian(RandomGenerator random) {
+        while (true) {
+            // the layer from the low 7 bits and a uniform in (-1, 1) from the high 53 bits
+            long bits = random.nextLong();
+            int i = (int) (bits & (LAYERS - 1));
+            double u = 2.0 * ((bits >>> 11) * 0x1.0p-53) - 1.0;
+
+            if (Math.abs(u) < RATIO[i]) return u * X[i];
+
+            if (i == 0) return tail(random, u < 0.0);
+
+            // the wedge between this layer and the density
+            double x = u * X[i];
+            double f0 = Math.exp(-0.5 * (X[i] * X[i] - x * x));
+            double f1 = Math.exp(-0.5 * (X[i + 1] * X[i + 1] - x * x));
+            if (f1 + random.nextDouble() * (f0 - f1) < 1.0) return x;
+        }
+    }
+
+    // Marsaglia's tail method for |x| > R
+    private static double tail(RandomGenerator random, boolean negative) {
+        double x, y;
+        do {
+            x = Math.log(1.0 - random.nextDouble()) / R;
+            y = Math.log(1.0 - random.nextDouble());
+        } while (-2.0 * y < x * x);
+        return negative ? x - R : R - x;
+    }
+}
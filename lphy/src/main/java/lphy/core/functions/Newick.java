@@ -3,6 +3,7 @@ package lphy.core.functions;
 import lphy.evolution.Taxa;
 import lphy.evolution.tree.TimeTree;
 import lphy.evolution.tree.TimeTreeNode;
+import lphy.core.functions.newickParser.FastNewickParser;
 import lphy.core.functions.newickParser.NewickASTVisitor;
 import lphy.core.functions.newickParser.NewickLexer;
 import lphy.core.functions.newickParser.NewickParser;
@@ -19,6 +20,12 @@ public class Newick extends DeterministicFunction<TimeTree> {
 
     public static final String treeParamName = "tree";
 
+    /**
+     * If true, parse through the ANTLR-generated {@link NewickParser} instead of {@link FastNewickParser}.
+     * Set by the system property <code>lphy.newick.antlr</code>, which is read once.
+     */
+    private static final boolean USE_ANTLR_PARSER = Boolean.getBoolean("lphy.newick.antlr");
+
     public Newick(@ParameterInfo(name = treeParamName, description = "the tree in Newick format.") Value<String> x) {
         setParam(treeParamName, x);
     }
@@ -34,6 +41,18 @@ public class Newick extends DeterministicFunction<TimeTree> {
 
     private TimeTree parseNewick(String newick) {
 
+        TimeTree tree = USE_ANTLR_PARSER ? parseWithAntlr(newick) : FastNewickParser.parseTree(newick);
+
+        LoggerUtils.log.info("Parsed tree: " + tree);
+
+        return tree;
+    }
+
+    /**
+     * @return the tree parsed by the ANTLR-generated {@link NewickParser} and {@link NewickASTVisitor}.
+     */
+    static TimeTree parseWithAntlr(String newick) {
+
         CharStream charStream = CharStreams.fromString(newick);
 
         // Custom parse/lexer error listener
@@ -72,8 +91,6 @@ public class Newick extends DeterministicFunction<TimeTree> {
         TimeTree tree = new TimeTree(Taxa.createTaxa(root));
         tree.setRoot(root);
 
-        LoggerUtils.log.info("Parsed tree: " + tree);
-
         return tree;
     }
 }
@@ -0,0 +1,65 @@
+package lphy.core.functions;
+
+import lphy.evolution.io.TreeFileIndex;
+import lphy.graphicalModel.DeterministicFunction;
+import lphy.graphicalModel.GeneratorInfo;
+import lphy.graphicalModel.ParameterInfo;
+import lphy.graphicalModel.Value;
+import lphy.util.IOUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * trees = readTrees(file="posterior.trees");
+ * tree ~ EmpiricalTree(trees=trees);
+ * The trees are indexed, but only parsed when they are drawn.
+ * @see TreeFileIndex
+ */
+public class ReadTrees extends DeterministicFunction<TreeFileIndex> {
+
+    private final String fileParamName = "file";
+
+    Value<String> fileName;
+
+    public ReadTrees(@ParameterInfo(name = fileParamName, narrativeName = "file name",
+            description = "the name of a Nexus file with a trees block, or a file of Newick trees.") Value<String> fileName) {
+        this.fileName = fileName;
+    }
+
+    public SortedMap<String, Value> getParams() {
+        SortedMap<String, Value> map = new TreeMap<>();
+        map.put(fileParamName, fileName);
+        return map;
+    }
+
+    public void setParam(String paramName, Value value) {
+        if (paramName.equals(fileParamName)) fileName = value;
+        else throw new RuntimeException("Unrecognised parameter name: " + paramName);
+    }
+
+    @GeneratorInfo(name="readTrees",
+            verbClause = "are read from",
+            narrativeName = "tree file",
+            description = "A function that lazily reads the trees from a Nexus or Newick file, " +
+                    "e.g. the posterior trees of a previous analysis.")
+    public Value<TreeFileIndex> apply() {
+
+        Path treePath = IOUtils.getUserPath(fileName.value());
+
+        TreeFileIndex index;
+        try {
+            index = new TreeFileIndex(treePath);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read trees from " + treePath, e);
+        }
+        if (index.size() < 1)
+            throw new IllegalArgumentException("No trees are found in " + treePath);
+
+        return new Value<>(null, index, this);
+    }
+
+}
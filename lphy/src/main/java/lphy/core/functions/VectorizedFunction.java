@@ -65,7 +65,8 @@ public class VectorizedFunction<T> extends DeterministicFunction<T[]> {
         List<Value> componentValues = new ArrayList<>();
 
         for (int i = 0; i < vectorSize; i++) {
-            componentValues.add(getComponentFunction(i).apply());
+            // a memoized component is only computed again if its inputs have changed
+            componentValues.add(getComponentFunction(i).generate());
         }
         return new CompoundVectorValue<>(null, componentValues, this);
     }
@@ -0,0 +1,481 @@
+package lphy.core.functions.newickParser;
+
+import lphy.evolution.Taxa;
+import lphy.evolution.tree.TimeTree;
+import lphy.evolution.tree.TimeTreeNode;
+import lphy.evolution.tree.TimeTreeTraversal;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * A single-pass Newick reader that builds {@link TimeTreeNode}s directly from a {@link CharSequence},
+ * without the token stream and parse tree of the ANTLR {@link NewickParser}.
+ * It accepts the same grammar, including <code>[&amp;key=value,...]</code> metadata before and after the colon,
+ * and produces the same tree as {@link NewickASTVisitor}: lengths are converted to ages,
+ * a missing branch length defaults to 0.001, and leaves are numbered in the order their labels first appear.
+ * Nesting is handled with an explicit stack, so very deep trees do not overflow the thread stack.
+ * Several trees separated by ';' can be read one after another from the same input.
+ */
+public class FastNewickParser {
+
+    private static final double DEFAULT_LENGTH = 0.001;
+
+    private final CharSequence input;
+    private final int end;
+    private int pos;
+
+    // reused between trees
+    private final Map<String, Integer> labelIndex = new HashMap<>();
+    private final List<String> labels = new ArrayList<>();
+    private final ArrayDeque<TimeTreeNode> openNodes = new ArrayDeque<>();
+    private final StringBuilder token = new StringBuilder();
+    private int numberedNodeCount;
+
+    public FastNewickParser(CharSequence input) {
+        this.input = input;
+        this.end = input.length();
+        this.pos = 0;
+    }
+
+    /**
+     * Read from the remaining bytes of the buffer, decoded as UTF-8.
+     */
+    public FastNewickParser(ByteBuffer buffer) {
+        this(StandardCharsets.UTF_8.decode(buffer));
+    }
+
+    /**
+     * @param newick a single tree in Newick format
+     * @return the tree
+     */
+    public static TimeTree parseTree(CharSequence newick) {
+        FastNewickParser parser = new FastNewickParser(newick);
+        TimeTree tree = parser.nextTree();
+        parser.skipWhitespace();
+        if (parser.pos < parser.end) throw parser.error("Unexpected text after the end of the tree");
+        return tree;
+    }
+
+    /**
+     * @param newick one or more trees in Newick format, each terminated by ';'
+     * @return all trees in the input
+     */
+    public static List<TimeTree> parseTrees(CharSequence newick) {
+        FastNewickParser parser = new FastNewickParser(newick);
+        List<TimeTree> trees = new ArrayList<>();
+        while (parser.hasNext()) {
+            trees.add(parser.nextTree());
+        }
+        return trees;
+    }
+
+    /**
+     * @return true if there is another tree in the input.
+     */
+    public boolean hasNext() {
+        skipWhitespace();
+        return pos < end;
+    }
+
+    /**
+     * @return the position of the next character to read.
+     */
+    public int getPosition() {
+        return pos;
+    }
+
+    /**
+     * @return the next tree, whose taxa are created from its leaves.
+     */
+    public TimeTree nextTree() {
+        TimeTreeNode root = nextRoot();
+        TimeTree tree = new TimeTree(Taxa.createTaxa(root));
+        tree.setRoot(root);
+        return tree;
+    }
+
+    /**
+     * Reads the next tree, including its optional ';'.
+     * @return the root node of the next tree, with ages, indices and metadata set as by {@link NewickASTVisitor}.
+     */
+    public TimeTreeNode nextRoot() {
+        labelIndex.clear();
+        labels.clear();
+        openNodes.clear();
+        numberedNodeCount = 0;
+
+        TimeTreeNode root = readNode();
+
+        skipWhitespace();
+        if (pos < end && input.charAt(pos) == ';') pos++;
+
+        finish(root);
+        return root;
+    }
+
+    // reads a whole subtree, keeping the unfinished internal nodes on a stack
+    private TimeTreeNode readNode() {
+        while (true) {
+            skipWhitespace();
+            if (pos < end && input.charAt(pos) == '(') {
+                pos++;
+                openNodes.push(newNode());
+                continue;
+            }
+
+            TimeTreeNode node = newNode();
+            readPost(node);
+
+            // close as many internal nodes as possible
+            while (true) {
+                if (openNodes.isEmpty()) return node;
+                openNodes.peek().addChild(node);
+
+                skipWhitespace();
+                if (pos >= end) throw error("Unexpected end of input, expecting ',' or ')'");
+                char c = input.charAt(pos);
+                if (c == ',') {
+                    pos++;
+                    break;
+                } else if (c == ')') {
+                    pos++;
+                    node = openNodes.pop();
+                    readPost(node);
+                } else {
+                    throw error("Unexpected character '" + c + "', expecting ',' or ')'");
+                }
+            }
+        }
+    }
+
+    private TimeTreeNode newNode() {
+        TimeTreeNode node = new TimeTreeNode((String) null, null);
+        node.setIndex(-1);
+        return node;
+    }
+
+    // post: label? meta? (':' meta? number)?
+    private void readPost(TimeTreeNode node) {
+        skipWhitespace();
+        if (pos < end && isLabelStart(input.charAt(pos))) {
+            String label = readLabel();
+            node.setId(label);
+            if (node.isLeaf()) {
+                node.setIndex(getLabelIndex(label));
+                numberedNodeCount += 1;
+            }
+        }
+
+        skipWhitespace();
+        if (atMetaStart()) readMeta(node);
+
+        skipWhitespace();
+        if (pos < end && input.charAt(pos) == ':') {
+            pos++;
+            skipWhitespace();
+            if (atMetaStart()) {
+                readMeta(node);
+                skipWhitespace();
+            }
+            node.setAge(readLength());
+        } else {
+            node.setAge(DEFAULT_LENGTH);
+        }
+    }
+
+    private int getLabelIndex(String label) {
+        Integer index = labelIndex.get(label);
+        if (index == null) {
+            index = labels.size();
+            labels.add(label);
+            labelIndex.put(label, index);
+        }
+        return index;
+    }
+
+    /*** lexical ***/
+
+    private void skipWhitespace() {
+        while (pos < end) {
+            char c = input.charAt(pos);
+            if (c != ' ' && c != '\t' && c != '\r' && c != '\n') return;
+            pos++;
+        }
+    }
+
+    private boolean atMetaStart() {
+        return pos + 1 < end && input.charAt(pos) == '[' && input.charAt(pos + 1) == '&';
+    }
+
+    private static boolean isLabelChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') ||
+                c == '|' || c == '#' || c == '*' || c == '%' || c == '/' || c == '.' ||
+                c == '-' || c == '+' || c == '_' || c == '&' || c == '\'';
+    }
+
+    private static boolean isLabelStart(char c) {
+        return isLabelChar(c) || c == '"';
+    }
+
+    // attribute keys and values also allow ':'
+    private static boolean isAttribChar(char c) {
+        return isLabelChar(c) || c == ':';
+    }
+
+    // a quoted label may contain any character, an unquoted one may contain quotes, and the longer one wins
+    private String readLabel() {
+        return readToken(false);
+    }
+
+    private String readToken(boolean attrib) {
+        int start = pos;
+        char first = input.charAt(pos);
+        int quotedEnd = -1;
+        if (first == '"' || first == '\'') {
+            for (int i = pos + 1; i < end; i++) {
+                if (input.charAt(i) == first) {
+                    quotedEnd = i + 1;
+                    break;
+                }
+            }
+        }
+        int plainEnd = pos;
+        while (plainEnd < end && (attrib ? isAttribChar(input.charAt(plainEnd)) : isLabelChar(input.charAt(plainEnd)))) {
+            plainEnd++;
+        }
+        pos = Math.max(quotedEnd, plainEnd);
+        if (pos == start) throw error("Expecting a label");
+        return input.subSequence(start, pos).toString();
+    }
+
+    private double readLength() {
+        int start = pos;
+        while (pos < end && isNumberChar(input.charAt(pos))) pos++;
+        if (pos == start) throw error("Expecting a branch length");
+        String length = input.subSequence(start, pos).toString();
+        try {
+            return Double.parseDouble(length);
+        } catch (NumberFormatException e) {
+            throw error("Invalid branch length " + length);
+        }
+    }
+
+    private static boolean isNumberChar(char c) {
+        return (c >= '0' && c <= '9') || c == '.' || c == '-' || c == '+' || c == 'e' || c == 'E';
+    }
+
+    /**
+     * @return true if the whole string is lexed as a number (INT, FLOAT or FLOAT_SCI) by the Newick grammar.
+     */
+    static boolean isNumber(String s) {
+        int i = 0;
+        int n = s.length();
+        if (i < n && s.charAt(i) == '-') i++;
+        if (i < n && s.charAt(i) == '+') i++;
+        int intStart = i;
+        while (i < n && Character.isDigit(s.charAt(i))) i++;
+        int intDigits = i - intStart;
+        // no leading zeros
+        if (intDigits > 1 && s.charAt(intStart) == '0') return false;
+        int fracDigits = 0;
+        if (i < n && s.charAt(i) == '.') {
+            i++;
+            int fracStart = i;
+            while (i < n && Character.isDigit(s.charAt(i))) i++;
+            fracDigits = i - fracStart;
+        }
+        if (intDigits == 0 && fracDigits == 0) return false;
+        if (i < n && (s.charAt(i) == 'e' || s.charAt(i) == 'E')) {
+            i++;
+            if (i < n && s.charAt(i) == '-') i++;
+            if (i < n && s.charAt(i) == '+') i++;
+            int expStart = i;
+            while (i < n && Character.isDigit(s.charAt(i))) i++;
+            if (i == expStart) return false;
+        }
+        return i == n;
+    }
+
+    /*** metadata ***/
+
+    // meta: '[&' attrib (',' attrib)* ']'
+    private void readMeta(TimeTreeNode node) {
+        pos += 2;
+        while (true) {
+            skipWhitespace();
+            if (pos >= end) throw error("Unterminated metadata");
+            String key = readToken(true);
+            skipWhitespace();
+            expect('=');
+            skipWhitespace();
+            node.setMetaData(key, readAttribValue());
+            skipWhitespace();
+            if (pos >= end) throw error("Unterminated metadata");
+            char c = input.charAt(pos++);
+            if (c == ']') return;
+            if (c != ',') throw error("Unexpected character '" + c + "' in metadata");
+        }
+    }
+
+    private Object readAttribValue() {
+        if (pos >= end) throw error("Expecting a metadata value");
+        if (input.charAt(pos) == '{') {
+            List<String> elements = new ArrayList<>();
+            pos++;
+            while (true) {
+                skipWhitespace();
+                elements.add(readVectorElement());
+                skipWhitespace();
+                if (pos >= end) throw error("Unterminated vector");
+                char c = input.charAt(pos++);
+                if (c == '}') break;
+                if (c != ',') throw error("Unexpected character '" + c + "' in vector");
+            }
+            Double[] numbers = new Double[elements.size()];
+            for (int i = 0; i < numbers.length; i++) {
+                try {
+                    numbers[i] = Double.parseDouble(elements.get(i));
+                } catch (NumberFormatException e) {
+                    // it is a non-numerical vector -- store as String
+                    return elements.toArray(new String[0]);
+                }
+            }
+            return numbers;
+        }
+
+        String value = readToken(true);
+        if (isNumber(value)) return Double.parseDouble(value);
+        if (value.startsWith("\"") || value.startsWith("'")) {
+            value = value.substring(1, value.length() - 1);
+        }
+        return value;
+    }
+
+    // the text of a vector element, which can itself be a nested vector
+    private String readVectorElement() {
+        if (pos < end && input.charAt(pos) == '{') {
+            token.setLength(0);
+            int depth = 0;
+            while (pos < end) {
+                char c = input.charAt(pos++);
+                if (c == ' ' || c == '\t' || c == '\r' || c == '\n') continue;
+                token.append(c);
+                if (c == '{') depth++;
+                else if (c == '}' && --depth == 0) return token.toString();
+            }
+            throw error("Unterminated vector");
+        }
+        return readToken(true);
+    }
+
+    private void expect(char expected) {
+        if (pos >= end || input.charAt(pos) != expected)
+            throw error("Expecting '" + expected + "'");
+        pos++;
+    }
+
+    private TreeParsingException error(String message) {
+        // report the position in the same form as the ANTLR lexer
+        int line = 1;
+        int lineStart = 0;
+        for (int i = 0; i < Math.min(pos, end); i++) {
+            if (input.charAt(i) == '\n') {
+                line++;
+                lineStart = i + 1;
+            }
+        }
+        return new TreeParsingException(message + " at position " + pos, pos - lineStart, line);
+    }
+
+    /*** post-processing, as NewickASTVisitor.visitTree but iterative ***/
+
+    private void finish(TimeTreeNode root) {
+        // Ensure tree is properly sorted in terms of node numbers.
+        root.sort();
+
+        List<TimeTreeNode> preOrder = TimeTreeTraversal.getPreOrder(root);
+
+        // Replace lengths read from Newick with heights, parents before children
+        double minLeafHeight = Double.POSITIVE_INFINITY;
+        for (TimeTreeNode node : preOrder) {
+            double parentHeight = node == root ? 0.0 : node.getParent().getAge();
+            node.setAge(parentHeight - node.getAge());
+            if (node.isLeaf()) minLeafHeight = Math.min(minLeafHeight, node.getAge());
+        }
+        for (TimeTreeNode node : preOrder) {
+            node.setAge(node.getAge() - minLeafHeight);
+            if (node.isLeaf() && node.getAge() < 0) node.setAge(0);
+        }
+
+        // Make sure internal nodes are numbered correctly, children before parents
+        BitSet nodeNrSeen = new BitSet();
+        for (int i = preOrder.size() - 1; i >= 0; i--) {
+            TimeTreeNode node = preOrder.get(i);
+            if (!node.isLeaf()) {
+                if (node.getIndex() < 0) node.setIndex(numberedNodeCount);
+                numberedNodeCount += 1;
+            }
+        }
+
+        // Check for duplicate taxa
+        for (TimeTreeNode node : preOrder) {
+            if (!node.isLeaf() || node.getIndex() < 0)
+                continue;  // Skip unnumbered leaves
+
+            if (nodeNrSeen.get(node.getIndex()))
+                throw new TreeParsingException("Duplicate taxon found: " + labels.get(node.getIndex()));
+            else
+                nodeNrSeen.set(node.getIndex());
+        }
+    }
+
+    /**
+     * Benchmark against the ANTLR parser.
+     * @param args the number of tips, and the number of trees.
+     */
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        int trees = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        // a random binary tree with metadata on the leaves
+        Random random = new Random(777);
+        List<String> subtrees = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            subtrees.add("t" + i + "[&rate=" + random.nextDouble() + "]");
+        }
+        while (subtrees.size() > 1) {
+            String a = subtrees.remove(random.nextInt(subtrees.size()));
+            String b = subtrees.remove(random.nextInt(subtrees.size()));
+            subtrees.add("(" + a + ":" + random.nextDouble() + "," + b + ":" + random.nextDouble() + ")");
+        }
+        String newick = subtrees.get(0) + ":0.0;";
+
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            TimeTree fast = null;
+            for (int i = 0; i < trees; i++) fast = parseTree(newick);
+            long fastTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            TimeTree antlr = null;
+            for (int i = 0; i < trees; i++) antlr = parseWithAntlr(newick);
+            long antlrTime = System.nanoTime() - start;
+
+            System.out.println(trees + " trees of " + n + " tips: fast = " + fastTime / 1000000 +
+                    " ms, ANTLR = " + antlrTime / 1000000 + " ms, same tree = " + fast.toString().equals(antlr.toString()));
+        }
+    }
+
+    private static TimeTree parseWithAntlr(String newick) {
+        NewickLexer lexer = new NewickLexer(CharStreams.fromString(newick));
+        NewickParser parser = new NewickParser(new CommonTokenStream(lexer));
+        TimeTreeNode root = new NewickASTVisitor().visit(parser.tree());
+        TimeTree tree = new TimeTree(Taxa.createTaxa(root));
+        tree.setRoot(root);
+        return tree;
+    }
+}
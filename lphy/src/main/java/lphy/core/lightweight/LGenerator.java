@@ -2,6 +2,7 @@ package lphy.core.lightweight;
 
 import lphy.graphicalModel.Argument;
 import lphy.graphicalModel.*;
+import lphy.reflection.Invokers;
 
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Constructor;
@@ -29,7 +30,7 @@ public interface LGenerator<T> {
     default void setArgumentValue(Argument argument, Object val) {
         try {
             Method method = getSetMethod(argument);
-            method.invoke(this, val);
+            Invokers.invoke(method, this, val);
         } catch (IllegalAccessException e) {
             e.printStackTrace();
         } catch (InvocationTargetException e) {
@@ -42,27 +43,26 @@ public interface LGenerator<T> {
      * @return the method that allows the setting of the given argument
      */
     default Method getSetMethod(Argument argument) {
-        try {
-            return getClass().getMethod(argument.setMethodName(), argument.type);
-        } catch (NoSuchMethodException e) {
-            e.printStackTrace();
+        Method method = Invokers.findMethod(getClass(), argument.setMethodName(), argument.type);
+        if (method == null) {
+            new NoSuchMethodException(getClass().getName() + "." + argument.setMethodName()).printStackTrace();
         }
-        return null;
+        return method;
     }
 
     default void setArgumentValue(String name, Object val) {
         try {
-            Method method = getClass().getMethod(Argument.setMethodName(name), val.getClass());
-            method.invoke(this, val);
-        } catch (NoSuchMethodException e) {
-
-            Method[] methods = getClass().getMethods();
-            for (Method method : methods) {
-                if (method.getName().equals(name)) {
-                    try {
-                        method.invoke(this,val);
-                        break;
-                    } catch (InvocationTargetException | IllegalAccessException ignored) {
+            Method method = Invokers.findMethod(getClass(), Argument.setMethodName(name), val.getClass());
+            if (method != null) {
+                Invokers.invoke(method, this, val);
+            } else {
+                for (Method m : Invokers.getMethods(getClass())) {
+                    if (m.getName().equals(name)) {
+                        try {
+                            Invokers.invoke(m, this, val);
+                            break;
+                        } catch (InvocationTargetException | IllegalAccessException ignored) {
+                        }
                     }
                 }
             }
@@ -75,8 +75,9 @@ public interface LGenerator<T> {
 
     default Object getArgumentValue(Argument argument) {
         try {
-            Method method = getClass().getMethod(argument.getMethodName());
-            return method.invoke(this);
+            Method method = Invokers.findMethod(getClass(), argument.getMethodName());
+            if (method == null) throw new NoSuchMethodException(getClass().getName() + "." + argument.getMethodName());
+            return Invokers.invoke(method, this);
         } catch (NoSuchMethodException e) {
             e.printStackTrace();
         } catch (IllegalAccessException e) {
@@ -1,6 +1,7 @@
 package lphy.core.lightweight;
 
 import lphy.graphicalModel.Argument;
+import lphy.reflection.Invokers;
 
 import java.lang.reflect.Array;
 import java.lang.reflect.InvocationTargetException;
@@ -101,7 +102,7 @@ public abstract class VectorizedGenerator<T> implements LGenerator<T[]> {
             for (int j = 0; j < vectorizedSetMethods.size(); j++) {
                 Object input = Array.get(vectorizedArgumentValues.get(j), i);
                 try {
-                    vectorizedSetMethods.get(j).invoke(baseGenerator, input);
+                    Invokers.invoke(vectorizedSetMethods.get(j), baseGenerator, input);
                 } catch (IllegalAccessException e) {
                     e.printStackTrace();
                 } catch (InvocationTargetException e) {
@@ -1,8 +1,8 @@
 package lphy.core.lightweight.distributions;
 
+import lphy.core.distributions.Utils;
 import lphy.core.lightweight.LGenerativeDistribution;
 import lphy.graphicalModel.*;
-import org.apache.commons.math3.distribution.BetaDistribution;
 
 /**
  * Created by Alexei Drummond on 18/12/19.
@@ -11,17 +11,13 @@ public class Beta implements LGenerativeDistribution<Double> {
 
     private Number alpha;
     private Number beta;
-    BetaDistribution betaDistribution;
 
     public Beta(@ParameterInfo(name="alpha", description="the first shape parameter.") Number alpha,
                 @ParameterInfo(name="beta", description="the second shape parameter.") Number beta) {
         this.alpha = alpha;
         this.beta = beta;
-        setup();
     }
 
-    void setup() { betaDistribution = new BetaDistribution(alpha.doubleValue(), beta.doubleValue()); }
-
     public Number getAlpha() {
         return alpha;
     }
@@ -29,9 +25,9 @@ public class Beta implements LGenerativeDistribution<Double> {
         return beta;
     }
 
-    public void setAlpha(Number alpha) { this.alpha = alpha; setup(); }
-    public void setBeta(Number beta) { this.beta = beta; setup(); }
+    public void setAlpha(Number alpha) { this.alpha = alpha; }
+    public void setBeta(Number beta) { this.beta = beta; }
 
     @GeneratorInfo(name="Beta", description="The beta probability distribution.")
-    public Double sample() { return betaDistribution.sample(); }
+    public Double sample() { return Utils.randomBeta(alpha.doubleValue(), beta.doubleValue()); }
 }
\ No newline at end of file
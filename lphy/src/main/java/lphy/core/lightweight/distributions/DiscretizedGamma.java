@@ -4,7 +4,6 @@ import lphy.core.distributions.Utils;
 import lphy.core.lightweight.LGenerativeDistribution;
 import lphy.graphicalModel.GeneratorInfo;
 import lphy.graphicalModel.ParameterInfo;
-import org.apache.commons.math3.distribution.GammaDistribution;
 
 /**
  * Discretized Gamma distribution
@@ -16,7 +15,6 @@ public class DiscretizedGamma implements LGenerativeDistribution<Double[]> {
     private Integer ncat;
     private Integer reps;
 
-    GammaDistribution gammaDistribution;
     double[] rates;
 
 
@@ -79,14 +77,7 @@ public class DiscretizedGamma implements LGenerativeDistribution<Double[]> {
         // in case the shape is type integer
         double sh = ((Number) shape).doubleValue();
 
-        gammaDistribution = new GammaDistribution(sh, 1.0/sh);
-
-        rates = new double[ncat];
-
-        for (int i = 0; i < rates.length; i++) {
-            double q = (2.0 * i + 1.0) / (2.0 * rates.length);
-            rates[i] = gammaDistribution.inverseCumulativeProbability(q);
-        }
+        rates = lphy.core.distributions.DiscretizedGamma.getCategoryRates(sh, ncat);
     }
 
     public String toString() {
@@ -1,5 +1,6 @@
 package lphy.core.lightweight.distributions;
 
+import lphy.core.distributions.Utils;
 import lphy.core.lightweight.LGenerativeDistribution;
 import lphy.graphicalModel.*;
 import org.apache.commons.math3.distribution.GammaDistribution;
@@ -22,13 +23,11 @@ public class Gamma implements LGenerativeDistribution<Double> {
         this.scale = scale;
         if (scale == null) throw new IllegalArgumentException("The scale value can't be null!");
 
-        constructGammaDistribution();
     }
 
     @GeneratorInfo(name = "Gamma", description = "The gamma probability distribution.")
     public Double sample() {
-        constructGammaDistribution();
-        return gammaDistribution.sample();
+        return Utils.randomGamma(shape, scale);
     }
 
     public Double getShape() {
@@ -41,14 +40,17 @@ public class Gamma implements LGenerativeDistribution<Double> {
 
     public void setShape(Double shape) {
         this.shape = shape;
+        gammaDistribution = null;
     }
 
     public void setScale(Double scale) {
         this.scale = scale;
+        gammaDistribution = null;
     }
 
     @Override
     public double density(Double x) {
+        if (gammaDistribution == null) constructGammaDistribution();
         return gammaDistribution.density(x);
     }
 
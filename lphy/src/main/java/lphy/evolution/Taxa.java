@@ -4,9 +4,7 @@ import lphy.evolution.tree.TimeTreeNode;
 import lphy.graphicalModel.MethodInfo;
 import lphy.graphicalModel.MultiDimensional;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 
 /**
  * An interface that taxa-dimensioned objects can implement, such as Alignment and TimeTree.
@@ -114,10 +112,8 @@ public interface Taxa extends MultiDimensional {
     }
 
     default double getAge(String taxonName) {
-        Taxon[] taxa = getTaxonArray();
-
         int index = indexOfTaxon(taxonName);
-        if (index >= 0) return taxa[index].getAge();
+        if (index >= 0) return getTaxon(index).getAge();
         throw new IllegalArgumentException("Taxon named " + taxonName + " not found");
     }
 
@@ -190,19 +186,21 @@ public interface Taxa extends MultiDimensional {
 
     static Taxa createTaxa(TimeTreeNode root) {
 
-        Taxon[] taxa = new Taxon[root.countLeaves()];
-        collectTaxon(root, taxa);
+        List<TimeTreeNode> leafNodes = new ArrayList<>();
+        root.getAllLeafNodes(leafNodes);
+        Taxon[] taxa = new Taxon[leafNodes.size()];
+        for (TimeTreeNode leaf : leafNodes) {
+            taxa[leaf.getIndex()] = new Taxon(leaf.getId(), leaf.getAge());
+        }
 
         return new Taxa.Simple(taxa);
     }
 
     static void collectTaxon(TimeTreeNode node, Taxon[] taxa) {
-        if (node.isLeaf()) {
-            taxa[node.getIndex()] = new Taxon(node.getId(), node.getAge());
-        } else {
-            for (TimeTreeNode child : node.getChildren()) {
-                collectTaxon(child, taxa);
-            }
+        List<TimeTreeNode> leafNodes = new ArrayList<>();
+        node.getAllLeafNodes(leafNodes);
+        for (TimeTreeNode leaf : leafNodes) {
+            taxa[leaf.getIndex()] = new Taxon(leaf.getId(), leaf.getAge());
         }
     }
 
@@ -221,10 +219,20 @@ public interface Taxa extends MultiDimensional {
         return new Taxa.Simple(taxa);
     }
 
+    /**
+     * The names of the taxa and a hash index from name to position are built on first use,
+     * so the taxon array must not be changed after construction.
+     * They are published through volatile fields, since the same taxa are shared by threads,
+     * e.g. by the loci of {@link lphy.evolution.coalescent.MultispeciesCoalescent#sampleLoci(int)}.
+     * Two threads may both build them, but each only ever sees complete ones.
+     */
     class Simple implements Taxa {
 
         Taxon[] taxa;
 
+        private volatile String[] taxaNames = null;
+        private volatile Map<String, Integer> indexByName = null;
+
         public Simple(Taxon[] taxa) {
             this.taxa = taxa;
         }
@@ -238,5 +246,47 @@ public interface Taxa extends MultiDimensional {
         public Taxon getTaxon(int i) {
             return taxa[i];
         }
+
+        @Override
+        public Taxon[] getTaxonArray() {
+            // defensive copy.
+            return Arrays.copyOf(taxa, taxa.length);
+        }
+
+        @Override
+        public String[] getTaxaNames() {
+            return Arrays.copyOf(getCachedTaxaNames(), taxa.length);
+        }
+
+        private String[] getCachedTaxaNames() {
+            String[] names = taxaNames;
+            if (names == null) {
+                names = new String[taxa.length];
+                for (int i = 0; i < names.length; i++) {
+                    names[i] = taxa[i].getName();
+                }
+                taxaNames = names;
+            }
+            return names;
+        }
+
+        /**
+         * @return the index of the first taxon with this name, or -1 if there is none, in constant time.
+         */
+        @Override
+        public int indexOfTaxon(String taxon) {
+            Map<String, Integer> index = indexByName;
+            if (index == null) {
+                String[] names = getCachedTaxaNames();
+                Map<String, Integer> map = new HashMap<>(2 * names.length);
+                for (int i = 0; i < names.length; i++) {
+                    map.putIfAbsent(names[i], i);
+                }
+                index = Collections.unmodifiableMap(map);
+                indexByName = index;
+            }
+            Integer i = index.get(taxon);
+            return i == null ? -1 : i;
+        }
     }
 }
@@ -115,10 +115,10 @@ public abstract class AbstractAlignment implements Alignment {
         return taxa;
     }
 
-//    @Override
-//    public int indexOfTaxon(String taxon) {
-//        return getTaxaNames();
-//    }
+    @Override
+    public int indexOfTaxon(String taxon) {
+        return taxa.indexOfTaxon(taxon);
+    }
 
     public String toString() {
         return sequenceType.getName() + " alignment " + ntaxa() + " by " + nchar;
@@ -41,7 +41,7 @@ public class BirthDeathSamplingTree implements GenerativeDistribution<TimeTree>
             "Conditioned on root age.")
     public RandomVariable<TimeTree> sample() {
 
-        FullBirthDeathTree birthDeathTree = new FullBirthDeathTree(birthRate, deathRate, rootAge, null);
+        FullBirthDeathTree birthDeathTree = new FullBirthDeathTree(birthRate, deathRate, rootAge, null, null);
         RandomVariable<TimeTree> fullTree = birthDeathTree.sample();
 
         RhoSampleTree rhoSampleTree = new RhoSampleTree(fullTree, rho);
@@ -20,8 +20,13 @@ public class FullBirthDeathTree implements GenerativeDistribution<TimeTree> {
     private Value<Number> deathRate;
     private Value<Number> rootAge;
     private Value<Number> originAge;
+    private Value<Boolean> pruneExtinct;
+
+    public static final String pruneExtinctParamName = "pruneExtinct";
 
     private List<TimeTreeNode> activeNodes;
+    // the current root, which changes when pruning removes the old root
+    private TimeTreeNode root;
 
     RandomGenerator random;
 
@@ -30,12 +35,15 @@ public class FullBirthDeathTree implements GenerativeDistribution<TimeTree> {
     public FullBirthDeathTree(@ParameterInfo(name = lambdaParamName, description = "per-lineage birth rate.") Value<Number> birthRate,
                               @ParameterInfo(name = muParamName, description = "per-lineage death rate.") Value<Number> deathRate,
                               @ParameterInfo(name = rootAgeParamName, description = "the age of the root of the tree (only one of rootAge and originAge may be specified).", optional=true) Value<Number> rootAge,
-                              @ParameterInfo(name = originAgeParamName, description = "the age of the origin of the tree  (only one of rootAge and originAge may be specified).", optional=true) Value<Number> originAge) {
+                              @ParameterInfo(name = originAgeParamName, description = "the age of the origin of the tree  (only one of rootAge and originAge may be specified).", optional=true) Value<Number> originAge,
+                              @ParameterInfo(name = pruneExtinctParamName, description = "if true, extinct lineages are removed as soon as they die, " +
+                                      "so only the reconstructed tree of the extant species is kept in memory and returned. Default false.", optional=true) Value<Boolean> pruneExtinct) {
 
         this.birthRate = birthRate;
         this.deathRate = deathRate;
         this.rootAge = rootAge;
         this.originAge = originAge;
+        this.pruneExtinct = pruneExtinct;
         this.random = Utils.getRandom();
 
         if (rootAge != null && originAge != null) throw new IllegalArgumentException("Only one of rootAge and originAge may be specified!");
@@ -46,12 +54,14 @@ public class FullBirthDeathTree implements GenerativeDistribution<TimeTree> {
 
 
     @GeneratorInfo(name = "FullBirthDeath", description = "A birth-death tree with both extant and extinct species.<br>" +
-            "Conditioned on age of root or origin.")
+            "Conditioned on age of root or origin.<br>" +
+            "If pruneExtinct is true, extinct lineages are pruned during the simulation, " +
+            "which gives the same tree as extantTree of the full tree, without ever holding the full tree.")
     public RandomVariable<TimeTree> sample() {
 
         boolean success = false;
         TimeTree tree = new TimeTree();
-        TimeTreeNode root = null;
+        boolean prune = isPruneExtinct();
 
         double lambda = doubleValue(birthRate);
         double mu = doubleValue(deathRate);
@@ -98,7 +108,8 @@ public class FullBirthDeathTree implements GenerativeDistribution<TimeTree> {
                 if (U < lambda / (lambda + mu)) {
                     doBirth(activeNodes, time, tree);
                 } else {
-                    doDeath(activeNodes, time);
+                    TimeTreeNode deadNode = doDeath(activeNodes, time);
+                    if (prune) pruneLineage(deadNode);
                 }
             }
 
@@ -117,13 +128,49 @@ public class FullBirthDeathTree implements GenerativeDistribution<TimeTree> {
             throw new RuntimeException("Failed to simulated FullBirthDeathTree after " + MAX_ATTEMPTS + " attempts.");
         }
 
+        if (prune && root.getChildCount() == 1) {
+            // like extantTree, the reconstructed tree starts at the first branching of surviving lineages
+            TimeTreeNode child = root.getChildren().get(0);
+            root.removeChild(child);
+            root = child;
+        }
+
         tree.setRoot(root, true);
 
         return new RandomVariable<>(null, tree, this);
     }
 
+    public boolean isPruneExtinct() {
+        return pruneExtinct != null && pruneExtinct.value();
+    }
+
+    /**
+     * Remove a dead lineage from the tree, together with the birth node it descends from,
+     * whose other child is joined to the next ancestor.
+     * The tree then only contains the ancestors of the active lineages,
+     * apart from the origin or root, which is kept to the end of the simulation.
+     */
+    private void pruneLineage(TimeTreeNode deadNode) {
+        TimeTreeNode parent = deadNode.getParent();
+        if (parent == null) return;
+        parent.removeChild(deadNode);
+
+        if (parent.getChildCount() == 1 && parent != root) {
+            TimeTreeNode sibling = parent.getChildren().get(0);
+            TimeTreeNode grandParent = parent.getParent();
+            parent.removeChild(sibling);
+            grandParent.removeChild(parent);
+            grandParent.addChild(sibling);
+        } else if (parent.getChildCount() == 1 && rootAge != null) {
+            // the root lost a child, so the surviving subtree becomes the tree
+            TimeTreeNode sibling = parent.getChildren().get(0);
+            parent.removeChild(sibling);
+            root = sibling;
+        }
+    }
+
     private void doBirth(List<TimeTreeNode> activeNodes, double age, TimeTree tree) {
-        TimeTreeNode parent = activeNodes.remove(random.nextInt(activeNodes.size()));
+        TimeTreeNode parent = removeRandomNode(activeNodes);
         parent.setAge(age);
         TimeTreeNode child1 = new TimeTreeNode((String)null, tree);
         TimeTreeNode child2 = new TimeTreeNode((String)null, tree);
@@ -135,9 +182,20 @@ public class FullBirthDeathTree implements GenerativeDistribution<TimeTree> {
         activeNodes.add(child2);
     }
 
-    private void doDeath(List<TimeTreeNode> activeNodes, double age) {
-        TimeTreeNode deadNode = activeNodes.remove(random.nextInt(activeNodes.size()));
+    private TimeTreeNode doDeath(List<TimeTreeNode> activeNodes, double age) {
+        TimeTreeNode deadNode = removeRandomNode(activeNodes);
         deadNode.setAge(age);
+        return deadNode;
+    }
+
+    // constant time, by moving the last node into the place of the removed one
+    private TimeTreeNode removeRandomNode(List<TimeTreeNode> nodes) {
+        int i = random.nextInt(nodes.size());
+        int last = nodes.size() - 1;
+        TimeTreeNode node = nodes.get(i);
+        nodes.set(i, nodes.get(last));
+        nodes.remove(last);
+        return node;
     }
 
 
@@ -154,6 +212,7 @@ public class FullBirthDeathTree implements GenerativeDistribution<TimeTree> {
             put(muParamName, deathRate);
             if (rootAge != null) put(rootAgeParamName, rootAge);
             if (originAge != null) put(originAgeParamName, originAge);
+            if (pruneExtinct != null) put(pruneExtinctParamName, pruneExtinct);
         }};
     }
 
@@ -163,6 +222,7 @@ public class FullBirthDeathTree implements GenerativeDistribution<TimeTree> {
         else if (paramName.equals(muParamName)) deathRate = value;
         else if (paramName.equals(rootAgeParamName)) rootAge = value;
         else if (paramName.equals(originAgeParamName)) originAge = value;
+        else if (paramName.equals(pruneExtinctParamName)) pruneExtinct = value;
         else throw new RuntimeException("Unrecognised parameter name: " + paramName);
     }
 
@@ -55,7 +55,7 @@ public class SimFBDAge implements GenerativeDistribution<TimeTree> {
         int attempts = 0;
 
         while (nonNullLeafCount < 1 && attempts < MAX_ATTEMPTS) {
-            FullBirthDeathTree birthDeathTree = new FullBirthDeathTree(birthRate, deathRate, null, originAge);
+            FullBirthDeathTree birthDeathTree = new FullBirthDeathTree(birthRate, deathRate, null, originAge, null);
             RandomVariable<TimeTree> fullTree = birthDeathTree.sample();
 
             SimFossilsPoisson simFossilsPoisson = new SimFossilsPoisson(fullTree, psiVal);
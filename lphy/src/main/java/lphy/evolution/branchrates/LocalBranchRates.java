@@ -2,6 +2,7 @@ package lphy.evolution.branchrates;
 
 import lphy.evolution.tree.TimeTree;
 import lphy.evolution.tree.TimeTreeNode;
+import lphy.evolution.tree.TimeTreeTraversal;
 import lphy.graphicalModel.*;
 
 import java.util.Map;
@@ -39,19 +40,17 @@ public class LocalBranchRates extends DeterministicFunction<Double[]> {
         return new Value<>(branchRates, this);
     }
 
-    private void traverseTree(TimeTreeNode node, Double[] branchRates, Double[] rawRates, Boolean[] indicators) {
+    private void traverseTree(TimeTreeNode root, Double[] branchRates, Double[] rawRates, Boolean[] indicators) {
 
-        int nodeNumber = node.getIndex();
+        for (TimeTreeNode node : TimeTreeTraversal.getPreOrder(root)) {
+            int nodeNumber = node.getIndex();
 
-        // if this is the root or the indicator is true then take the raw rate as this branch's rate;
-        if (node.isRoot() || indicators[nodeNumber]) {
-            branchRates[nodeNumber] = rawRates[nodeNumber];
-        } else {   // if indicator is false then take branchRate of parent. Recursion is parent-first, so this will always have been populated before this call.
-            branchRates[nodeNumber] = branchRates[node.getParent().getIndex()];
-        }
-
-        for (TimeTreeNode child : node.getChildren()) {
-            traverseTree(child, branchRates, rawRates, indicators);
+            // if this is the root or the indicator is true then take the raw rate as this branch's rate;
+            if (node.isRoot() || indicators[nodeNumber]) {
+                branchRates[nodeNumber] = rawRates[nodeNumber];
+            } else {   // if indicator is false then take branchRate of parent. Traversal is parent-first, so this will always have been populated before.
+                branchRates[nodeNumber] = branchRates[node.getParent().getIndex()];
+            }
         }
     }
 
@@ -44,54 +44,17 @@ public class Coalescent extends TaxaConditionedTreeGenerator {
 
         TimeTree tree = new TimeTree();
 
-        List<TimeTreeNode> activeNodes = createLeafTaxa(tree);
+        List<TimeTreeNode> leafNodes = createLeafTaxa(tree);
 
-        double time = 0.0;
-        double theta = this.theta.value();
-
-        while (activeNodes.size() > 1) {
-            int k = activeNodes.size();
-
-            TimeTreeNode a = drawRandomNode(activeNodes);
-            TimeTreeNode b = drawRandomNode(activeNodes);
-
-            double rate = (k * (k - 1.0))/(theta * 2.0);
-
-            // random exponential variate
-            double x = - Math.log(random.nextDouble()) / rate;
-            time += x;
-
-            TimeTreeNode parent = new TimeTreeNode(time, new TimeTreeNode[] {a, b});
-            activeNodes.add(parent);
-        }
-
-        tree.setRoot(activeNodes.get(0));
+        TimeTreeNode root = new CoalescentSimulator(random).simulate(leafNodes, theta.value());
+        tree.setRoot(root);
 
         return new RandomVariable<>("\u03C8", tree, this);
     }
 
     @Override
     public double logDensity(TimeTree timeTree) {
-
-        double[] ages = getInternalNodeAges(timeTree, null);
-        Arrays.sort(ages);
-        double age = 0;
-        int k = timeTree.n();
-        double logDensity = 0;
-        double theta = this.theta.value();
-
-        for (double age1 : ages) {
-            double interval = age1 - age;
-
-            logDensity -= k * (k - 1) * interval / (2 * theta);
-
-            age = age1;
-            k -= 1;
-        }
-
-        logDensity -= (timeTree.n() - 1) * Math.log(theta);
-
-        return logDensity;
+        return CoalescentLikelihood.logDensity(timeTree.getCoalescentIntervals(), theta.value());
     }
 
     @Override
@@ -107,20 +70,6 @@ public class Coalescent extends TaxaConditionedTreeGenerator {
         else super.setParam(paramName, value);
     }
 
-    private double[] getInternalNodeAges(TimeTree timeTree, double[] ages) {
-        if (ages == null) ages = new double[timeTree.n() - 1];
-        if (ages.length != timeTree.n() - 1)
-            throw new IllegalArgumentException("Ages array size must one more than the number of internal nodes in the tree.");
-        int i = 0;
-        for (TimeTreeNode node : timeTree.getNodes()) {
-            if (!node.isLeaf()) {
-                ages[i] = node.getAge();
-                i += 1;
-            }
-        }
-        return ages;
-    }
-
     public static void main(String[] args) {
 
         Value<Double> thetaExpPriorRate = new Value<>("r", 20.0);
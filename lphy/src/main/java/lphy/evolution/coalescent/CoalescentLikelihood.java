@@ -0,0 +1,108 @@
+package lphy.evolution.coalescent;
+
+import lphy.evolution.tree.CoalescentIntervals;
+import lphy.evolution.tree.TimeTree;
+import lphy.evolution.tree.TimeTreeNode;
+import lphy.graphicalModel.Value;
+
+import java.util.Arrays;
+
+/**
+ * The log density of a time tree under the coalescent with piecewise constant population sizes,
+ * shared by {@link Coalescent}, {@link SerialCoalescent} and {@link SkylineCoalescent}.
+ * It is a single pass over the {@link CoalescentIntervals} cached on the tree,
+ * so re-evaluating the same tree with new population sizes does not sort the node ages again.
+ */
+public class CoalescentLikelihood {
+
+    private CoalescentLikelihood() {
+    }
+
+    /**
+     * @param theta the constant population size.
+     */
+    public static double logDensity(CoalescentIntervals intervals, double theta) {
+        double logDensity = 0;
+        for (int i = 0; i < intervals.getIntervalCount(); i++) {
+            int k = intervals.getLineageCount(i);
+            logDensity -= k * (k - 1.0) * intervals.getInterval(i) / (2.0 * theta);
+        }
+        logDensity -= intervals.getCoalescentEventCount() * Math.log(theta);
+        return logDensity;
+    }
+
+    /**
+     * @param thetas the population size of each coalescent interval, ordered from present to past,
+     *               i.e. one value per coalescent event.
+     */
+    public static double logDensity(CoalescentIntervals intervals, double[] thetas) {
+        if (thetas.length != intervals.getCoalescentEventCount())
+            throw new IllegalArgumentException("Expecting " + intervals.getCoalescentEventCount() +
+                    " population sizes, one for each coalescent event, but got " + thetas.length);
+        double logDensity = 0;
+        int event = 0;
+        for (int i = 0; i < intervals.getIntervalCount(); i++) {
+            int k = intervals.getLineageCount(i);
+            // no coalescence is possible with fewer than 2 lineages, e.g. while waiting for an older sample
+            if (k > 1) {
+                double theta = thetas[event];
+                logDensity -= k * (k - 1.0) * intervals.getInterval(i) / (2.0 * theta);
+                if (intervals.isCoalescentEvent(i)) logDensity -= Math.log(theta);
+            }
+            if (intervals.isCoalescentEvent(i)) event += 1;
+        }
+        return logDensity;
+    }
+
+    // the previous Coalescent.logDensity, which sorts a fresh array of internal node ages on every call
+    private static double logDensitySortingAges(TimeTree timeTree, double theta) {
+        double[] ages = new double[timeTree.n() - 1];
+        int i = 0;
+        for (TimeTreeNode node : timeTree.getNodes()) {
+            if (!node.isLeaf()) ages[i++] = node.getAge();
+        }
+        Arrays.sort(ages);
+        double age = 0;
+        int k = timeTree.n();
+        double logDensity = 0;
+        for (double age1 : ages) {
+            // k * (k - 1) overflowed int beyond 46341 taxa
+            logDensity -= k * (k - 1.0) * (age1 - age) / (2 * theta);
+            age = age1;
+            k -= 1;
+        }
+        logDensity -= (timeTree.n() - 1) * Math.log(theta);
+        return logDensity;
+    }
+
+    /**
+     * Benchmark the log density on cached intervals against sorting the node ages on every call,
+     * evaluating the same tree with different theta as an MCMC proposal on theta would.
+     */
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        int reps = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+
+        Coalescent coalescent = new Coalescent(new Value<>("theta", 1.0), new Value<>("n", n), null);
+        TimeTree tree = coalescent.sample().value();
+
+        for (int round = 0; round < 2; round++) {
+            double sum1 = 0;
+            long start = System.nanoTime();
+            for (int r = 0; r < reps; r++) {
+                sum1 += logDensitySortingAges(tree, 1.0 + r * 0.01);
+            }
+            long sortTime = System.nanoTime() - start;
+
+            double sum2 = 0;
+            start = System.nanoTime();
+            for (int r = 0; r < reps; r++) {
+                sum2 += logDensity(tree.getCoalescentIntervals(), 1.0 + r * 0.01);
+            }
+            long cachedTime = System.nanoTime() - start;
+
+            System.out.println("n = " + n + ", " + reps + " evaluations: sorting ages " + sortTime / 1e6 +
+                    " ms, cached intervals " + cachedTime / 1e6 + " ms, difference " + Math.abs(sum1 - sum2));
+        }
+    }
+}
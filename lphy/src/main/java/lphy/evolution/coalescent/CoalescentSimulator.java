@@ -0,0 +1,98 @@
+package lphy.evolution.coalescent;
+
+import lphy.evolution.tree.TimeTreeNode;
+import org.apache.commons.math3.random.RandomGenerator;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Simulates a coalescent genealogy with piecewise constant population sizes and time-stamped leaves,
+ * shared by {@link Coalescent}, {@link SerialCoalescent} and {@link SkylineCoalescent}.
+ * The active lineages are kept in a preallocated array, and a lineage is removed by moving the last one into its place,
+ * so each coalescent event takes constant time.
+ * Leaves older than the present join from a queue sorted once by age.
+ * Apart from that sort, which is linear when the leaves are already in age order (e.g. all at the present),
+ * the cost of a simulation grows linearly with the number of leaves.
+ */
+public class CoalescentSimulator {
+
+    private static final Comparator<TimeTreeNode> BY_AGE = Comparator.comparingDouble(TimeTreeNode::getAge);
+
+    private final RandomGenerator random;
+
+    public CoalescentSimulator(RandomGenerator random) {
+        this.random = random;
+    }
+
+    /**
+     * @param leaves the leaf nodes, which are not modified other than being given a parent.
+     * @param theta  the population size, possibly scaled to mutations or calendar units.
+     * @return the root of the genealogy.
+     */
+    public TimeTreeNode simulate(List<TimeTreeNode> leaves, double theta) {
+        double[] thetas = new double[Math.max(leaves.size() - 1, 0)];
+        Arrays.fill(thetas, theta);
+        return simulate(leaves, thetas);
+    }
+
+    /**
+     * @param leaves the leaf nodes, which are not modified other than being given a parent.
+     * @param thetas the population size of each coalescent interval, ordered from present to past,
+     *               which must have one value per coalescent event, i.e. one less than the number of leaves.
+     * @return the root of the genealogy.
+     */
+    public TimeTreeNode simulate(List<TimeTreeNode> leaves, double[] thetas) {
+        int n = leaves.size();
+        if (n < 1) throw new IllegalArgumentException("The coalescent requires at least one leaf!");
+        if (thetas.length != n - 1)
+            throw new IllegalArgumentException("Expecting " + (n - 1) + " population sizes, one for each coalescent event, but got " + thetas.length);
+
+        // the arrival queue, youngest first
+        TimeTreeNode[] queue = leaves.toArray(new TimeTreeNode[0]);
+        Arrays.sort(queue, BY_AGE);
+
+        TimeTreeNode[] active = new TimeTreeNode[n];
+        int k = 0;
+        int next = 0;
+        int event = 0;
+        double time = 0.0;
+
+        while (next < n && queue[next].getAge() <= time) {
+            active[k++] = queue[next++];
+        }
+
+        while (k + (n - next) > 1) {
+            if (k < 2) {
+                time = queue[next].getAge();
+            } else {
+                // draw next time
+                double rate = (k * (k - 1.0)) / (thetas[event] * 2.0);
+                double x = -Math.log(random.nextDouble()) / rate;
+                time += x;
+
+                if (next < n && time > queue[next].getAge()) {
+                    time = queue[next].getAge();
+                } else {
+                    // do coalescence
+                    int i = random.nextInt(k);
+                    TimeTreeNode a = active[i];
+                    active[i] = active[--k];
+                    int j = random.nextInt(k);
+                    TimeTreeNode b = active[j];
+                    active[j] = active[--k];
+
+                    active[k++] = new TimeTreeNode(time, new TimeTreeNode[]{a, b});
+                    event += 1;
+                }
+            }
+
+            while (next < n && queue[next].getAge() == time) {
+                active[k++] = queue[next++];
+            }
+        }
+
+        return active[0];
+    }
+}
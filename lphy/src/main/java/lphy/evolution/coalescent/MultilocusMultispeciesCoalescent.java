@@ -0,0 +1,63 @@
+package lphy.evolution.coalescent;
+
+import lphy.evolution.Taxa;
+import lphy.evolution.tree.TimeTree;
+import lphy.graphicalModel.*;
+
+import java.util.SortedMap;
+
+import static lphy.core.distributions.DistributionConstants.nParamName;
+import static lphy.evolution.coalescent.CoalescentConstants.thetaParamName;
+import static lphy.evolution.tree.TaxaConditionedTreeGenerator.taxaParamName;
+
+/**
+ * The gene trees of many independent loci under the same {@link MultispeciesCoalescent},
+ * simulated in one batch instead of through a vectorized distribution with one component per locus.
+ * @see MultispeciesCoalescent#sampleLoci(int)
+ */
+public class MultilocusMultispeciesCoalescent implements GenerativeDistribution<TimeTree[]> {
+
+    public static final String numLociParamName = "numLoci";
+
+    private final MultispeciesCoalescent multispeciesCoalescent;
+    private Value<Integer> numLoci;
+
+    public MultilocusMultispeciesCoalescent(@ParameterInfo(name = thetaParamName, description = "effective population sizes, one for each species (both extant and ancestral).") Value<Double[]> theta,
+                                            @ParameterInfo(name = nParamName, description = "the number of sampled taxa in the gene tree for each extant species.", optional = true) Value<Integer[]> n,
+                                            @ParameterInfo(name = taxaParamName, description = "the taxa for the gene tree, with species to define the mapping.", optional = true) Value<Taxa> taxa,
+                                            @ParameterInfo(name = MultispeciesCoalescent.SParamName, description = "the species tree. ") Value<TimeTree> S,
+                                            @ParameterInfo(name = numLociParamName, description = "the number of loci, each with an independent gene tree.") Value<Integer> numLoci) {
+        multispeciesCoalescent = new MultispeciesCoalescent(theta, n, taxa, S);
+        this.numLoci = numLoci;
+        if (numLoci.value() < 1)
+            throw new IllegalArgumentException(numLociParamName + " must be at least 1, but was " + numLoci.value());
+    }
+
+    @GeneratorInfo(name = "MultispeciesCoalescent",
+            description = "The multispecies coalescent gene trees of numLoci independent loci, given the species tree. " +
+                    "The loci are simulated in parallel, sharing one traversal of the species tree.")
+    public RandomVariable<TimeTree[]> sample() {
+        return new RandomVariable<>(null, multispeciesCoalescent.sampleLoci(numLoci.value()), this);
+    }
+
+    @Override
+    public SortedMap<String, Value> getParams() {
+        SortedMap<String, Value> map = multispeciesCoalescent.getParams();
+        map.put(numLociParamName, numLoci);
+        return map;
+    }
+
+    @Override
+    public void setParam(String paramName, Value value) {
+        if (paramName.equals(numLociParamName)) numLoci = value;
+        else multispeciesCoalescent.setParam(paramName, value);
+    }
+
+    public String toString() {
+        return getName();
+    }
+
+    public Value<Integer> getNumLoci() {
+        return numLoci;
+    }
+}
@@ -2,13 +2,17 @@ package lphy.evolution.coalescent;
 
 import lphy.evolution.Taxa;
 import lphy.evolution.Taxon;
+import lphy.evolution.tree.LCAIndex;
 import lphy.evolution.tree.TimeTree;
 import lphy.evolution.tree.TimeTreeNode;
+import lphy.evolution.tree.TimeTreeTraversal;
 import lphy.core.distributions.Utils;
 import lphy.graphicalModel.*;
+import org.apache.commons.math3.random.MersenneTwister;
 import org.apache.commons.math3.random.RandomGenerator;
 
 import java.util.*;
+import java.util.stream.IntStream;
 
 import static lphy.core.distributions.DistributionConstants.nParamName;
 import static lphy.evolution.coalescent.CoalescentConstants.thetaParamName;
@@ -22,7 +26,6 @@ public class MultispeciesCoalescent implements GenerativeDistribution {
     public static final String SParamName = "S";
     private Value<Double[]> theta;
     private Value<Integer[]> n;
-    private Value<Integer> numLoci;
     private Value<Taxa> taxa;
     private Value<TimeTree> S;
 
@@ -57,25 +60,30 @@ public class MultispeciesCoalescent implements GenerativeDistribution {
 
         geneTreeTaxa = createGeneTreeTaxa();
 
-        return new RandomVariable<>(null, simulateGeneTree(), this);
+        return new RandomVariable<>(null, new GeneTreeSimulator().simulate(random), this);
     }
 
-    private TimeTree simulateGeneTree() {
-        TimeTree geneTree = new TimeTree(geneTreeTaxa);
+    /**
+     * Simulate the gene trees of many loci in parallel.
+     * The species tree traversal and the population size of each species branch are looked up once for all loci,
+     * and each locus draws from its own random number generator, seeded in turn from this distribution's generator,
+     * so the result does not depend on the number of threads.
+     * @param numLoci the number of gene trees.
+     * @return the independent gene trees.
+     */
+    public TimeTree[] sampleLoci(int numLoci) {
 
-        Map<String, List<TimeTreeNode>> activeNodes = new TreeMap<>();
-
-        createActiveNodes(activeNodes, geneTree);
-
-        List<TimeTreeNode> root = doSpeciesTreeBranch(S.value().getRoot(), activeNodes, theta.value());
+        geneTreeTaxa = createGeneTreeTaxa();
+        GeneTreeSimulator simulator = new GeneTreeSimulator();
 
-        if (root.size() != 1) {
-            throw new RuntimeException("Returned multiple gene roots from " + S.value().getRoot());
+        long[] seeds = new long[numLoci];
+        for (int i = 0; i < numLoci; i++) {
+            seeds[i] = random.nextLong();
         }
 
-        geneTree.setRoot(root.get(0));
-
-        return geneTree;
+        TimeTree[] geneTrees = new TimeTree[numLoci];
+        IntStream.range(0, numLoci).parallel().forEach(i -> geneTrees[i] = simulator.simulate(new MersenneTwister(seeds[i])));
+        return geneTrees;
     }
 
     public Taxa getGeneTreeTaxa() {
@@ -101,6 +109,7 @@ public class MultispeciesCoalescent implements GenerativeDistribution {
                 for (int k = 0; k < n.value()[i]; k++) {
                     taxonList.add(new Taxon(node.getId() + separator + k, node.getId()+"", node.getAge()));
                 }
+                i += 1;
             }
             taxonArray = taxonList.toArray(taxonArray);
         } else if (taxa != null) {
@@ -129,30 +138,93 @@ public class MultispeciesCoalescent implements GenerativeDistribution {
         return true;
     }
 
-    private void createActiveNodes(Map<String, List<TimeTreeNode>> activeNodes, TimeTree geneTree) {
-        for (Taxon taxon : geneTreeTaxa.getTaxonArray()) {
-            List<TimeTreeNode> taxaInSp = activeNodes.computeIfAbsent(taxon.getSpecies(), k -> new ArrayList<>());
-            taxaInSp.add(new TimeTreeNode(taxon, geneTree));
+    /**
+     * The species tree in post-order with the population size of each branch and the gene taxa of each extant species,
+     * which can simulate gene trees from several threads.
+     */
+    private class GeneTreeSimulator {
+
+        final Taxa taxa = geneTreeTaxa;
+        final Taxon[] taxonArray = taxa.getTaxonArray();
+
+        // indexed by position in the post-order of the species tree
+        final int[][] children;
+        final double[] ages;
+        final double[] parentAges;
+        final double[] thetas;
+        final int[][] geneTaxa;
+
+        GeneTreeSimulator() {
+            List<TimeTreeNode> postOrder = TimeTreeTraversal.getPostOrder(S.value().getRoot());
+            int size = postOrder.size();
+            children = new int[size][];
+            ages = new double[size];
+            parentAges = new double[size];
+            thetas = new double[size];
+            geneTaxa = new int[size][];
+
+            Map<String, List<Integer>> taxaBySpecies = new HashMap<>();
+            for (int i = 0; i < taxonArray.length; i++) {
+                taxaBySpecies.computeIfAbsent(taxonArray[i].getSpecies(), k -> new ArrayList<>()).add(i);
+            }
+            Map<TimeTreeNode, Integer> position = new IdentityHashMap<>();
+            Double[] allThetas = theta.value();
+
+            for (int p = 0; p < size; p++) {
+                TimeTreeNode spNode = postOrder.get(p);
+                position.put(spNode, p);
+
+                children[p] = new int[spNode.getChildCount()];
+                for (int c = 0; c < children[p].length; c++) {
+                    children[p][c] = position.get(spNode.getChildren().get(c));
+                }
+                ages[p] = spNode.getAge();
+                parentAges[p] = spNode.getParent() == null ? Double.POSITIVE_INFINITY : spNode.getParent().getAge();
+                thetas[p] = allThetas[spNode.getIndex()];
+
+                List<Integer> taxaInSp = spNode.isLeaf() ? taxaBySpecies.get(spNode.getId()) : null;
+                geneTaxa[p] = taxaInSp == null ? new int[0] : taxaInSp.stream().mapToInt(Integer::intValue).toArray();
+            }
         }
-    }
 
-    private List<TimeTreeNode> doSpeciesTreeBranch(TimeTreeNode spNode, Map<String, List<TimeTreeNode>> allLeafActiveNodes, Double[] allThetas) {
+        TimeTree simulate(RandomGenerator random) {
+            TimeTree geneTree = new TimeTree(taxa);
+
+            List<List<TimeTreeNode>> lineages = new ArrayList<>(ages.length);
+            for (int p = 0; p < ages.length; p++) {
+
+                List<TimeTreeNode> activeNodes;
+                if (children[p].length > 0) {
+                    // reuse the list of the first child
+                    activeNodes = lineages.get(children[p][0]);
+                    for (int c = 1; c < children[p].length; c++) {
+                        activeNodes.addAll(lineages.get(children[p][c]));
+                    }
+                } else {
+                    activeNodes = new ArrayList<>(geneTaxa[p].length);
+                    for (int i : geneTaxa[p]) {
+                        activeNodes.add(new TimeTreeNode(taxonArray[i], geneTree));
+                    }
+                }
+                lineages.add(activeNodes);
 
-        List<TimeTreeNode> activeNodes;
-        if (!spNode.isLeaf()) {
-            activeNodes = new ArrayList<>();
-            for (TimeTreeNode child : spNode.getChildren()) {
-                activeNodes.addAll(doSpeciesTreeBranch(child, allLeafActiveNodes, allThetas));
+                doSpeciesTreeBranch(activeNodes, ages[p], parentAges[p], thetas[p], random);
             }
-        } else {
-            activeNodes = allLeafActiveNodes.get(spNode.getId());
-            if (activeNodes == null) activeNodes = new ArrayList<>();
+
+            List<TimeTreeNode> root = lineages.get(ages.length - 1);
+            if (root.size() != 1) {
+                throw new RuntimeException("Returned multiple gene roots from " + S.value().getRoot());
+            }
+
+            geneTree.setRoot(root.get(0));
+
+            return geneTree;
         }
+    }
 
-        double time = spNode.getAge();
-        double theta = allThetas[spNode.getIndex()];
+    private static void doSpeciesTreeBranch(List<TimeTreeNode> activeNodes, double time, double parentAge, double theta, RandomGenerator random) {
 
-        while (activeNodes.size() > 1 && (spNode.getParent() == null || time < spNode.getParent().getAge())) {
+        while (activeNodes.size() > 1 && time < parentAge) {
 
             int k = activeNodes.size();
             double rate = (k * (k - 1.0)) / (theta * 2.0);
@@ -161,21 +233,104 @@ public class MultispeciesCoalescent implements GenerativeDistribution {
             double x = -Math.log(random.nextDouble()) / rate;
             time += x;
 
-            if (spNode.getParent() == null || time < spNode.getParent().getAge()) {
-                TimeTreeNode a = activeNodes.remove(random.nextInt(activeNodes.size()));
-                TimeTreeNode b = activeNodes.remove(random.nextInt(activeNodes.size()));
+            if (time < parentAge) {
+                TimeTreeNode a = removeRandomNode(activeNodes, random);
+                TimeTreeNode b = removeRandomNode(activeNodes, random);
                 TimeTreeNode parent = new TimeTreeNode(time, new TimeTreeNode[]{a, b});
                 activeNodes.add(parent);
             }
         }
+    }
 
-        return activeNodes;
+    // constant time, by moving the last node into the place of the removed one
+    private static TimeTreeNode removeRandomNode(List<TimeTreeNode> nodes, RandomGenerator random) {
+        int i = random.nextInt(nodes.size());
+        int last = nodes.size() - 1;
+        TimeTreeNode node = nodes.get(i);
+        nodes.set(i, nodes.get(last));
+        nodes.remove(last);
+        return node;
     }
 
+    /**
+     * Each gene tree node is mapped to the species branch it coalesces in, which is the MRCA of the species branches
+     * of its children in the species tree, found with the {@link LCAIndex} of the species tree,
+     * or the first ancestor of that MRCA whose branch spans the age of the node.
+     * @return the log probability density of the gene tree given the species tree and the population sizes,
+     *         or negative infinity if a gene tree node is younger than the species it has to be in.
+     */
     public double logDensity(Object timeTreeObject) {
 
-        // TODO
-        return 0.0;
+        TimeTree geneTree = (TimeTree) timeTreeObject;
+        LCAIndex speciesIndex = S.value().getLCAIndex();
+        Double[] allThetas = theta.value();
+
+        Map<String, String> speciesByTaxon = new HashMap<>();
+        for (Taxon taxon : geneTree.getTaxa().getTaxonArray()) {
+            speciesByTaxon.put(taxon.getName(), taxon.getSpecies());
+        }
+
+        // the species branch of each gene tree node, the gene lineages starting in each extant species,
+        // and the coalescent times in each species branch
+        Map<TimeTreeNode, TimeTreeNode> speciesBranch = new IdentityHashMap<>();
+        Map<TimeTreeNode, Integer> geneLeafCounts = new IdentityHashMap<>();
+        Map<TimeTreeNode, List<Double>> coalescentTimes = new IdentityHashMap<>();
+        List<TimeTreeNode> childBranches = new ArrayList<>();
+
+        for (TimeTreeNode geneNode : TimeTreeTraversal.getPostOrder(geneTree.getRoot())) {
+            TimeTreeNode spNode;
+            if (geneNode.isLeaf()) {
+                String species = speciesByTaxon.getOrDefault(geneNode.getId(), geneNode.getId());
+                spNode = speciesIndex.getLeafNode(species);
+                if (spNode == null)
+                    throw new IllegalArgumentException("Species " + species + " of gene " + geneNode.getId() + " is not found in the species tree!");
+                geneLeafCounts.merge(spNode, 1, Integer::sum);
+            } else {
+                childBranches.clear();
+                for (TimeTreeNode child : geneNode.getChildren()) {
+                    childBranches.add(speciesBranch.get(child));
+                }
+                spNode = speciesIndex.getMRCA(childBranches);
+                if (geneNode.getAge() < spNode.getAge()) return Double.NEGATIVE_INFINITY;
+                while (!spNode.isRoot() && spNode.getParent().getAge() <= geneNode.getAge()) {
+                    spNode = spNode.getParent();
+                }
+                // a single-child node is not a coalescence
+                if (geneNode.getChildCount() > 1) {
+                    coalescentTimes.computeIfAbsent(spNode, k -> new ArrayList<>()).add(geneNode.getAge());
+                }
+            }
+            speciesBranch.put(geneNode, spNode);
+        }
+
+        double logP = 0.0;
+        Map<TimeTreeNode, Integer> lineagesOut = new IdentityHashMap<>();
+        for (TimeTreeNode spNode : TimeTreeTraversal.getPostOrder(S.value().getRoot())) {
+            int k = 0;
+            if (spNode.isLeaf()) {
+                k = geneLeafCounts.getOrDefault(spNode, 0);
+            } else {
+                for (TimeTreeNode child : spNode.getChildren()) {
+                    k += lineagesOut.get(child);
+                }
+            }
+            double theta = allThetas[spNode.getIndex()];
+            double time = spNode.getAge();
+
+            List<Double> times = coalescentTimes.getOrDefault(spNode, Collections.emptyList());
+            Collections.sort(times);
+            for (double t : times) {
+                logP -= (k * (k - 1.0)) / (theta * 2.0) * (t - time) + Math.log(theta);
+                k -= 1;
+                time = t;
+            }
+            // the lineages that did not coalesce before the top of the branch
+            if (!spNode.isRoot()) {
+                logP -= (k * (k - 1.0)) / (theta * 2.0) * (spNode.getParent().getAge() - time);
+            }
+            lineagesOut.put(spNode, k);
+        }
+        return logP;
     }
 
     @Override
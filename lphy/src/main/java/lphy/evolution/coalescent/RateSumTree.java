@@ -0,0 +1,56 @@
+package lphy.evolution.coalescent;
+
+/**
+ * A complete binary tree of partial sums over a fixed number of non-negative rates.
+ * Setting a rate and selecting an index in proportion to the rates both take O(log n).
+ * Every internal sum is recomputed from its two children rather than adjusted by a difference,
+ * so rounding errors do not accumulate over many updates.
+ */
+class RateSumTree {
+
+    // the first leaf, leaves are stored in [capacity, 2 * capacity) and the root sum at 1
+    private final int capacity;
+    private final double[] sums;
+
+    RateSumTree(int size) {
+        int c = 1;
+        while (c < size) c <<= 1;
+        capacity = c;
+        sums = new double[2 * capacity];
+    }
+
+    void set(int i, double rate) {
+        int p = i + capacity;
+        sums[p] = rate;
+        for (p >>= 1; p > 0; p >>= 1) {
+            sums[p] = sums[2 * p] + sums[2 * p + 1];
+        }
+    }
+
+    double get(int i) {
+        return sums[i + capacity];
+    }
+
+    double total() {
+        return sums[1];
+    }
+
+    /**
+     * @param u a value in [0, total())
+     * @return the index i such that the rates before i sum to at most u, and the rates up to and including i sum to more than u.
+     */
+    int select(double u) {
+        int p = 1;
+        while (p < capacity) {
+            int left = 2 * p;
+            // never step into a subtree with no rate because of rounding
+            if (u < sums[left] || sums[left + 1] <= 0.0) {
+                p = left;
+            } else {
+                u -= sums[left];
+                p = left + 1;
+            }
+        }
+        return p - capacity;
+    }
+}
@@ -7,7 +7,6 @@ import lphy.evolution.tree.TimeTree;
 import lphy.evolution.tree.TimeTreeNode;
 import lphy.graphicalModel.*;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -67,63 +66,16 @@ public class SerialCoalescent extends TaxaConditionedTreeGenerator {
         TimeTree tree = new TimeTree();
 
         List<TimeTreeNode> leafNodes = createLeafTaxa(tree);
-        List<TimeTreeNode> activeNodes = new ArrayList<>();
-        List<TimeTreeNode> leavesToBeAdded = new ArrayList<>();
 
-        double time = 0.0;
-
-        for (TimeTreeNode leaf : leafNodes) {
-            if (leaf.getAge() <= time) {
-                activeNodes.add(leaf);
-            } else {
-                leavesToBeAdded.add(leaf);
-            }
-        }
-
-        leavesToBeAdded.sort((o1, o2) -> Double.compare(o2.getAge(), o1.getAge())); // REVERSE ORDER - youngest age at end of list
-
-        double popSize = doubleValue(theta);
-        while ((activeNodes.size() + leavesToBeAdded.size()) > 1) {
-            int k = activeNodes.size();
-
-            if (k == 1) {
-                time = leavesToBeAdded.get(leavesToBeAdded.size() - 1).getAge();
-            } else {
-                // draw next time;
-                double rate = (k * (k - 1.0)) / (popSize * 2.0);
-                double x = -Math.log(random.nextDouble()) / rate;
-                time += x;
-
-                if (leavesToBeAdded.size() > 0 && time > leavesToBeAdded.get(leavesToBeAdded.size() - 1).getAge()) {
-                    time = leavesToBeAdded.get(leavesToBeAdded.size() - 1).getAge();
-                } else {
-
-                    // do coalescence
-                    TimeTreeNode a = activeNodes.remove(random.nextInt(activeNodes.size()));
-                    TimeTreeNode b = activeNodes.remove(random.nextInt(activeNodes.size()));
-
-                    TimeTreeNode parent = new TimeTreeNode(time, new TimeTreeNode[]{a, b});
-                    activeNodes.add(parent);
-                }
-            }
-
-            while (leavesToBeAdded.size() > 0 && leavesToBeAdded.get(leavesToBeAdded.size() - 1).getAge() == time) {
-                TimeTreeNode youngest = leavesToBeAdded.remove(leavesToBeAdded.size() - 1);
-                activeNodes.add(youngest);
-            }
-        }
-
-        tree.setRoot(activeNodes.get(0));
+        TimeTreeNode root = new CoalescentSimulator(random).simulate(leafNodes, doubleValue(theta));
+        tree.setRoot(root);
 
         return new RandomVariable<>("\u03C8", tree, this);
     }
 
     @Override
     public double logDensity(TimeTree timeTree) {
-
-        // TODO!
-
-        return 0.0;
+        return CoalescentLikelihood.logDensity(timeTree.getCoalescentIntervals(), doubleValue(theta));
     }
 
     @Override
@@ -7,8 +7,6 @@ import lphy.evolution.tree.TimeTree;
 import lphy.evolution.tree.TimeTreeNode;
 import lphy.graphicalModel.*;
 
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
@@ -98,88 +96,37 @@ public class SkylineCoalescent extends TaxaConditionedTreeGenerator {
         TimeTree tree = new TimeTree(getTaxa());
 
         List<TimeTreeNode> leafNodes = createLeafTaxa(tree);
-        List<TimeTreeNode> activeNodes = new ArrayList<>();
-        List<TimeTreeNode> leavesToBeAdded = new ArrayList<>();
 
-        double time = 0.0;
+        TimeTreeNode root = new CoalescentSimulator(random).simulate(leafNodes, getIntervalThetas());
+        tree.setRoot(root);
 
-        for (TimeTreeNode leaf : leafNodes) {
-            if (leaf.getAge() <= time) {
-                activeNodes.add(leaf);
-            } else {
-                leavesToBeAdded.add(leaf);
-            }
-        }
-
-        leavesToBeAdded.sort(
-                (o1, o2) -> Double.compare(o2.getAge(), o1.getAge())); // REVERSE ORDER - youngest age at end of list
+        return new RandomVariable<>("\u03C8", tree, this);
+    }
 
+    /**
+     * @return the population size of each coalescent interval, ordered from present to past,
+     *         expanded from the groups of intervals, for both simulation and the log density.
+     */
+    private double[] getIntervalThetas() {
         Double[] theta = this.theta.value();
-        int thetaIndex = 0;
-        int groupIndex = 0;
-        int countWithinGroup = 0;
-        while ((activeNodes.size() + leavesToBeAdded.size()) > 1) {
-            int k = activeNodes.size();
-
-            if (k == 1) {
-                time = leavesToBeAdded.get(leavesToBeAdded.size() - 1).getAge();
-            } else {
-
-                // draw next time;
-                double rate = (k * (k - 1.0)) / (theta[thetaIndex] * 2.0);
-                double x = -Math.log(random.nextDouble()) / rate;
-                time += x;
-
-                if (leavesToBeAdded.size() > 0 && time > leavesToBeAdded.get(leavesToBeAdded.size() - 1).getAge()) {
-                    time = leavesToBeAdded.get(leavesToBeAdded.size() - 1).getAge();
-                } else {
-
-                    // do coalescence
-                    TimeTreeNode a = activeNodes.remove(random.nextInt(activeNodes.size()));
-                    TimeTreeNode b = activeNodes.remove(random.nextInt(activeNodes.size()));
-
-                    TimeTreeNode parent = new TimeTreeNode(time, new TimeTreeNode[]{a, b});
-                    activeNodes.add(parent);
-                    if (groupSizes != null) {
-                        int groupSize = groupSizes.value()[groupIndex];
-                        if (countWithinGroup == (groupSize - 1)) {
-                            groupIndex += 1;
-                            countWithinGroup = 0;
-                            thetaIndex += 1;
-                        } else {
-                            countWithinGroup += 1;
-                        }
-
-                    } else {
-                        thetaIndex += 1;
-                    }
-                }
-            }
-
-            while (leavesToBeAdded.size() > 0 && leavesToBeAdded.get(leavesToBeAdded.size() - 1).getAge() == time) {
-                TimeTreeNode youngest = leavesToBeAdded.remove(leavesToBeAdded.size() - 1);
-                activeNodes.add(youngest);
+        double[] thetas = new double[n() - 1];
+        int i = 0;
+        for (int group = 0; group < theta.length; group++) {
+            int groupSize = groupSizes == null ? 1 : groupSizes.value()[group];
+            for (int j = 0; j < groupSize; j++) {
+                thetas[i++] = theta[group];
             }
         }
-
-        tree.setRoot(activeNodes.get(0));
-        if (thetaIndex != theta.length) {
-            throw new AssertionError("Programmer error in indexing " + thetaIndex +
-                    " the theta array " + theta.length + " during simulation!");
-        }
-        if (groupSizes != null && (countWithinGroup != 0 || groupIndex != groupSizes.value().length)) {
-            throw new AssertionError("Programmer error in indexing the groupSizes array during simulation." + countWithinGroup + " " + groupIndex + Arrays.toString(groupSizes.value()));
+        if (i != thetas.length) {
+            throw new AssertionError("Programmer error in indexing " + i +
+                    " the theta array " + thetas.length + "!");
         }
-
-        return new RandomVariable<>("\u03C8", tree, this);
+        return thetas;
     }
 
     @Override
     public double logDensity(TimeTree timeTree) {
-
-        // TODO!
-
-        return 0.0;
+        return CoalescentLikelihood.logDensity(timeTree.getCoalescentIntervals(), getIntervalThetas());
     }
 
     @Override
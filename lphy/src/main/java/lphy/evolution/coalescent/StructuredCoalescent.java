@@ -7,7 +7,6 @@ import lphy.evolution.tree.TimeTree;
 import lphy.evolution.tree.TimeTreeNode;
 import lphy.graphicalModel.*;
 import lphy.graphicalModel.types.DoubleArray2DValue;
-import org.apache.commons.math3.random.RandomGenerator;
 import org.apache.commons.math3.util.CombinatoricsUtils;
 
 import java.util.*;
@@ -35,8 +34,6 @@ public class StructuredCoalescent extends TaxaConditionedTreeGenerator {
     private Value<Object[]> demes;
     private Value<Boolean> sort;
 
-    RandomGenerator random;
-
     // convert demes String/Integer into String for sorting if required,
     // use demeIndex which is the key of reverseDemeToIndex.
     // the index of List is the key of reverseDemeToIndex.
@@ -44,15 +41,7 @@ public class StructuredCoalescent extends TaxaConditionedTreeGenerator {
     private Map<Integer, String> reverseDemeToIndex;
 
     public static int countMigrations(TimeTree timeTree) {
-        int migrationCount = 0;
-        for (TimeTreeNode node : timeTree.getNodes()) {
-            if (node.getChildCount() == 1) {
-                if (!node.getMetaData(populationLabel).equals(node.getChildren().get(0).getMetaData(populationLabel))) {
-                    migrationCount += 1;
-                }
-            }
-        }
-        return migrationCount;
+        return timeTree.getStatistics().getMigrationCount(populationLabel);
     }
 
     enum EventType {coalescent, migration}
@@ -254,66 +243,110 @@ public class StructuredCoalescent extends TaxaConditionedTreeGenerator {
         return (Integer) demeIndex;
     }
 
+    /**
+     * An event-driven simulation that keeps the total event rate of each deme in a {@link RateSumTree},
+     * so an event only updates the rates of the one or two demes it changes,
+     * and the deme of the next event is drawn in O(log D) for D demes.
+     * Migration destinations are drawn from the non-zero migration rates of the deme only.
+     */
     private List<TimeTreeNode> simulateStructuredCoalescentForest(TimeTree tree, List<List<TimeTreeNode>> activeNodes, List<TimeTreeNode> leavesToBeAdded, Double[][] popSizesMigrationRates, double stopTime) {
 
-        //diagonals are coalescent rates, off-diagonals are migration rates
-        double[][] rates = new double[activeNodes.size()][activeNodes.size()];
-        double totalRate = populateRateMatrix(activeNodes, popSizesMigrationRates, rates);
+        int demeCount = activeNodes.size();
+        double[] popSizes = new double[demeCount];
+        for (int i = 0; i < demeCount; i++) {
+            popSizes[i] = popSizesMigrationRates[i][i];
+        }
+
+        // sparse per-lineage migration rates, as cumulative sums over the destinations of each deme
+        int[][] destinations = new int[demeCount][];
+        double[][] cumulativeMigrationRates = new double[demeCount][];
+        for (int i = 0; i < demeCount; i++) {
+            int count = 0;
+            for (int j = 0; j < demeCount; j++) {
+                if (j != i && popSizesMigrationRates[i][j] > 0.0) count += 1;
+            }
+            destinations[i] = new int[count];
+            cumulativeMigrationRates[i] = new double[count];
+            double sum = 0.0;
+            int c = 0;
+            for (int j = 0; j < demeCount; j++) {
+                if (j != i && popSizesMigrationRates[i][j] > 0.0) {
+                    // off-diagonal migration rates are in units of expected migrants per generation (thus division by popSizei)
+                    sum += popSizesMigrationRates[i][j] * popSizes[j] / popSizes[i];
+                    destinations[i][c] = j;
+                    cumulativeMigrationRates[i][c] = sum;
+                    c += 1;
+                }
+            }
+        }
+
+        RateSumTree demeRates = new RateSumTree(demeCount);
+        int activeCount = 0;
+        for (int i = 0; i < demeCount; i++) {
+            updateDemeRate(demeRates, i, activeNodes.get(i).size(), popSizes, cumulativeMigrationRates);
+            activeCount += activeNodes.get(i).size();
+        }
 
         double time = 0.0;
 
-        int nodeNumber = getTotalNodeCount(activeNodes);
+        int nodeNumber = activeCount;
+
+        while (time < stopTime && (activeCount + leavesToBeAdded.size()) > 1) {
 
-        while (time < stopTime && (getTotalNodeCount(activeNodes)+leavesToBeAdded.size()) > 1) {
-            int k = getTotalNodeCount(activeNodes);
+            double totalRate = demeRates.total();
 
-            if (k == 1) {
+            if (activeCount == 1 || totalRate <= 0.0) {
+                if (leavesToBeAdded.isEmpty())
+                    throw new RuntimeException("The remaining " + activeCount + " lineages can never coalesce, " +
+                            "because their demes are not connected by migration!");
                 time = leavesToBeAdded.get(leavesToBeAdded.size() - 1).getAge();
             } else {
-                SCEvent event = selectRandomEvent(rates, totalRate, time);
+                double eventTime = time - Math.log(random.nextDouble()) / totalRate;
 
                 // if event passes the next node to be added then update the time and try again
-                if (leavesToBeAdded.size() > 0 && event.time > leavesToBeAdded.get(leavesToBeAdded.size() - 1).getAge()) {
+                if (leavesToBeAdded.size() > 0 && eventTime > leavesToBeAdded.get(leavesToBeAdded.size() - 1).getAge()) {
                     time = leavesToBeAdded.get(leavesToBeAdded.size() - 1).getAge();
                 } else {
+                    time = eventTime;
 
-                    if (event.type == EventType.coalescent) {
-
-                        //System.out.println("doing a coalescent event in population " + event.pop + " which has " + nodes.get(event.pop).size() + " nodes.");
+                    int pop = demeRates.select(random.nextDouble() * totalRate);
+                    List<TimeTreeNode> lineages = activeNodes.get(pop);
+                    int sampleSize = lineages.size();
+                    double coalescentRate = coalescentRate(sampleSize, popSizes[pop]);
+                    double u = random.nextDouble() * demeRates.get(pop);
 
+                    // a deme without migration routes can only coalesce, even if rounding puts u past the coalescent rate
+                    if (u < coalescentRate || destinations[pop].length == 0) {
                         // coalescent
-                        TimeTreeNode node1 = selectRandomNode(activeNodes.get(event.pop));
-                        TimeTreeNode node2 = selectRandomNode(activeNodes.get(event.pop));
+                        TimeTreeNode node1 = drawRandomNode(lineages);
+                        TimeTreeNode node2 = drawRandomNode(lineages);
 
                         TimeTreeNode parent = new TimeTreeNode((String) null, tree);
                         parent.setIndex(nodeNumber);
-                        parent.setAge(event.time);
-                        parent.setMetaData(populationLabel, event.pop);
+                        parent.setAge(time);
+                        parent.setMetaData(populationLabel, pop);
                         parent.addChild(node1);
                         parent.addChild(node2);
 
-                        time = event.time;
-
-                        activeNodes.get(event.pop).add(parent);
-
+                        lineages.add(parent);
+                        activeCount -= 1;
+                        updateDemeRate(demeRates, pop, lineages.size(), popSizes, cumulativeMigrationRates);
                     } else {
                         // migration
+                        int toPop = selectDestination(destinations[pop], cumulativeMigrationRates[pop], (u - coalescentRate) / sampleSize);
 
-                        if (event.pop == event.toPop)
-                            throw new RuntimeException("migration must be between distinct populations");
-
-                        TimeTreeNode migrant = selectRandomNode(activeNodes.get(event.pop));
+                        TimeTreeNode migrant = drawRandomNode(lineages);
 
                         TimeTreeNode migrantsParent = new TimeTreeNode((String) null, tree);
                         migrantsParent.setIndex(nodeNumber);
-                        migrantsParent.setAge(event.time);
-                        migrantsParent.setMetaData(populationLabel, event.toPop);
+                        migrantsParent.setAge(time);
+                        migrantsParent.setMetaData(populationLabel, toPop);
 
                         migrantsParent.addChild(migrant);
 
-                        time = event.time;
-
-                        activeNodes.get(event.toPop).add(migrantsParent);
+                        activeNodes.get(toPop).add(migrantsParent);
+                        updateDemeRate(demeRates, pop, lineages.size(), popSizes, cumulativeMigrationRates);
+                        updateDemeRate(demeRates, toPop, activeNodes.get(toPop).size(), popSizes, cumulativeMigrationRates);
                     }
                     nodeNumber += 1;
                 }
@@ -321,9 +354,11 @@ public class StructuredCoalescent extends TaxaConditionedTreeGenerator {
 
             while (leavesToBeAdded.size() > 0 && leavesToBeAdded.get(leavesToBeAdded.size() - 1).getAge() == time) {
                 TimeTreeNode youngest = leavesToBeAdded.remove(leavesToBeAdded.size() - 1);
-                activeNodes.get((Integer)youngest.getMetaData(populationLabel)).add(youngest);
+                int pop = (Integer) youngest.getMetaData(populationLabel);
+                activeNodes.get(pop).add(youngest);
+                activeCount += 1;
+                updateDemeRate(demeRates, pop, activeNodes.get(pop).size(), popSizes, cumulativeMigrationRates);
             }
-            totalRate = populateRateMatrix(activeNodes, popSizesMigrationRates, rates);
         }
 
         List<TimeTreeNode> rootNodes = new ArrayList<>();
@@ -334,18 +369,27 @@ public class StructuredCoalescent extends TaxaConditionedTreeGenerator {
         return rootNodes;
     }
 
-    private int getTotalNodeCount(List<List<TimeTreeNode>> nodes) {
-        int count = 0;
-        for (List<TimeTreeNode> nodeList : nodes) {
-            count += nodeList.size();
-        }
-        return count;
+    private static double coalescentRate(int sampleSize, double popSize) {
+        return sampleSize < 2 ? 0.0 : sampleSize * (sampleSize - 1.0) / 2.0 / popSize;
     }
 
-    private TimeTreeNode selectRandomNode(List<TimeTreeNode> nodes) {
-        int index = Utils.getRandom().nextInt(nodes.size());
-        TimeTreeNode node = nodes.remove(index);
-        return node;
+    // the total rate of coalescence and migration out of a deme with the given number of lineages
+    private static void updateDemeRate(RateSumTree demeRates, int pop, int sampleSize, double[] popSizes, double[][] cumulativeMigrationRates) {
+        double[] cumulative = cumulativeMigrationRates[pop];
+        double migrationRate = cumulative.length == 0 ? 0.0 : sampleSize * cumulative[cumulative.length - 1];
+        demeRates.set(pop, coalescentRate(sampleSize, popSizes[pop]) + migrationRate);
+    }
+
+    // binary search for the destination whose cumulative rate first exceeds u
+    private static int selectDestination(int[] destinations, double[] cumulative, double u) {
+        int lo = 0;
+        int hi = cumulative.length - 1;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (u < cumulative[mid]) hi = mid;
+            else lo = mid + 1;
+        }
+        return destinations[lo];
     }
 
     SCEvent selectRandomEvent(double[][] rates, double totalRate, double time) {
@@ -366,6 +410,7 @@ public class StructuredCoalescent extends TaxaConditionedTreeGenerator {
         throw new RuntimeException();
     }
 
+    // the dense matrix of all event rates, which the simulation no longer rebuilds after every event
     static double populateRateMatrix(List<List<TimeTreeNode>> nodes, Double[][] popSizesMigrationRates, double[][] rates) {
 
         double totalRate = 0.0;
@@ -4,9 +4,9 @@ import lphy.evolution.Taxa;
 import lphy.evolution.alignment.ContinuousCharacterData;
 import lphy.evolution.tree.TimeTree;
 import lphy.evolution.tree.TimeTreeNode;
+import lphy.evolution.tree.TimeTreeTraversal;
 import lphy.core.distributions.Utils;
 import lphy.graphicalModel.*;
-import lphy.graphicalModel.types.DoubleValue;
 import org.apache.commons.math3.distribution.NormalDistribution;
 import org.apache.commons.math3.random.RandomGenerator;
 
@@ -102,36 +102,134 @@ public class PhyloBrownian implements GenerativeDistribution<ContinuousCharacter
         return "Continuous Character Data";
     }
 
-    private void fillIdMap(TimeTreeNode node, SortedMap<String, Integer> idMap) {
-        if (node.isLeaf()) {
-            Integer i = idMap.get(node.getId());
-            if (i == null) {
-                int nextValue = 0;
-                for (Integer j : idMap.values()) {
-                    if (j >= nextValue) nextValue = j + 1;
-                }
+    private void fillIdMap(TimeTreeNode root, SortedMap<String, Integer> idMap) {
+        int nextValue = 0;
+        for (Integer j : idMap.values()) {
+            if (j >= nextValue) nextValue = j + 1;
+        }
+        for (TimeTreeNode node : TimeTreeTraversal.getPreOrder(root)) {
+            if (node.isLeaf() && !idMap.containsKey(node.getId())) {
                 idMap.put(node.getId(), nextValue);
+                nextValue += 1;
+            }
+        }
+    }
+
+    // states are drawn in pre-order, each from the state of its parent
+    private void traverseTree(TimeTreeNode root, Value<Double> rootState, Map<String, Double> tipValues, double diffusionRate, Map<String, Integer> idMap) {
+        List<TimeTreeNode> nodes = TimeTreeTraversal.getPreOrder(root);
+        double[] nodeStates = new double[nodes.size()];
+
+        for (TimeTreeNode node : nodes) {
+            double nodeState;
+            if (node == root) {
+                nodeState = rootState.value();
+            } else {
+                TimeTreeNode parent = node.getParent();
+
+                nodeState = sampleNewState(nodeStates[parent.getIndex()], parent.getAge() - node.getAge(), node.getIndex());
             }
-        } else {
-            for (TimeTreeNode child : node.getChildren()) {
-                fillIdMap(child, idMap);
+            nodeStates[node.getIndex()] = nodeState;
+
+            if (node.isLeaf()) {
+                tipValues.put(node.getId(), nodeState);
             }
         }
     }
 
-    private void traverseTree(TimeTreeNode node, Value<Double> nodeState, Map<String, Double> tipValues, double diffusionRate, Map<String, Integer> idMap) {
-        if (node.isLeaf()) {
-            tipValues.put(node.getId(), nodeState.value());
-        } else {
-            for (TimeTreeNode child : node.getChildren()) {
+    /**
+     * The log density of the traits of the leaves given the root value, by Gaussian pruning in a single post-order traversal,
+     * so it takes O(n) time and memory for each trait instead of an n x n covariance matrix.
+     * Every column of the data is an independent trait, and missing (null) values are integrated out.
+     */
+    @Override
+    public double logDensity(ContinuousCharacterData data) {
+        TimeTree timeTree = tree.value();
+        List<TimeTreeNode> nodes = TimeTreeTraversal.getPostOrder(timeTree.getRoot());
+        int nchar = data.nchar();
 
-                double variance = diffusionRate * (node.getAge() - child.getAge());
+        Map<String, Integer> rows = new HashMap<>();
+        String[] names = data.getTaxa().getTaxaNames();
+        for (int i = 0; i < names.length; i++) {
+            rows.put(names[i], i);
+        }
 
-                double newState = sampleNewState(nodeState.value(), variance, child.getIndex());
+        // the partial likelihood of each node and trait as a function of the node's value x is exp(logScale) * N(mean; x, variance),
+        // all log scales are accumulated in logDensity, and an infinite variance means there is no data below the node
+        double[] mean = new double[nodes.size() * nchar];
+        double[] variance = new double[nodes.size() * nchar];
+        double[] transition = new double[3];
+        double logDensity = 0.0;
+
+        for (TimeTreeNode node : nodes) {
+            int i = node.getIndex() * nchar;
+            if (node.isLeaf()) {
+                Integer row = rows.get(node.getId());
+                for (int j = 0; j < nchar; j++) {
+                    Double value = row == null ? null : data.getState(row, j);
+                    mean[i + j] = value == null ? 0.0 : value;
+                    variance[i + j] = value == null ? Double.POSITIVE_INFINITY : 0.0;
+                }
+            } else {
+                List<TimeTreeNode> children = node.getChildren();
+                System.arraycopy(mean, children.get(0).getIndex() * nchar, mean, i, nchar);
+                System.arraycopy(variance, children.get(0).getIndex() * nchar, variance, i, nchar);
+                for (int c = 1; c < children.size(); c++) {
+                    int k = children.get(c).getIndex() * nchar;
+                    for (int j = 0; j < nchar; j++) {
+                        double v1 = variance[i + j];
+                        double v2 = variance[k + j];
+                        if (v2 == Double.POSITIVE_INFINITY) continue;
+                        if (v1 == Double.POSITIVE_INFINITY) {
+                            mean[i + j] = mean[k + j];
+                            variance[i + j] = v2;
+                            continue;
+                        }
+                        double sum = v1 + v2;
+                        logDensity += logNormal(mean[i + j] - mean[k + j], sum);
+                        mean[i + j] = (mean[i + j] * v2 + mean[k + j] * v1) / sum;
+                        variance[i + j] = v1 * v2 / sum;
+                    }
+                }
+            }
 
-                traverseTree(child, new DoubleValue("x", newState), tipValues, diffusionRate, idMap);
+            TimeTreeNode parent = node.getParent();
+            if (parent != null) {
+                // integrate out the node's value, to get the partial likelihood as a function of the parent's value
+                branchTransition(parent.getAge() - node.getAge(), node.getIndex(), transition);
+                double weight = transition[0];
+                for (int j = 0; j < nchar; j++) {
+                    if (variance[i + j] == Double.POSITIVE_INFINITY) continue;
+                    mean[i + j] = (mean[i + j] - transition[1]) / weight;
+                    variance[i + j] = (variance[i + j] + transition[2]) / (weight * weight);
+                    logDensity -= Math.log(weight);
+                }
             }
         }
+
+        int r = timeTree.getRoot().getIndex() * nchar;
+        for (int j = 0; j < nchar; j++) {
+            if (variance[r + j] != Double.POSITIVE_INFINITY) {
+                logDensity += logNormal(mean[r + j] - y0.value(), variance[r + j]);
+            }
+        }
+        return logDensity;
+    }
+
+    private static double logNormal(double difference, double variance) {
+        return -0.5 * (Math.log(2.0 * Math.PI * variance) + difference * difference / variance);
+    }
+
+    /**
+     * The state of a node is normally distributed with mean weight * parentState + offset and the given variance.
+     * @param time the branch length above the node.
+     * @param nodeIndex the index of the node.
+     * @param transition filled with the weight, offset and variance.
+     */
+    protected void branchTransition(double time, int nodeIndex, double[] transition) {
+        transition[0] = 1.0;
+        transition[1] = 0.0;
+        transition[2] = time * diffusionRate.value();
     }
 
     protected double sampleNewState(double initialState, double time, int nodeIndex) {
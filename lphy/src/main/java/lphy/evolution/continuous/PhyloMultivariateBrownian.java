@@ -1,19 +1,15 @@
 package lphy.evolution.continuous;
 
-import lphy.core.StringDoubleArrayMap;
 import lphy.evolution.alignment.ContinuousCharacterData;
 import lphy.evolution.tree.TimeTree;
 import lphy.evolution.tree.TimeTreeNode;
+import lphy.evolution.tree.TimeTreeTraversal;
 import lphy.core.distributions.Utils;
 import lphy.graphicalModel.*;
-import lphy.graphicalModel.types.DoubleArrayValue;
 import org.apache.commons.lang3.ArrayUtils;
-import org.apache.commons.math3.distribution.MultivariateNormalDistribution;
 import org.apache.commons.math3.random.RandomGenerator;
 
-import java.util.Map;
-import java.util.SortedMap;
-import java.util.TreeMap;
+import java.util.*;
 
 /**
  * Created by Alexei Drummond on 2/02/20.
@@ -39,119 +35,178 @@ public class PhyloMultivariateBrownian implements GenerativeDistribution<Continu
         this.random = Utils.getRandom();
     }
 
+    /**
+     * The diffusion matrix is factorized once, and the traits of all nodes are drawn into one primitive buffer
+     * in a single pre-order traversal, each node from its parent's traits plus sqrt(branch length) L z
+     * for the Cholesky factor L and a vector z of standard normal variates.
+     */
     public RandomVariable<ContinuousCharacterData> sample() {
 
-        SortedMap<String, Integer> idMap = new TreeMap<>();
-        fillIdMap(tree.value().getRoot(), idMap); // populate idMap in place
-
-        // populate tipValues (key = species name, value = trait values)
-        Map<String, Double[]> tipValues = new StringDoubleArrayMap(); // StringDoubleArrayMap extends Java API's TreeMap
-        fillValuesTraversingTree(tree.value().getRoot(), y0, tipValues, diffusionMatrix.value(), idMap);
+        TimeTree timeTree = tree.value();
+        Double[] rootValues = y0.value();
+        int k = rootValues.length;
+        double[][] cholesky = cholesky(diffusionMatrix.value());
+
+        List<TimeTreeNode> nodes = TimeTreeTraversal.getPreOrder(timeTree.getRoot());
+        double[] states = new double[nodes.size() * k];
+        double[] z = new double[k];
+
+        for (TimeTreeNode node : nodes) {
+            int i = node.getIndex() * k;
+            TimeTreeNode parent = node.getParent();
+            if (parent == null) {
+                for (int j = 0; j < k; j++) {
+                    states[i + j] = rootValues[j];
+                }
+            } else {
+                int p = parent.getIndex() * k;
+                double sd = Math.sqrt(parent.getAge() - node.getAge());
+                for (int j = 0; j < k; j++) {
+                    z[j] = random.nextGaussian();
+                }
+                for (int j = 0; j < k; j++) {
+                    double sum = 0.0;
+                    for (int l = 0; l <= j; l++) {
+                        sum += cholesky[j][l] * z[l];
+                    }
+                    states[i + j] = states[p + j] + sd * sum;
+                }
+            }
+        }
 
-        // put tipValues inside contData
-        Double[][] contData = new Double[tree.value().n()][y0.value().length];
-        for (Map.Entry<String, Double[]> entry : tipValues.entrySet()) {
-            contData[tree.value().getTaxa().indexOfTaxon(entry.getKey())] = entry.getValue();
+        // rows in the order of the taxa of the tree
+        Map<String, Integer> rows = new HashMap<>();
+        String[] names = timeTree.getTaxa().getTaxaNames();
+        for (int i = 0; i < names.length; i++) {
+            rows.put(names[i], i);
+        }
+        Double[][] contData = new Double[timeTree.n()][];
+        double[] tipValues = new double[k];
+        for (TimeTreeNode node : nodes) {
+            if (node.isLeaf()) {
+                System.arraycopy(states, node.getIndex() * k, tipValues, 0, k);
+                contData[rows.get(node.getId())] = handleBoundaries(tipValues);
+            }
         }
 
-        return new RandomVariable<>("x", new ContinuousCharacterData(tree.value().getTaxa(), contData), this);
+        return new RandomVariable<>("x", new ContinuousCharacterData(timeTree.getTaxa(), contData), this);
     }
 
-    /*
-     * Side-effect: populates idMap in place
-     *
-     * key = the (String) name of a species
-     * value = an integer associated to that species
+    protected Double[] handleBoundaries(double[] rawValues) {
+        return ArrayUtils.toObject(rawValues);
+    }
+
+    /**
+     * The log density of the traits of the leaves given the root values, by pruning independent contrasts in a single
+     * post-order traversal, so it takes O(n k^2) time and O(n k) memory for k traits instead of an nk x nk covariance matrix.
+     * The partial likelihood of each node is a multivariate normal whose covariance is the diffusion matrix times a scalar,
+     * so the diffusion matrix is factorized only once.
      */
-    private void fillIdMap(TimeTreeNode node, SortedMap<String, Integer> idMap) {
-        if (node.isLeaf()) {
-            Integer i = idMap.get(node.getId()); // will be null the first time this is done because idMap is empty!
+    @Override
+    public double logDensity(ContinuousCharacterData data) {
+        TimeTree timeTree = tree.value();
+        List<TimeTreeNode> nodes = TimeTreeTraversal.getPostOrder(timeTree.getRoot());
+        int k = y0.value().length;
+        double[][] cholesky = cholesky(diffusionMatrix.value());
+        double logDeterminant = 0.0;
+        for (int i = 0; i < k; i++) {
+            logDeterminant += 2.0 * Math.log(cholesky[i][i]);
+        }
 
-            if (i == null) {
-                int nextValue = 0; // if looking at first leaf, it's mapped to value 0
+        Map<String, Integer> rows = new HashMap<>();
+        String[] names = data.getTaxa().getTaxaNames();
+        for (int i = 0; i < names.length; i++) {
+            rows.put(names[i], i);
+        }
 
-                for (Integer j : idMap.values()) {
-                    if (j >= nextValue)
-                        nextValue = j + 1; // if looking at second or later species, we add +1 to integer that will be its value
+        // the partial likelihood of each node as a function of the node's values x is proportional to
+        // N(mean; x, scale * diffusionMatrix), and the log of the proportionality constants is accumulated in logDensity
+        double[] mean = new double[nodes.size() * k];
+        double[] scale = new double[nodes.size()];
+        double[] difference = new double[k];
+        double logDensity = 0.0;
+
+        for (TimeTreeNode node : nodes) {
+            int i = node.getIndex();
+            if (node.isLeaf()) {
+                Integer row = rows.get(node.getId());
+                if (row == null) throw new IllegalArgumentException("Taxon " + node.getId() + " has no traits in the data!");
+                for (int j = 0; j < k; j++) {
+                    Double value = data.getState(row, j);
+                    if (value == null) throw new IllegalArgumentException("Taxon " + node.getId() + " has a missing trait value!");
+                    mean[i * k + j] = value;
+                }
+                scale[i] = 0.0;
+            } else {
+                List<TimeTreeNode> children = node.getChildren();
+                int first = children.get(0).getIndex();
+                System.arraycopy(mean, first * k, mean, i * k, k);
+                scale[i] = scale[first];
+                for (int c = 1; c < children.size(); c++) {
+                    int child = children.get(c).getIndex();
+                    double s1 = scale[i];
+                    double s2 = scale[child];
+                    double sum = s1 + s2;
+                    for (int j = 0; j < k; j++) {
+                        difference[j] = mean[i * k + j] - mean[child * k + j];
+                        mean[i * k + j] = (mean[i * k + j] * s2 + mean[child * k + j] * s1) / sum;
+                    }
+                    logDensity += logMultivariateNormal(difference, sum, cholesky, logDeterminant);
+                    scale[i] = s1 * s2 / sum;
                 }
-
-                idMap.put(node.getId(), nextValue);
             }
-        }
 
-        // recur
-        else {
-            for (TimeTreeNode child : node.getChildren()) {
-                fillIdMap(child, idMap);
-            }
+            TimeTreeNode parent = node.getParent();
+            if (parent != null) scale[i] += parent.getAge() - node.getAge();
         }
-    }
 
-    /*
-     * Side-effect: populates tipValues in place
-     *
-     * tipValues is a map (key = species name, value = trait values)
-     */
-    private void fillValuesTraversingTree(TimeTreeNode node, Value<Double[]> nodeState, Map<String, Double[]> tipValues, Double[][] diffusionMatrix, Map<String, Integer> idMap) {
-        if (node.isLeaf()) {
-            tipValues.put(node.getId(), nodeState.value()); // finished traversing tree, we have our tip values
+        int r = timeTree.getRoot().getIndex();
+        Double[] rootValues = y0.value();
+        for (int j = 0; j < k; j++) {
+            difference[j] = mean[r * k + j] - rootValues[j];
         }
+        logDensity += logMultivariateNormal(difference, scale[r], cholesky, logDeterminant);
+        return logDensity;
+    }
 
-        // recur
-        else {
-            for (TimeTreeNode child : node.getChildren()) {
-                double branchLength = node.getAge() - child.getAge();
-                Double[] newIntNodeState = getSampleFromNewMVN(nodeState.value(), diffusionMatrix, branchLength); // MVN sampling here
-                DoubleArrayValue newIntNodeStateValue = new DoubleArrayValue(null, newIntNodeState);
-
-                fillValuesTraversingTree(child, newIntNodeStateValue, tipValues, diffusionMatrix, idMap);
+    // the log density of a difference from the mean, under the covariance scale * L L^T given the lower triangular L
+    private static double logMultivariateNormal(double[] difference, double scale, double[][] cholesky, double logDeterminant) {
+        int k = difference.length;
+        // solve L z = difference by forward substitution, then the quadratic form is z^T z
+        double quadratic = 0.0;
+        double[] z = new double[k];
+        for (int i = 0; i < k; i++) {
+            double sum = difference[i];
+            for (int j = 0; j < i; j++) {
+                sum -= cholesky[i][j] * z[j];
             }
+            z[i] = sum / cholesky[i][i];
+            quadratic += z[i] * z[i];
         }
+        return -0.5 * (k * Math.log(2.0 * Math.PI * scale) + logDeterminant + quadratic / scale);
     }
 
-    protected Double[] handleBoundaries(double[] rawValues) {
-        /* original code */
-//        Double[] objValues =  new Double[rawValues.length];
-//        for (int i = 0; i < rawValues.length; i++) { objValues[i] = rawValues[i]; }
-//
-//        return objValues;
-
-        return ArrayUtils.toObject(rawValues);
-    }
-
-    /*
-     * Getters and setters
-     */
-
-    /*
-     * Returns a random sample from a (new) MVN distribution
-     * defined from:
-     * (1) a previous (MVN) mean and var-cov, and
-     * (2) some waiting time during which diffusion happens (branchLength);
-     * at the end of this waiting time, we draw
+    /**
+     * @return the lower triangular L with L L^T equal to the given symmetric positive definite matrix.
      */
-    Double[] getSampleFromNewMVN(Double[] oldValue, Double[][] diffusionMatrix, double branchLength) {
-        // initializing moment containers of MVN
-        double[] means = new double[oldValue.length];
-        double[][] covariances = new double[diffusionMatrix.length][diffusionMatrix[0].length];
-
-        // populating moment containers
-        for (int i = 0; i < covariances.length; i++) {
-            means[i] = oldValue[i]; // mean remains the same under BM
-
-            /*
-             * variances and co-variances must be updated (they increase with time
-             * as diffusion is happening), which is done here by multiplying
-             * previous var-covars by branchLength
-             */
-            for (int j = 0; j < covariances.length; j++) {
-                covariances[i][j] = diffusionMatrix[i][j] * branchLength;
+    static double[][] cholesky(Double[][] matrix) {
+        int k = matrix.length;
+        double[][] lower = new double[k][k];
+        for (int i = 0; i < k; i++) {
+            for (int j = 0; j <= i; j++) {
+                double sum = matrix[i][j];
+                for (int l = 0; l < j; l++) {
+                    sum -= lower[i][l] * lower[j][l];
+                }
+                if (i == j) {
+                    if (sum <= 0.0) throw new IllegalArgumentException("The diffusion matrix must be positive definite!");
+                    lower[i][i] = Math.sqrt(sum);
+                } else {
+                    lower[i][j] = sum / lower[j][j];
+                }
             }
         }
-
-        MultivariateNormalDistribution mvn = new MultivariateNormalDistribution(means, covariances);
-
-        return handleBoundaries(mvn.sample());
+        return lower;
     }
 
     // getParams is in the Generator interface
@@ -62,14 +62,22 @@ public class PhyloOU extends PhyloBrownian {
         else throw new RuntimeException("Unrecognised parameter name: " + paramName);
     }
 
+    private double getTheta(int nodeIndex) {
+        if (theta != null) return theta.value();
+        return branchThetas.value()[nodeIndex];
+    }
+
+    protected void branchTransition(double time, int nodeIndex, double[] transition) {
+        double a = alpha.value();
+        double weight = Math.exp(-a * time);
+        transition[0] = weight;
+        transition[1] = (1.0 - weight) * getTheta(nodeIndex);
+        transition[2] = diffusionRate.value() / (2 * a) * (1.0 - Math.exp(-2.0 * a * time));
+    }
+
     protected double sampleNewState(double initialState, double time, int nodeIndex) {
 
-        double th;
-        if (theta != null) {
-            th = theta.value();
-        } else {
-            th = branchThetas.value()[nodeIndex];
-        }
+        double th = getTheta(nodeIndex);
 
         double a = alpha.value();
 
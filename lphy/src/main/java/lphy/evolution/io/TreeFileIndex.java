@@ -0,0 +1,283 @@
+package lphy.evolution.io;
+
+import lphy.core.functions.newickParser.FastNewickParser;
+import lphy.core.functions.newickParser.TreeParsingException;
+import lphy.evolution.Taxa;
+import lphy.evolution.tree.TimeTree;
+import lphy.evolution.tree.TimeTreeNode;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * A lazy, random-access source of the trees in a Nexus TREES block or a Newick file.
+ * The file is scanned once to record the byte range of each tree, and the translate table if there is one.
+ * A tree is only read and parsed (by {@link FastNewickParser}) when it is requested,
+ * so memory use does not grow with the size of the file, only by 16 bytes per tree.
+ * The file is opened again for each request, so the index holds no file handle. The file is decoded as UTF-8.
+ * Tree files with 10^4 - 10^5 posterior trees can then be used as an empirical tree distribution.
+ *
+ * @see lphy.evolution.tree.EmpiricalTree
+ */
+public class TreeFileIndex {
+
+    private final Path path;
+
+    // [start, end) byte offsets of each tree string, start at even and end at odd positions
+    private long[] offsets = new long[64];
+    private int treeCount = 0;
+    private final List<String> treeNames = new ArrayList<>();
+
+    // Nexus translate table, empty if there is none
+    private final Map<String, String> translate = new HashMap<>();
+
+    private ByteBuffer buffer = ByteBuffer.allocate(8192);
+
+    /**
+     * Scan the file and index the trees.
+     * @param path a Nexus file with a TREES block, or a file of Newick trees separated by ';'.
+     */
+    public TreeFileIndex(Path path) throws IOException {
+        this.path = path;
+        try (InputStream in = new BufferedInputStream(new FileInputStream(path.toFile()), 1 << 16)) {
+            Scanner scanner = new Scanner(in);
+            if (scanner.skipWhitespace() == '#') {
+                indexNexus(scanner);
+            } else {
+                indexNewick(scanner);
+            }
+        }
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * @return the number of trees in the file.
+     */
+    public int size() {
+        return treeCount;
+    }
+
+    /**
+     * @return the name of the i'th tree in a Nexus file, or null for Newick files.
+     */
+    public String getTreeName(int i) {
+        checkIndex(i);
+        return treeNames.isEmpty() ? null : treeNames.get(i);
+    }
+
+    /**
+     * Read and parse the i'th tree (zero-based).
+     * Leaf labels are mapped through the translate table of a Nexus file.
+     */
+    public synchronized TimeTree getTree(int i) {
+        checkIndex(i);
+        long start = offsets[2 * i];
+        int length = (int) (offsets[2 * i + 1] - start);
+
+        if (buffer.capacity() < length) buffer = ByteBuffer.allocate(Math.max(length, 2 * buffer.capacity()));
+        buffer.clear();
+        buffer.limit(length);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, start + buffer.position()) < 0)
+                    throw new EOFException("Tree " + i + " is beyond the end of " + path + ", has the file changed?");
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buffer.flip();
+
+        TimeTreeNode root = new FastNewickParser(buffer).nextRoot();
+        if (!translate.isEmpty()) {
+            for (TimeTreeNode leaf : root.getAllLeafNodes()) {
+                String name = translate.get(leaf.getId());
+                if (name != null) leaf.setId(name);
+            }
+        }
+        TimeTree tree = new TimeTree(Taxa.createTaxa(root));
+        tree.setRoot(root);
+        return tree;
+    }
+
+    private void checkIndex(int i) {
+        if (i < 0 || i >= treeCount)
+            throw new IndexOutOfBoundsException("Tree index " + i + " out of range [0, " + treeCount + ") in " + path);
+    }
+
+    //****** indexing ******//
+
+    private void addTree(String name, long start, long end) {
+        if (2 * treeCount + 1 >= offsets.length) offsets = Arrays.copyOf(offsets, 2 * offsets.length);
+        offsets[2 * treeCount] = start;
+        offsets[2 * treeCount + 1] = end;
+        treeCount++;
+        if (name != null) treeNames.add(name);
+    }
+
+    private void indexNewick(Scanner scanner) throws IOException {
+        while (scanner.skipWhitespace() >= 0) {
+            long start = scanner.pos;
+            long end = scanner.skipTree();
+            if (end > start) addTree(null, start, end);
+        }
+    }
+
+    private void indexNexus(Scanner scanner) throws IOException {
+        String header = scanner.nextToken();
+        if (!"#NEXUS".equalsIgnoreCase(header))
+            throw new IOException("Expecting #NEXUS at the start of " + path + ", but found " + header);
+        boolean inTrees = false;
+        String token;
+        while ((token = scanner.nextToken()) != null) {
+            if (!inTrees) {
+                if (token.equalsIgnoreCase("begin")) {
+                    inTrees = "trees".equalsIgnoreCase(scanner.nextToken());
+                }
+            } else if (token.equalsIgnoreCase("end") || token.equalsIgnoreCase("endblock")) {
+                inTrees = false;
+            } else if (token.equalsIgnoreCase("translate")) {
+                // key name [, key name]* ;
+                String key;
+                while ((key = scanner.nextToken()) != null && !key.equals(";")) {
+                    if (key.equals(",")) continue;
+                    String name = scanner.nextToken();
+                    if (name == null || name.equals(";") || name.equals(","))
+                        throw new IOException("Missing taxon name for '" + key + "' in translate block of " + path);
+                    translate.put(key, unquote(name));
+                }
+            } else if (token.equalsIgnoreCase("tree") || token.equalsIgnoreCase("utree")) {
+                String name = scanner.nextToken();
+                if (!"=".equals(scanner.nextToken()))
+                    throw new IOException("Expecting '=' after tree " + name + " in " + path);
+                // skip comments such as [&R] before the tree
+                scanner.skipWhitespaceAndComments();
+                long start = scanner.pos;
+                long end = scanner.skipTree();
+                addTree(unquote(name), start, end);
+            }
+        }
+    }
+
+    private static String unquote(String s) {
+        if (s.length() > 1 && (s.charAt(0) == '\'' || s.charAt(0) == '"') && s.charAt(s.length() - 1) == s.charAt(0))
+            return s.substring(1, s.length() - 1);
+        return s;
+    }
+
+    /**
+     * Reads bytes one at a time, keeping track of the file offset.
+     */
+    private static class Scanner {
+        final InputStream in;
+        final ByteArrayOutputStream token = new ByteArrayOutputStream();
+        long pos = 0;
+        int next;
+
+        Scanner(InputStream in) throws IOException {
+            this.in = in;
+            next = in.read();
+        }
+
+        int read() throws IOException {
+            int c = next;
+            if (c >= 0) {
+                next = in.read();
+                pos++;
+            }
+            return c;
+        }
+
+        static boolean isWhitespace(int c) {
+            return c == ' ' || c == '\t' || c == '\r' || c == '\n';
+        }
+
+        // a label follows these in a tree, and a metadata key or value follows the last four
+        static boolean isTokenStart(int last) {
+            return last == '(' || last == ',' || last == ')' || last == '[' || last == '&' || last == '=' || last == '{';
+        }
+
+        // @return the next char, or -1 at the end of the file
+        int skipWhitespace() throws IOException {
+            while (isWhitespace(next)) read();
+            return next;
+        }
+
+        void skipWhitespaceAndComments() throws IOException {
+            while (true) {
+                skipWhitespace();
+                if (next != '[') return;
+                int depth = 0;
+                do {
+                    int c = read();
+                    if (c < 0) return;
+                    if (c == '[') depth++;
+                    else if (c == ']') depth--;
+                } while (depth > 0);
+            }
+        }
+
+        /**
+         * @return the next word, quoted string or punctuation character, skipping comments, or null at the end.
+         */
+        String nextToken() throws IOException {
+            skipWhitespaceAndComments();
+            if (next < 0) return null;
+            // bytes, since a UTF-8 character can span several
+            token.reset();
+            int c = read();
+            token.write(c);
+            if (c == '\'' || c == '"') {
+                int quote = c;
+                while ((c = read()) >= 0) {
+                    token.write(c);
+                    if (c == quote) break;
+                }
+            } else if (c != ';' && c != '=' && c != ',') {
+                while (next >= 0 && !isWhitespace(next) && next != ';' && next != '=' && next != ',' && next != '[') {
+                    token.write(read());
+                }
+            }
+            return token.toString(StandardCharsets.UTF_8.name());
+        }
+
+        /**
+         * Skip to the ';' ending a tree, ignoring any inside quotes or metadata brackets.
+         * As in {@link FastNewickParser}, a quote only opens a quoted string at the start of a label or value,
+         * so an apostrophe inside a label such as <code>can't</code> is part of the label.
+         * @return the offset of the ';', or of the end of the file.
+         */
+        long skipTree() throws IOException {
+            int depth = 0;
+            int quote = -1;
+            // the last char outside quotes and whitespace, where '(' stands for the start of the tree
+            int last = '(';
+            while (next >= 0) {
+                if (quote >= 0) {
+                    if (next == quote) quote = -1;
+                } else if ((next == '\'' || next == '"') && isTokenStart(last)) {
+                    quote = next;
+                } else if (next == '[') {
+                    depth++;
+                } else if (next == ']') {
+                    depth--;
+                } else if (next == ';' && depth == 0) {
+                    long end = pos;
+                    read();
+                    return end;
+                }
+                if (quote < 0 && !isWhitespace(next)) last = next;
+                read();
+            }
+            if (quote >= 0 || depth > 0) throw new TreeParsingException("Unterminated tree at offset " + pos, null, null);
+            return pos;
+        }
+    }
+}
@@ -8,6 +8,7 @@ import lphy.evolution.alignment.SimpleAlignment;
 import lphy.evolution.sitemodel.SiteModel;
 import lphy.evolution.tree.TimeTree;
 import lphy.evolution.tree.TimeTreeNode;
+import lphy.evolution.tree.TimeTreeTraversal;
 import lphy.graphicalModel.*;
 import org.apache.commons.math3.linear.Array2DRowRealMatrix;
 import org.apache.commons.math3.linear.EigenDecomposition;
@@ -59,6 +60,9 @@ public class PhyloCTMCSiteModel implements GenerativeDistribution<Alignment> {
     private double[][] Ievc;
     private double[][] Evec;
     private SortedMap<String, Integer> idMap = new TreeMap<>();
+    // reused by every site, so that deep trees do not need recursion
+    private final TimeTreeTraversal traversal = new TimeTreeTraversal();
+    private int[] nodeStates;
     private double[][] transProb;
     private double[][] iexp;
     private double[] Eval;
@@ -212,10 +216,11 @@ public class PhyloCTMCSiteModel implements GenerativeDistribution<Alignment> {
 
         double mu = (this.clockRate == null) ? 1.0 : doubleValue(clockRate);
 
+        List<TimeTreeNode> nodes = traversal.preOrder(tree.value().getRoot());
         for (int i = 0; i < siteCount; i++) {
 
             int rootState = Categorical.sample(rootFreqs.value(), random);
-            traverseTree(tree.value().getRoot(), rootState, a, i, transProb, mu,
+            traverseTree(nodes, rootState, a, i, transProb, mu,
                     finalSiteRates[i]);
         }
 
@@ -259,44 +264,55 @@ public class PhyloCTMCSiteModel implements GenerativeDistribution<Alignment> {
         return new Value<>(null, freqs);
     }
 
-    private void fillIdMap(TimeTreeNode node, SortedMap<String, Integer> idMap) {
-        if (node.isLeaf() || node.getId() != null) {
-            Integer i = idMap.get(node.getId());
-            if (i == null) {
-                int nextValue = 0;
-                for (Integer j : idMap.values()) {
-                    if (j >= nextValue) nextValue = j + 1;
+    private void fillIdMap(TimeTreeNode root, SortedMap<String, Integer> idMap) {
+        int nextValue = 0;
+        for (Integer j : idMap.values()) {
+            if (j >= nextValue) nextValue = j + 1;
+        }
+        for (TimeTreeNode node : traversal.preOrder(root)) {
+            if (node.isLeaf() || node.getId() != null) {
+                Integer i = idMap.get(node.getId());
+                if (i == null) {
+                    idMap.put(node.getId(), nextValue);
+                    node.setLeafIndex(nextValue);
+                    nextValue += 1;
+                } else {
+                    node.setLeafIndex(i);
                 }
-                idMap.put(node.getId(), nextValue);
-                node.setLeafIndex(nextValue);
-            } else {
-                node.setLeafIndex(i);
             }
         }
-        for (TimeTreeNode child : node.getChildren()) {
-            fillIdMap(child, idMap);
-        }
-
     }
 
-    private void traverseTree(TimeTreeNode node, int nodeState, SimpleAlignment alignment, int pos, double[][] transProb, double clockRate, double siteRate) {
+    /**
+     * Simulate one site down the tree. States are drawn in pre-order, each from the state of its parent.
+     * @param nodes all nodes of the tree in pre-order, so the root comes first.
+     */
+    private void traverseTree(List<TimeTreeNode> nodes, int rootState, SimpleAlignment alignment, int pos, double[][] transProb, double clockRate, double siteRate) {
 
-        if (node.isLeaf() || (node.isSingleChildNonOrigin() && node.getId() != null)) {
-            alignment.setState(node.getLeafIndex(), pos, nodeState); // no ambiguous state
-        }
-        List<TimeTreeNode> children = node.getChildren();
-        for (TimeTreeNode child : children) {
-            double branchLength = siteRate * clockRate * (node.getAge() - child.getAge());
+        if (nodeStates == null || nodeStates.length < nodes.size()) nodeStates = new int[nodes.size()];
 
-            if (branchRates != null) {
-                branchLength *= branchRates.value()[child.getIndex()];
-            }
+        TimeTreeNode root = nodes.get(0);
+        for (TimeTreeNode node : nodes) {
+            int nodeState;
+            if (node == root) {
+                nodeState = rootState;
+            } else {
+                TimeTreeNode parent = node.getParent();
+                double branchLength = siteRate * clockRate * (parent.getAge() - node.getAge());
 
-            getTransitionProbabilities(branchLength, transProb);
-            // draw state from Q
-            int state = drawState(transProb[nodeState]);
+                if (branchRates != null) {
+                    branchLength *= branchRates.value()[node.getIndex()];
+                }
 
-            traverseTree(child, state, alignment, pos, transProb, clockRate, siteRate);
+                getTransitionProbabilities(branchLength, transProb);
+                // draw state from Q
+                nodeState = drawState(transProb[nodeStates[parent.getIndex()]]);
+            }
+            nodeStates[node.getIndex()] = nodeState;
+
+            if (node.isLeaf() || (node.isSingleChildNonOrigin() && node.getId() != null)) {
+                alignment.setState(node.getLeafIndex(), pos, nodeState); // no ambiguous state
+            }
         }
     }
 
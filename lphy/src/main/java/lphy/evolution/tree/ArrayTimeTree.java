@@ -0,0 +1,290 @@
+package lphy.evolution.tree;
+
+import lphy.evolution.Taxa;
+import lphy.evolution.Taxon;
+
+import java.util.*;
+
+/**
+ * A struct-of-arrays time tree for very large trees (10^5 - 10^6 tips).
+ * Nodes are integers, and their topology and ages are held in parallel primitive arrays,
+ * so a node costs a few dozen bytes and traversals do not chase pointers.
+ * Leaves take the indices 0 to n-1, internal nodes are appended after them,
+ * and children must be added before their parent, so the node order is a valid post-order.
+ * Nodes have at most two children. A node with a single child (e.g. an origin) has no right child.
+ * Metadata is only allocated for the nodes that have any.
+ * Use {@link #toTimeTree()} and {@link #fromTimeTree(TimeTree)} to convert to and from the {@link TimeTree} API.
+ * There is no view of this tree through the {@link TimeTree} API, the conversions copy every node,
+ * so the memory is only saved while a tree stays in this representation.
+ */
+public class ArrayTimeTree {
+
+    public static final int NONE = -1;
+
+    private final int leafCount;
+    private int nodeCount = 0;
+    private int internalCount = 0;
+
+    private final int[] parent;
+    private final int[] left;
+    private final int[] right;
+    private final double[] age;
+    private final String[] leafIds;
+
+    // lazy ids of internal nodes (e.g. sampled ancestors), and metadata, only for nodes that have some
+    private Map<Integer, String> internalIds = null;
+    private Map<Integer, SortedMap<String, Object>> metaData = null;
+
+    /**
+     * @param leafCount the number of leaves.
+     * @param internalCapacity the maximum number of internal nodes,
+     *                         which is n-1 for a binary tree, plus one for an origin and one per single-child node.
+     */
+    public ArrayTimeTree(int leafCount, int internalCapacity) {
+        if (leafCount < 1) throw new IllegalArgumentException("A tree must have at least one leaf!");
+        this.leafCount = leafCount;
+        int capacity = leafCount + internalCapacity;
+        parent = new int[capacity];
+        left = new int[capacity];
+        right = new int[capacity];
+        age = new double[capacity];
+        leafIds = new String[leafCount];
+        Arrays.fill(parent, NONE);
+        Arrays.fill(left, NONE);
+        Arrays.fill(right, NONE);
+    }
+
+    /**
+     * A binary tree with the given number of leaves.
+     */
+    public ArrayTimeTree(int leafCount) {
+        this(leafCount, leafCount - 1);
+    }
+
+    /**
+     * Set the leaf with the given index, which must be in [0, n).
+     * @return the index of the leaf node
+     */
+    public int setLeaf(int leafIndex, String id, double leafAge) {
+        if (leafIndex < 0 || leafIndex >= leafCount)
+            throw new IllegalArgumentException("Leaf index " + leafIndex + " out of range [0, " + leafCount + ")");
+        leafIds[leafIndex] = id;
+        age[leafIndex] = leafAge;
+        if (leafIndex >= nodeCount) nodeCount = leafIndex + 1;
+        return leafIndex;
+    }
+
+    /**
+     * Add an internal node as the parent of the given nodes, which must have no parent yet.
+     * @param nodeAge   the age of the new node
+     * @param leftChild  the first child
+     * @param rightChild the second child, or {@link #NONE} for a single-child node.
+     * @return the index of the new node
+     */
+    public int addInternalNode(double nodeAge, int leftChild, int rightChild) {
+        int node = leafCount + internalCount;
+        if (node >= age.length) throw new IllegalStateException("The capacity of " + age.length + " nodes is exceeded!");
+        attach(node, leftChild);
+        if (rightChild != NONE) attach(node, rightChild);
+        left[node] = leftChild;
+        right[node] = rightChild;
+        age[node] = nodeAge;
+        internalCount++;
+        nodeCount = leafCount + internalCount;
+        return node;
+    }
+
+    private void attach(int node, int child) {
+        if (child < 0 || child >= node) throw new IllegalArgumentException("Child " + child + " must be added before its parent " + node);
+        if (parent[child] != NONE) throw new IllegalArgumentException("Node " + child + " already has a parent!");
+        parent[child] = node;
+    }
+
+    public int getLeafCount() {
+        return leafCount;
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * @return the last node added, which is the root once the tree is complete.
+     */
+    public int getRoot() {
+        return nodeCount - 1;
+    }
+
+    public boolean isLeaf(int node) {
+        return node < leafCount;
+    }
+
+    public boolean isRoot(int node) {
+        return parent[node] == NONE;
+    }
+
+    public int getParent(int node) {
+        return parent[node];
+    }
+
+    public int getLeft(int node) {
+        return left[node];
+    }
+
+    public int getRight(int node) {
+        return right[node];
+    }
+
+    public int getChildCount(int node) {
+        return (left[node] == NONE ? 0 : 1) + (right[node] == NONE ? 0 : 1);
+    }
+
+    public double getAge(int node) {
+        return age[node];
+    }
+
+    public void setAge(int node, double nodeAge) {
+        age[node] = nodeAge;
+    }
+
+    /**
+     * @return the id of the node, which is usually null for internal nodes.
+     */
+    public String getId(int node) {
+        if (isLeaf(node)) return leafIds[node];
+        return internalIds == null ? null : internalIds.get(node);
+    }
+
+    public void setId(int node, String id) {
+        if (isLeaf(node)) {
+            leafIds[node] = id;
+        } else {
+            if (internalIds == null) internalIds = new HashMap<>();
+            internalIds.put(node, id);
+        }
+    }
+
+    public double getBranchDuration(int node) {
+        int p = parent[node];
+        return p == NONE ? 0.0 : age[p] - age[node];
+    }
+
+    public Object getMetaData(int node, String key) {
+        if (metaData == null) return null;
+        SortedMap<String, Object> map = metaData.get(node);
+        return map == null ? null : map.get(key);
+    }
+
+    public void setMetaData(int node, String key, Object value) {
+        if (metaData == null) metaData = new HashMap<>();
+        metaData.computeIfAbsent(node, k -> new TreeMap<>()).put(key, value);
+    }
+
+    /**
+     * @return the total length of the tree.
+     */
+    public double treeLength() {
+        double length = 0.0;
+        for (int i = 0; i < nodeCount; i++) {
+            length += getBranchDuration(i);
+        }
+        return length;
+    }
+
+    public double rootAge() {
+        return age[getRoot()];
+    }
+
+    /**
+     * Converts this tree into a {@link TimeTree}, creating a {@link TimeTreeNode} for each node.
+     * The leaves keep their indices, and internal nodes are indexed by {@link TimeTree#setRoot(TimeTreeNode)}.
+     */
+    public TimeTree toTimeTree() {
+        return toTimeTree(null);
+    }
+
+    /**
+     * @param taxa the taxa of the tree, or null to create them from the leaves.
+     */
+    public TimeTree toTimeTree(Taxa taxa) {
+        TimeTree tree = taxa == null ? new TimeTree() : new TimeTree(taxa);
+        TimeTreeNode[] nodes = new TimeTreeNode[nodeCount];
+        // children always precede parents
+        for (int i = 0; i < nodeCount; i++) {
+            TimeTreeNode node;
+            if (isLeaf(i)) {
+                node = new TimeTreeNode(leafIds[i], tree);
+                node.setLeafIndex(i);
+            } else {
+                node = new TimeTreeNode(age[i]);
+                node.setId(getId(i));
+                node.addChild(nodes[left[i]]);
+                if (right[i] != NONE) node.addChild(nodes[right[i]]);
+            }
+            node.setAge(age[i]);
+            if (metaData != null) {
+                SortedMap<String, Object> map = metaData.get(i);
+                if (map != null) map.forEach(node::setMetaData);
+            }
+            nodes[i] = node;
+        }
+        tree.setRoot(nodes[getRoot()]);
+        return tree;
+    }
+
+    /**
+     * Converts a {@link TimeTree} whose nodes have at most two children.
+     * The leaves are given the indices 0 to n-1 in the order of their leaf indices,
+     * which may have gaps if they were kept by {@link TimeTree#setRoot(TimeTreeNode, boolean)},
+     * and internal nodes are added in the post-order of the tree.
+     */
+    public static ArrayTimeTree fromTimeTree(TimeTree timeTree) {
+        List<TimeTreeNode> postOrder = TimeTreeTraversal.getPostOrder(timeTree.getRoot());
+        List<TimeTreeNode> leaves = new ArrayList<>();
+        for (TimeTreeNode node : postOrder) {
+            if (node.isLeaf()) leaves.add(node);
+        }
+        leaves.sort(Comparator.comparingInt(TimeTreeNode::getLeafIndex));
+
+        ArrayTimeTree tree = new ArrayTimeTree(leaves.size(), postOrder.size() - leaves.size());
+        Map<TimeTreeNode, Integer> arrayIndex = new IdentityHashMap<>(postOrder.size());
+
+        for (int i = 0; i < leaves.size(); i++) {
+            TimeTreeNode leaf = leaves.get(i);
+            tree.setLeaf(i, leaf.getId(), leaf.getAge());
+            tree.copyMetaData(i, leaf);
+            arrayIndex.put(leaf, i);
+        }
+        // children always precede their parents in post-order
+        for (TimeTreeNode node : postOrder) {
+            if (node.isLeaf()) continue;
+            List<TimeTreeNode> children = node.getChildren();
+            if (children.size() > 2)
+                throw new IllegalArgumentException("ArrayTimeTree only supports nodes with at most 2 children!");
+            int l = arrayIndex.get(children.get(0));
+            int r = children.size() > 1 ? arrayIndex.get(children.get(1)) : NONE;
+            int i = tree.addInternalNode(node.getAge(), l, r);
+            if (node.getId() != null) tree.setId(i, node.getId());
+            tree.copyMetaData(i, node);
+            arrayIndex.put(node, i);
+        }
+        return tree;
+    }
+
+    private void copyMetaData(int node, TimeTreeNode timeTreeNode) {
+        for (Map.Entry<String, Object> entry : timeTreeNode.getMetaData().entrySet()) {
+            setMetaData(node, entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * @return the taxa of the leaves, in leaf index order.
+     */
+    public Taxa getTaxa() {
+        Taxon[] taxa = new Taxon[leafCount];
+        for (int i = 0; i < leafCount; i++) {
+            taxa[i] = new Taxon(leafIds[i], age[i]);
+        }
+        return Taxa.createTaxa(taxa);
+    }
+}
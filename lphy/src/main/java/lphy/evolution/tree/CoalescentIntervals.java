@@ -0,0 +1,107 @@
+package lphy.evolution.tree;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The intervals between the sampling and coalescent events of a time tree, from the youngest leaf to the root.
+ * Leaf ages and coalescent ages are sorted separately as primitive arrays and merged in one pass,
+ * so construction is O(n log n), or O(n) when the leaves are all at the present.
+ * A node with c children is c-1 coalescent events at its age. Single-child nodes are not events.
+ * A sampling event is ordered before a coalescent event at the same age.
+ * Use {@link TimeTree#getCoalescentIntervals()} to get the intervals cached on the tree.
+ */
+public class CoalescentIntervals {
+
+    // duration of the interval ending with each event
+    private final double[] durations;
+    // number of lineages during the interval ending with each event
+    private final int[] lineageCounts;
+    private final boolean[] coalescent;
+    private final int coalescentEventCount;
+
+    public CoalescentIntervals(TimeTree tree) {
+        List<TimeTreeNode> nodes = tree.getNodes();
+
+        int sampleCount = 0;
+        int coalescentCount = 0;
+        for (TimeTreeNode node : nodes) {
+            if (node.isLeaf()) sampleCount += 1;
+            else coalescentCount += node.getChildCount() - 1;
+        }
+
+        double[] sampleAges = new double[sampleCount];
+        double[] coalescentAges = new double[coalescentCount];
+        int s = 0;
+        int c = 0;
+        for (TimeTreeNode node : nodes) {
+            if (node.isLeaf()) {
+                sampleAges[s++] = node.getAge();
+            } else {
+                for (int i = 1; i < node.getChildCount(); i++) coalescentAges[c++] = node.getAge();
+            }
+        }
+        Arrays.sort(sampleAges);
+        Arrays.sort(coalescentAges);
+
+        int eventCount = sampleCount + coalescentCount;
+        durations = new double[eventCount];
+        lineageCounts = new int[eventCount];
+        coalescent = new boolean[eventCount];
+        coalescentEventCount = coalescentCount;
+
+        s = 0;
+        c = 0;
+        int k = 0;
+        double time = sampleCount > 0 ? sampleAges[0] : 0.0;
+        for (int e = 0; e < eventCount; e++) {
+            boolean isSample = s < sampleCount && (c == coalescentCount || sampleAges[s] <= coalescentAges[c]);
+            double age = isSample ? sampleAges[s++] : coalescentAges[c++];
+
+            durations[e] = age - time;
+            lineageCounts[e] = k;
+            coalescent[e] = !isSample;
+
+            if (isSample) {
+                k += 1;
+            } else {
+                if (k < 2) throw new IllegalArgumentException("Coalescent event at age " + age +
+                        " with fewer than 2 lineages, the node ages of the tree are inconsistent!");
+                k -= 1;
+            }
+            time = age;
+        }
+    }
+
+    /**
+     * @return the number of intervals, which is the number of leaves plus the number of coalescent events.
+     */
+    public int getIntervalCount() {
+        return durations.length;
+    }
+
+    public int getCoalescentEventCount() {
+        return coalescentEventCount;
+    }
+
+    /**
+     * @return the duration of the i'th interval, which may be zero.
+     */
+    public double getInterval(int i) {
+        return durations[i];
+    }
+
+    /**
+     * @return the number of lineages during the i'th interval.
+     */
+    public int getLineageCount(int i) {
+        return lineageCounts[i];
+    }
+
+    /**
+     * @return true if the i'th interval ends with a coalescent event, false if it ends with a sampling event.
+     */
+    public boolean isCoalescentEvent(int i) {
+        return coalescent[i];
+    }
+}
@@ -0,0 +1,50 @@
+package lphy.evolution.tree;
+
+import lphy.core.distributions.Utils;
+import lphy.evolution.io.TreeFileIndex;
+import lphy.graphicalModel.*;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A uniform distribution over the trees in a tree file, e.g. a posterior sample of trees.
+ * Only the tree that is drawn is parsed.
+ * @see lphy.core.functions.ReadTrees
+ */
+public class EmpiricalTree implements GenerativeDistribution<TimeTree> {
+
+    public static final String treesParamName = "trees";
+
+    private Value<TreeFileIndex> trees;
+
+    public EmpiricalTree(@ParameterInfo(name = treesParamName,
+            description = "the trees read from a file by readTrees.") Value<TreeFileIndex> trees) {
+        this.trees = trees;
+    }
+
+    @GeneratorInfo(name = "EmpiricalTree",
+            description = "The empirical distribution of the trees in a file, where each tree is drawn with equal probability.")
+    public RandomVariable<TimeTree> sample() {
+        TreeFileIndex index = trees.value();
+        int i = Utils.getRandom().nextInt(index.size());
+        return new RandomVariable<>(null, index.getTree(i), this);
+    }
+
+    @Override
+    public Map<String, Value> getParams() {
+        return new TreeMap<>() {{
+            put(treesParamName, trees);
+        }};
+    }
+
+    @Override
+    public void setParam(String paramName, Value value) {
+        if (paramName.equals(treesParamName)) trees = value;
+        else throw new RuntimeException("Unrecognised parameter name: " + paramName);
+    }
+
+    public Value<TreeFileIndex> getTrees() {
+        return trees;
+    }
+}
@@ -2,8 +2,6 @@ package lphy.evolution.tree;
 
 import lphy.graphicalModel.*;
 
-import java.util.*;
-
 import static lphy.evolution.EvolutionConstants.treeParamName;
 import static lphy.evolution.tree.TimeTreeUtils.*;
 
@@ -21,33 +19,15 @@ public class ExtantTree extends DeterministicFunction<TimeTree> {
 
         Value<TimeTree> tree = getParams().get(treeParamName);
 
-        // do deep copy
-        TimeTree extantTree = new TimeTree(tree.value());
-
-        List<TimeTreeNode> sampleTips = new ArrayList<>();
-
-        while (sampleTips.size() == 0) {
-            for (TimeTreeNode node : extantTree.getNodes()) {
-                if (node.isLeaf() && node.getAge() == 0.0) {
-                    sampleTips.add(node);
-                }
-            }
-        }
-
-        for (TimeTreeNode tip : sampleTips) {
-            markNodeAndDirectAncestors(tip);
-        }
-
-        removeUnmarkedNodes(extantTree);
-
-        TimeTreeNode newRoot = getFirstNonSingleChildNode(extantTree);
-        if (!newRoot.isRoot()) {
-            newRoot.getParent().removeChild(newRoot);
-        }
+        TimeTree extantTree = new TimeTree();
 
-        removeSingleChildNodes(newRoot, false);
+        // keep the tips at time zero and their ancestors, and remove all single-child nodes, including those above the new root
+        TimeTreeNode root = copyKeptNodes(tree.value().getRoot(), extantTree,
+                node -> node.isLeaf() && node.getAge() == 0.0,
+                node -> true);
+        if (root == null) throw new RuntimeException("The tree has no tips at time zero!");
 
-        extantTree.setRoot(newRoot, true);
+        extantTree.setRoot(root, true);
 
         return new Value<>(null, extantTree, this);
     }
@@ -0,0 +1,211 @@
+package lphy.evolution.tree;
+
+import java.util.*;
+
+/**
+ * A lowest common ancestor index of a {@link TimeTree}, built from the pre-order of its nodes
+ * and a sparse table of range minima over their depths.
+ * For two nodes u before v in pre-order, the node of minimum depth in (u, v] is a child of their MRCA.
+ * After an O(n log n) build it answers MRCA queries of two nodes in O(1), of k nodes in O(k),
+ * ancestor queries in O(1) and clade queries in O(clade size).
+ * Use {@link TimeTree#getLCAIndex()} to get the index memoized on the tree, which is rebuilt only after the tree has been changed.
+ * Nodes are numbered by the index itself from the topology below the root,
+ * so it does not depend on {@link TimeTreeNode#getIndex()} being dense or up to date,
+ * but it is only valid for the tree it was built from.
+ */
+public class LCAIndex {
+
+    private final TimeTree tree;
+
+    // the nodes in pre-order, and the pre-order number of each node
+    private final TimeTreeNode[] nodes;
+    private final Map<TimeTreeNode, Integer> numbers;
+
+    // indexed by pre-order number
+    private final int[] parent;
+    private final int[] depth;
+    // the last pre-order number in the subtree of each node
+    private final int[] last;
+    // sparse[j][i] is the node of minimum depth among [i, i + 2^j)
+    private final int[][] sparse;
+
+    // leaves in depth-first order, and the range [leafStart, leafEnd) of the leaves under each node
+    private final TimeTreeNode[] leafOrder;
+    private final int[] leafStart;
+    private final int[] leafEnd;
+
+    private Map<String, TimeTreeNode> leafById = null;
+
+    public LCAIndex(TimeTree tree) {
+        this.tree = tree;
+        List<TimeTreeNode> preOrder = TimeTreeTraversal.getPreOrder(tree.getRoot());
+        int nodeCount = preOrder.size();
+
+        nodes = preOrder.toArray(new TimeTreeNode[0]);
+        numbers = new IdentityHashMap<>(nodeCount);
+        parent = new int[nodeCount];
+        depth = new int[nodeCount];
+        last = new int[nodeCount];
+        leafStart = new int[nodeCount];
+        leafEnd = new int[nodeCount];
+
+        // parents precede their children
+        List<TimeTreeNode> leaves = new ArrayList<>();
+        for (int p = 0; p < nodeCount; p++) {
+            TimeTreeNode node = nodes[p];
+            numbers.put(node, p);
+            parent[p] = p == 0 ? -1 : numbers.get(node.getParent());
+            depth[p] = p == 0 ? 0 : depth[parent[p]] + 1;
+            last[p] = p;
+            leafStart[p] = leaves.size();
+            if (node.isLeaf()) leaves.add(node);
+        }
+        leafOrder = leaves.toArray(new TimeTreeNode[0]);
+
+        // a subtree ends where its last child's subtree ends
+        for (int p = nodeCount - 1; p > 0; p--) {
+            if (last[p] > last[parent[p]]) last[parent[p]] = last[p];
+        }
+        for (int p = 0; p < nodeCount; p++) {
+            leafEnd[p] = last[p] + 1 < nodeCount ? leafStart[last[p] + 1] : leafOrder.length;
+        }
+
+        int levels = 1;
+        while ((1 << levels) <= nodeCount) levels += 1;
+        sparse = new int[levels][];
+        sparse[0] = new int[nodeCount];
+        for (int p = 0; p < nodeCount; p++) {
+            sparse[0][p] = p;
+        }
+        for (int j = 1; j < levels; j++) {
+            int half = 1 << (j - 1);
+            int length = nodeCount - (1 << j) + 1;
+            int[] previous = sparse[j - 1];
+            int[] level = new int[length];
+            for (int i = 0; i < length; i++) {
+                int a = previous[i];
+                int b = previous[i + half];
+                level[i] = depth[a] <= depth[b] ? a : b;
+            }
+            sparse[j] = level;
+        }
+    }
+
+    public TimeTree getTree() {
+        return tree;
+    }
+
+    /**
+     * @return the most recent common ancestor of the two nodes, in O(1).
+     */
+    public TimeTreeNode getMRCA(TimeTreeNode a, TimeTreeNode b) {
+        return nodes[mrca(number(a), number(b))];
+    }
+
+    /**
+     * @return the most recent common ancestor of the nodes, in O(k) for k nodes.
+     */
+    public TimeTreeNode getMRCA(Collection<TimeTreeNode> nodes) {
+        if (nodes.isEmpty()) throw new IllegalArgumentException("The MRCA of no nodes is undefined!");
+        int mrca = -1;
+        for (TimeTreeNode node : nodes) {
+            mrca = mrca < 0 ? number(node) : mrca(mrca, number(node));
+        }
+        return this.nodes[mrca];
+    }
+
+    /**
+     * @param taxa the ids of leaf nodes.
+     * @return the most recent common ancestor of the leaves with these ids.
+     */
+    public TimeTreeNode getMRCA(String... taxa) {
+        return getMRCA(getLeafNodes(taxa));
+    }
+
+    private int mrca(int a, int b) {
+        if (a == b) return a;
+        int l = Math.min(a, b) + 1;
+        int r = Math.max(a, b);
+        int j = 31 - Integer.numberOfLeadingZeros(r - l + 1);
+        int x = sparse[j][l];
+        int y = sparse[j][r - (1 << j) + 1];
+        return parent[depth[x] <= depth[y] ? x : y];
+    }
+
+    private int number(TimeTreeNode node) {
+        Integer p = numbers.get(node);
+        if (p == null) throw new IllegalArgumentException("The node is not in the tree of this index!");
+        return p;
+    }
+
+    /**
+     * @return true if the ancestor is the node itself or one of its ancestors, in O(1).
+     */
+    public boolean isAncestor(TimeTreeNode ancestor, TimeTreeNode node) {
+        int a = number(ancestor);
+        int i = number(node);
+        return a <= i && i <= last[a];
+    }
+
+    /**
+     * @return the number of leaves under the node, in O(1).
+     */
+    public int getCladeSize(TimeTreeNode node) {
+        int p = number(node);
+        return leafEnd[p] - leafStart[p];
+    }
+
+    /**
+     * @return the leaf nodes under the node, in depth-first order.
+     */
+    public List<TimeTreeNode> getCladeLeaves(TimeTreeNode node) {
+        int p = number(node);
+        return Collections.unmodifiableList(Arrays.asList(leafOrder).subList(leafStart[p], leafEnd[p]));
+    }
+
+    /**
+     * @return the leaf indices of the leaves under the node.
+     */
+    public BitSet getClade(TimeTreeNode node) {
+        BitSet clade = new BitSet(leafOrder.length);
+        int p = number(node);
+        for (int l = leafStart[p]; l < leafEnd[p]; l++) {
+            clade.set(leafOrder[l].getLeafIndex());
+        }
+        return clade;
+    }
+
+    /**
+     * @param taxa the ids of leaf nodes.
+     * @return true if the leaves with these ids, and no others, are the descendants of their MRCA.
+     */
+    public boolean isMonophyletic(String... taxa) {
+        List<TimeTreeNode> leaves = getLeafNodes(taxa);
+        return getCladeSize(getMRCA(leaves)) == new HashSet<>(leaves).size();
+    }
+
+    /**
+     * @param id the id of a leaf node.
+     * @return the leaf node with this id, or null if there is none.
+     */
+    public TimeTreeNode getLeafNode(String id) {
+        if (leafById == null) {
+            Map<String, TimeTreeNode> map = new HashMap<>();
+            for (TimeTreeNode leaf : leafOrder) {
+                map.putIfAbsent(leaf.getId(), leaf);
+            }
+            leafById = map;
+        }
+        return leafById.get(id);
+    }
+
+    private List<TimeTreeNode> getLeafNodes(String... taxa) {
+        List<TimeTreeNode> leaves = new ArrayList<>(taxa.length);
+        for (String taxon : taxa) {
+            TimeTreeNode leaf = getLeafNode(taxon);
+            if (leaf == null) throw new IllegalArgumentException("Taxon " + taxon + " is not found in the tree!");
+            leaves.add(leaf);
+        }
+        return leaves;
+    }
+}
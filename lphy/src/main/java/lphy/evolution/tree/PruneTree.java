@@ -22,22 +22,15 @@ public class PruneTree extends DeterministicFunction<TimeTree> {
 
         Value<TimeTree> tree = getParams().get(treeParamName);
 
-        // do deep copy
-        TimeTree prunedTree = new TimeTree(tree.value());
+        TimeTree prunedTree = new TimeTree();
 
-        for (TimeTreeNode node : prunedTree.getNodes()) {
-            if (node.getId() != null) {
-                markNodeAndDirectAncestors(node);
-            }
-        }
+        // keep the named nodes and their ancestors, and remove the anonymous single-child nodes below the root
+        TimeTreeNode root = copyKeptNodes(tree.value().getRoot(), prunedTree,
+                node -> node.getId() != null,
+                node -> node.getId() == null && !node.isRoot());
+        if (root == null) throw new RuntimeException("The tree has no nodes with non-null id's to retain!");
 
-        removeUnmarkedNodes(prunedTree);
-
-        removeSingleChildNodes(prunedTree, true);
-
-        prunedTree.setRoot(prunedTree.getRoot(),true);
-
-        removeMarks(prunedTree);
+        prunedTree.setRoot(root, true);
 
         return new Value<>(null, prunedTree, this);
     }
@@ -131,8 +131,17 @@ public abstract class TaxaConditionedTreeGenerator implements GenerativeDistribu
         return leafNodes;
     }
 
+    /**
+     * Remove a uniformly drawn node from the list in constant time,
+     * by moving the last node into its place. The order of the remaining nodes is not kept.
+     */
     protected TimeTreeNode drawRandomNode(List<TimeTreeNode> nodeList) {
-        return nodeList.remove(random.nextInt(nodeList.size()));
+        int i = random.nextInt(nodeList.size());
+        int last = nodeList.size() - 1;
+        TimeTreeNode node = nodeList.get(i);
+        nodeList.set(i, nodeList.get(last));
+        nodeList.remove(last);
+        return node;
     }
 
     protected TimeTreeNode drawRandomNodeWithReplacement(List<TimeTreeNode> nodeList) {
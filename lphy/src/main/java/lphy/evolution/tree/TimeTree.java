@@ -23,6 +23,12 @@ public class TimeTree implements HasTaxa, MultiDimensional {
     // number of leaves
     int n = 0;
 
+    // incremented when the topology or a node age changes, to invalidate cached statistics
+    private int modCount = 0;
+
+    private TreeStatistics statistics = null;
+    private int statisticsModCount = -1;
+
     public TimeTree(Taxa taxa) {
         this.taxa = taxa;
         constructedWithTaxa = true;
@@ -38,15 +44,16 @@ public class TimeTree implements HasTaxa, MultiDimensional {
 
     public void setRoot(TimeTreeNode root, boolean reindexLeaves) {
 
+        modified();
         rootNode = root;
         rootNode.setParent(null);
         rootNode.tree = this;
         nodes = new ArrayList<>();
 
         fillNodeList(rootNode, reindexLeaves);
-        indexNodes(rootNode, new int[]{n});
+        indexNodes();
         // root node now last in list, first n nodes are leaves
-        nodes.sort(Comparator.comparingInt(TimeTreeNode::getIndex));
+        sortNodesByIndex();
 
         if (!constructedWithTaxa) taxa = Taxa.createTaxa(root);
     }
@@ -55,55 +62,98 @@ public class TimeTree implements HasTaxa, MultiDimensional {
         setRoot(root, false);
     }
 
-    private void indexNodes(TimeTreeNode node, int[] nextInternalIndex) {
-        if (node.isLeaf()) {
-            node.setIndex(node.getLeafIndex());
-        } else {
-            for (TimeTreeNode child : node.getChildren()) {
-                indexNodes(child, nextInternalIndex);
+    // nodes are still in post-order here, so internal nodes are numbered after their children
+    private void indexNodes() {
+        int nextInternalIndex = n;
+        for (TimeTreeNode node : nodes) {
+            if (node.isLeaf()) {
+                node.setIndex(node.getLeafIndex());
+            } else {
+                node.setIndex(nextInternalIndex);
+                nextInternalIndex += 1;
             }
-            node.setIndex(nextInternalIndex[0]);
-            nextInternalIndex[0] += 1;
         }
     }
 
+    // the indices are almost always 0 to nodeCount-1, so each node can be put straight into its place
+    private void sortNodesByIndex() {
+        TimeTreeNode[] sorted = new TimeTreeNode[nodes.size()];
+        for (TimeTreeNode node : nodes) {
+            int i = node.getIndex();
+            if (i < 0 || i >= sorted.length || sorted[i] != null) {
+                // leaf indices that were kept are not a permutation
+                nodes.sort(Comparator.comparingInt(TimeTreeNode::getIndex));
+                return;
+            }
+            sorted[i] = node;
+        }
+        nodes = new ArrayList<>(Arrays.asList(sorted));
+    }
+
+    void modified() {
+        modCount++;
+    }
+
+    /**
+     * @return a counter that changes whenever the topology or a node age of this tree changes.
+     */
+    public int getModCount() {
+        return modCount;
+    }
+
+    /**
+     * @return the summary statistics of this tree, which are memoized until the tree changes.
+     */
+    public TreeStatistics getStatistics() {
+        if (statistics == null || statisticsModCount != modCount) {
+            statistics = new TreeStatistics(this);
+            statisticsModCount = modCount;
+        }
+        return statistics;
+    }
+
+    /**
+     * @return the coalescent intervals of this tree, which are memoized until the tree changes.
+     */
+    public CoalescentIntervals getCoalescentIntervals() {
+        return getStatistics().getCoalescentIntervals();
+    }
+
+    /**
+     * @return the index for MRCA, ancestor and clade queries, which is built lazily and memoized until the tree changes.
+     */
+    public LCAIndex getLCAIndex() {
+        return getStatistics().getLCAIndex();
+    }
+
     public int getNodeCount() {
         return nodes.size();
     }
 
     public int getSingleChildNodeCount() {
-        int count = 0;
-        for (TimeTreeNode node : nodes) {
-            if (node.getChildCount() == 1) count += 1;
-        }
-        return count;
+        return getStatistics().getSingleChildNodeCount();
     }
 
     public List<TimeTreeNode> getNodes() {
         return nodes;
     }
 
-    private int fillNodeList(TimeTreeNode node, boolean reindexLeaves) {
-        if (node.isRoot()) {
-            nodes.clear();
-            n = 0;
-        }
+    private int fillNodeList(TimeTreeNode root, boolean reindexLeaves) {
+        nodes.clear();
+        n = 0;
 
-        node.tree = this;
+        new TimeTreeTraversal().fillPostOrder(root, nodes);
+        for (TimeTreeNode node : nodes) {
+            node.tree = this;
 
-        if (node.getMetaData("remove") != null) {
-            throw new RuntimeException("A node that should be removed has not been!" + node.id);
-        }
+            if (node.getMetaData("remove") != null) {
+                throw new RuntimeException("A node that should be removed has not been!" + node.id);
+            }
 
-        if (node.isLeaf()) {
-            nodes.add(node);
-            if (node.getLeafIndex() == -1 || reindexLeaves) node.setLeafIndex(n);
-            n += 1;
-        } else {
-            for (TimeTreeNode child : node.getChildren()) {
-                fillNodeList(child, reindexLeaves);
+            if (node.isLeaf()) {
+                if (node.getLeafIndex() == -1 || reindexLeaves) node.setLeafIndex(n);
+                n += 1;
             }
-            nodes.add(node);
         }
 
         return nodes.size();
@@ -121,11 +171,30 @@ public class TimeTree implements HasTaxa, MultiDimensional {
         return builder.toString();
     }
 
-    private void toNewick(TimeTreeNode node, StringBuilder builder, boolean includeSingleChildNodes) {
-        if (!includeSingleChildNodes && node.getChildCount() == 1) {
-            //System.out.println("Skip single child node " + node.getId());
-            toNewick(node.getChildren().get(0), builder, includeSingleChildNodes);
-        } else {
+    private void toNewick(TimeTreeNode root, StringBuilder builder, boolean includeSingleChildNodes) {
+        // the stack holds either nodes still to write, or text to append once their subtrees are written
+        ArrayDeque<Object> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            Object top = stack.pop();
+            if (top instanceof String) {
+                builder.append((String) top);
+                continue;
+            }
+            TimeTreeNode node = (TimeTreeNode) top;
+            if (!includeSingleChildNodes && node.getChildCount() == 1) {
+                //System.out.println("Skip single child node " + node.getId());
+                stack.push(node.getChildren().get(0));
+                continue;
+            }
+
+            if (node.isRoot()) {
+                stack.push(":0.0;");
+            } else {
+                double branchLength = getBranchLength(node, includeSingleChildNodes);
+                stack.push(":" + branchLength);
+            }
+
             if (node.isLeaf()) {
                 builder.append(node.id);
                 SortedMap<String, Object> metaData = node.metaData;
@@ -139,22 +208,14 @@ public class TimeTree implements HasTaxa, MultiDimensional {
                     builder.append("]");
                 }
             } else {
-
                 builder.append("(");
+                stack.push(")");
                 List<TimeTreeNode> children = node.getChildren();
-                toNewick(children.get(0), builder, includeSingleChildNodes);
-                for (int i = 1; i < children.size(); i++) {
-                    builder.append(",");
-                    toNewick(children.get(i), builder, includeSingleChildNodes);
+                for (int i = children.size() - 1; i > 0; i--) {
+                    stack.push(children.get(i));
+                    stack.push(",");
                 }
-                builder.append(")");
-            }
-            if (node.isRoot()) {
-                builder.append(":0.0;");
-            } else {
-                builder.append(":");
-                double branchLength = getBranchLength(node, includeSingleChildNodes);
-                builder.append(branchLength);
+                stack.push(children.get(0));
             }
         }
     }
@@ -223,14 +284,7 @@ public class TimeTree implements HasTaxa, MultiDimensional {
 
     @MethodInfo(description = "the total length of the tree")
     public Double treeLength() {
-
-        double TL = 0.0;
-        for (TimeTreeNode node : getNodes()) {
-            if (!node.isRoot()) {
-                TL += node.getParent().age - node.age;
-            }
-        }
-        return TL;
+        return getStatistics().getTreeLength();
     }
 
     @MethodInfo(description = "the age of the root of the tree.")
@@ -246,29 +300,31 @@ public class TimeTree implements HasTaxa, MultiDimensional {
 
     @MethodInfo(description = "the total number of extant leaves in the tree (leaf nodes with age 0.0).")
     public Integer extantCount() {
-        int count = 0;
-        for (TimeTreeNode node : getNodes()) {
-            if (node.age == 0.0 && node.isLeaf()) count += 1;
-        }
-        return count;
+        return getStatistics().getExtantCount();
     }
 
     @MethodInfo(description = "the total number of leaf nodes in the tree (leaf nodes with any age, but excluding zero-branch-length leaf nodes, which are logically direct ancestors).")
     public Integer leafCount() {
         int count = 0;
-        for (TimeTreeNode node : getNodes()) {
-            if (node.isLeaf() && !node.isDirectAncestor()) count += 1;
+        for (TimeTreeNode node : getStatistics().getLeafNodes()) {
+            if (!node.isDirectAncestor()) count += 1;
         }
         return count;
     }
 
     @MethodInfo(description = "the total number of nodes in the tree that are direct ancestors (i.e. have a single parent and a single child, or have one child that is a zero-branch-length leaf).")
     public Integer directAncestorCount() {
-        int count = 0;
-        for (TimeTreeNode node : getNodes()) {
-            if (node.isDirectAncestor()) count += 1;
-        }
-        return count;
+        return getStatistics().getDirectAncestorCount();
+    }
+
+    @MethodInfo(description = "the age of the most recent common ancestor of the given taxa.")
+    public Double mrcaAge(String[] taxa) {
+        return getLCAIndex().getMRCA(taxa).getAge();
+    }
+
+    @MethodInfo(description = "returns true if the given taxa form a clade in the tree.")
+    public Boolean isMonophyletic(String[] taxa) {
+        return getLCAIndex().isMonophyletic(taxa);
     }
 
     @MethodInfo(description = "the taxa of the tree.")
@@ -35,7 +35,6 @@ public class TimeTreeNode {
 
     public TimeTreeNode(double age, TimeTreeNode[] children) {
         this.age = age;
-        this.children = new ArrayList<>();
         Collections.addAll(this.children, children);
         for (TimeTreeNode child : children) {
             child.parent = this;
@@ -49,14 +48,29 @@ public class TimeTreeNode {
     }
 
     TimeTreeNode deepCopy(TimeTree tree) {
+        // in post-order, the copies of a node's children are the last ones on the stack
+        List<TimeTreeNode> copies = new ArrayList<>();
+        for (TimeTreeNode node : TimeTreeTraversal.getPostOrder(this)) {
+            TimeTreeNode copy = node.shallowCopy(tree);
+            int childCount = node.getChildCount();
+            List<TimeTreeNode> childCopies = copies.subList(copies.size() - childCount, copies.size());
+            for (TimeTreeNode childCopy : childCopies) {
+                copy.addChild(childCopy);
+            }
+            childCopies.clear();
+            copies.add(copy);
+        }
+        return copies.get(0);
+    }
+
+    /**
+     * @return a copy of this node without parent or children, belonging to the given tree.
+     */
+    TimeTreeNode shallowCopy(TimeTree tree) {
         TimeTreeNode copy = new TimeTreeNode(id, tree);
-        copy.id = id;
         copy.index = index;
         copy.age = age;
         copy.leafIndex = leafIndex;
-        for (TimeTreeNode child : children) {
-            copy.addChild(child.deepCopy(tree));
-        }
         return copy;
     }
 
@@ -158,16 +172,24 @@ public class TimeTreeNode {
         }
         children.add(child);
         if (child != null) child.parent = this;
+        treeModified();
     }
 
     public void removeChild(TimeTreeNode child) {
         child.parent = null;
         children.remove(child);
+        treeModified();
     }
 
 
     public final void setAge(double age) {
         this.age = age;
+        treeModified();
+    }
+
+    // invalidate the statistics cached on the tree, which only depend on the topology and the ages
+    private void treeModified() {
+        if (tree != null) tree.modified();
     }
 
     public final void setId(String id) {
@@ -190,16 +212,9 @@ public class TimeTreeNode {
         return leafNodes;
     }
 
-    // recursive
     public void getAllLeafNodes(final List<TimeTreeNode> leafNodes) {
-        if (this.isLeaf()) {
-            leafNodes.add(this);
-        }
-
-        if (!isLeaf()) {
-            for (TimeTreeNode child : children) {
-                child.getAllLeafNodes(leafNodes);
-            }
+        for (TimeTreeNode node : TimeTreeTraversal.getPreOrder(this)) {
+            if (node.isLeaf()) leafNodes.add(node);
         }
     }
 
@@ -207,12 +222,9 @@ public class TimeTreeNode {
      * sorts nodes in children according to lowest numbered label in subtree
      */
     public void sort() {
-
-        if (!isLeaf()) {
-            for (TimeTreeNode child : children) {
-                child.sort();
-            }
-            children.sort(Comparator.comparingInt(o -> o.index));
+        // children are sorted before their parents
+        for (TimeTreeNode node : TimeTreeTraversal.getPostOrder(this)) {
+            if (!node.isLeaf()) node.children.sort(Comparator.comparingInt(o -> o.index));
         }
     }
 
@@ -222,11 +234,7 @@ public class TimeTreeNode {
      */
     public int getTotalDescendantNodeCount() {
         if (isLeaf()) return 1;
-        int count = 1;
-        for (TimeTreeNode child : getChildren()) {
-            count += child.getTotalDescendantNodeCount();
-        }
-        return count;
+        return TimeTreeTraversal.getPreOrder(this).size();
     }
 
     /**
@@ -252,6 +260,7 @@ public class TimeTreeNode {
         if (children.size() > 0) {
             children.set(0, left);
             left.setParent(this);
+            treeModified();
         } else {
             addChild(left);
         }
@@ -260,6 +269,7 @@ public class TimeTreeNode {
     public void setRight(TimeTreeNode right) {
         if (children.size() > 1) {
             children.set(1, right);
+            treeModified();
         } else {
             if (children.size() < 1) {
                 addChild(null);
@@ -275,8 +285,8 @@ public class TimeTreeNode {
     public int countLeaves() {
         if (isLeaf()) return 1;
         int leafCount = 0;
-        for (TimeTreeNode child : getChildren()) {
-            leafCount += child.countLeaves();
+        for (TimeTreeNode node : TimeTreeTraversal.getPreOrder(this)) {
+            if (node.isLeaf()) leafCount += 1;
         }
         return leafCount;
     }
@@ -0,0 +1,100 @@
+package lphy.evolution.tree;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Iterative pre-order and post-order traversals of a {@link TimeTreeNode} subtree.
+ * They use an explicit stack instead of recursion, so nearly caterpillar-shaped trees
+ * with tens of thousands of tips do not overflow the thread stack.
+ * An instance reuses its stack and result list between calls, so the list returned by
+ * {@link #preOrder(TimeTreeNode)} and {@link #postOrder(TimeTreeNode)} is only valid until the next call.
+ * Use the static methods to get a fresh list.
+ * Children are visited in the order of {@link TimeTreeNode#getChildren()}.
+ */
+public class TimeTreeTraversal {
+
+    private final ArrayDeque<TimeTreeNode> stack = new ArrayDeque<>();
+    private final List<TimeTreeNode> order = new ArrayList<>();
+
+    /**
+     * @param root the root of the subtree
+     * @return the nodes of the subtree with every node before its children.
+     *         The list is reused by the next call to this traversal.
+     */
+    public List<TimeTreeNode> preOrder(TimeTreeNode root) {
+        order.clear();
+        fillPreOrder(root, order);
+        return order;
+    }
+
+    /**
+     * @param root the root of the subtree
+     * @return the nodes of the subtree with every node after its children.
+     *         The list is reused by the next call to this traversal.
+     */
+    public List<TimeTreeNode> postOrder(TimeTreeNode root) {
+        order.clear();
+        fillPostOrder(root, order);
+        return order;
+    }
+
+    /**
+     * Add the nodes of the subtree to the given list in pre-order.
+     */
+    public void fillPreOrder(TimeTreeNode root, List<TimeTreeNode> nodes) {
+        stack.clear();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            TimeTreeNode node = stack.pop();
+            nodes.add(node);
+            List<TimeTreeNode> children = node.getChildren();
+            // push in reverse, so the first child is visited first
+            for (int i = node.getChildCount() - 1; i >= 0; i--) {
+                stack.push(children.get(i));
+            }
+        }
+    }
+
+    /**
+     * Add the nodes of the subtree to the given list in post-order.
+     */
+    public void fillPostOrder(TimeTreeNode root, List<TimeTreeNode> nodes) {
+        // a pre-order visiting the last child first, reversed, is the post-order visiting the first child first
+        int start = nodes.size();
+        stack.clear();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            TimeTreeNode node = stack.pop();
+            nodes.add(node);
+            List<TimeTreeNode> children = node.getChildren();
+            for (int i = 0; i < node.getChildCount(); i++) {
+                stack.push(children.get(i));
+            }
+        }
+        for (int i = start, j = nodes.size() - 1; i < j; i++, j--) {
+            TimeTreeNode tmp = nodes.get(i);
+            nodes.set(i, nodes.get(j));
+            nodes.set(j, tmp);
+        }
+    }
+
+    /**
+     * @return a new list of the nodes of the subtree in pre-order.
+     */
+    public static List<TimeTreeNode> getPreOrder(TimeTreeNode root) {
+        List<TimeTreeNode> nodes = new ArrayList<>();
+        new TimeTreeTraversal().fillPreOrder(root, nodes);
+        return nodes;
+    }
+
+    /**
+     * @return a new list of the nodes of the subtree in post-order.
+     */
+    public static List<TimeTreeNode> getPostOrder(TimeTreeNode root) {
+        List<TimeTreeNode> nodes = new ArrayList<>();
+        new TimeTreeTraversal().fillPostOrder(root, nodes);
+        return nodes;
+    }
+}
@@ -2,6 +2,8 @@ package lphy.evolution.tree;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
+import java.util.function.Predicate;
 
 public class TimeTreeUtils {
 
@@ -16,6 +18,43 @@ public class TimeTreeUtils {
         return getFirstNonSingleChildNode(node.getChildren().get(0));
     }
 
+    /**
+     * Copies the nodes of a subtree that are kept, or have a kept descendant, in a single post-order pass,
+     * without copying or marking the rest of the subtree.
+     * @param root the root of the subtree to copy from, which is left unchanged.
+     * @param tree the tree the copied nodes will belong to.
+     * @param keep true for a node that is kept for its own sake, rather than because it has a kept descendant.
+     * @param spliceSingleChild true for a node that is removed if only one of its children has kept descendants,
+     *                          so that the copy of that child takes its place.
+     * @return the root of the copied subtree, or null if no node is kept.
+     */
+    public static TimeTreeNode copyKeptNodes(TimeTreeNode root, TimeTree tree,
+                                             Predicate<TimeTreeNode> keep, Predicate<TimeTreeNode> spliceSingleChild) {
+        // in post-order, the copies of a node's children are the last ones on the stack, or null if they were not kept
+        List<TimeTreeNode> postOrder = TimeTreeTraversal.getPostOrder(root);
+        List<TimeTreeNode> copies = new ArrayList<>();
+        for (TimeTreeNode node : postOrder) {
+            int childCount = node.getChildCount();
+            List<TimeTreeNode> childCopies = copies.subList(copies.size() - childCount, copies.size());
+            childCopies.removeIf(Objects::isNull);
+
+            TimeTreeNode copy;
+            if (childCopies.isEmpty()) {
+                copy = keep.test(node) ? node.shallowCopy(tree) : null;
+            } else if (childCopies.size() == 1 && spliceSingleChild.test(node)) {
+                copy = childCopies.get(0);
+            } else {
+                copy = node.shallowCopy(tree);
+                for (TimeTreeNode childCopy : childCopies) {
+                    copy.addChild(childCopy);
+                }
+            }
+            childCopies.clear();
+            copies.add(copy);
+        }
+        return copies.get(0);
+    }
+
     public static void removeSingleChildNodes(TimeTree tree) {
         removeSingleChildNodes(tree, false);
     }
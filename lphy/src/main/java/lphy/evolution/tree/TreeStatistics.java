@@ -0,0 +1,118 @@
+package lphy.evolution.tree;
+
+import java.util.*;
+
+/**
+ * Summary statistics of a {@link TimeTree}, computed together in a single pass over its nodes.
+ * Use {@link TimeTree#getStatistics()} to get the statistics memoized on the tree,
+ * which are recomputed only after the tree has been changed.
+ * Statistics that need more than the node list, i.e. the coalescent intervals and the LCA index,
+ * are computed on first request and memoized here as well.
+ * Only changes to the topology or the ages invalidate the statistics, so none of them may depend on node metadata.
+ */
+public class TreeStatistics {
+
+    private final TimeTree tree;
+
+    private double treeLength = 0.0;
+    private int leafCount = 0;
+    private int extantCount = 0;
+    private int singleChildNodeCount = 0;
+    private int directAncestorCount = 0;
+    private final List<TimeTreeNode> leafNodes;
+
+    private CoalescentIntervals coalescentIntervals = null;
+    private LCAIndex lcaIndex = null;
+
+    public TreeStatistics(TimeTree tree) {
+        this.tree = tree;
+        List<TimeTreeNode> nodes = tree.getNodes();
+        List<TimeTreeNode> leaves = new ArrayList<>(tree.n());
+
+        for (TimeTreeNode node : nodes) {
+            TimeTreeNode parent = node.getParent();
+            if (parent != null) treeLength += parent.age - node.age;
+
+            if (node.isLeaf()) {
+                leaves.add(node);
+                if (node.age == 0.0) extantCount += 1;
+            } else if (node.getChildCount() == 1) {
+                singleChildNodeCount += 1;
+            }
+            // tolerates a tree with a single leaf, which is its own root
+            if (parent != null && node.isDirectAncestor()) directAncestorCount += 1;
+        }
+        leafCount = leaves.size();
+        leafNodes = Collections.unmodifiableList(leaves);
+    }
+
+    /**
+     * @return the sum of all the branch lengths.
+     */
+    public double getTreeLength() {
+        return treeLength;
+    }
+
+    /**
+     * @return the number of leaf nodes, including zero-branch-length leaves.
+     */
+    public int getLeafCount() {
+        return leafCount;
+    }
+
+    /**
+     * @return the number of leaf nodes with age 0.0.
+     */
+    public int getExtantCount() {
+        return extantCount;
+    }
+
+    /**
+     * @return the number of nodes with a single child, including an origin.
+     */
+    public int getSingleChildNodeCount() {
+        return singleChildNodeCount;
+    }
+
+    /**
+     * @return the number of single-child non-origin nodes and zero-branch-length leaves.
+     */
+    public int getDirectAncestorCount() {
+        return directAncestorCount;
+    }
+
+    /**
+     * @return the leaf nodes in node index order, as an unmodifiable list.
+     */
+    public List<TimeTreeNode> getLeafNodes() {
+        return leafNodes;
+    }
+
+    public CoalescentIntervals getCoalescentIntervals() {
+        if (coalescentIntervals == null) coalescentIntervals = new CoalescentIntervals(tree);
+        return coalescentIntervals;
+    }
+
+    public LCAIndex getLCAIndex() {
+        if (lcaIndex == null) lcaIndex = new LCAIndex(tree);
+        return lcaIndex;
+    }
+
+    /**
+     * The migration count depends on the metadata, which can change without invalidating the statistics,
+     * so it is counted again on every call.
+     * @param label the metadata key of the population or trait, e.g. "deme".
+     * @return the number of single-child nodes whose label differs from that of their child.
+     */
+    public int getMigrationCount(String label) {
+        int migrationCount = 0;
+        for (TimeTreeNode node : tree.getNodes()) {
+            if (node.getChildCount() == 1) {
+                if (!node.getMetaData(label).equals(node.getChildren().get(0).getMetaData(label))) {
+                    migrationCount += 1;
+                }
+            }
+        }
+        return migrationCount;
+    }
+}
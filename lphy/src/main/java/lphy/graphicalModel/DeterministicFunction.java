@@ -1,16 +1,109 @@
 package lphy.graphicalModel;
 
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
 public abstract class DeterministicFunction<T> extends Func {
 
+    /**
+     * The system property to memoize deterministic functions from the start, see {@link #setMemoized(boolean)}.
+     */
+    public static final String MEMOIZED_PROPERTY = "lphy.memoizeFunctions";
+
+    private static volatile boolean memoized = Boolean.getBoolean(MEMOIZED_PROPERTY);
+
+    private static final LongAdder cacheHits = new LongAdder();
+    private static final LongAdder evaluations = new LongAdder();
+
+    // the output of the last evaluation, and the inputs and their versions it was computed from
+    private Value<T> output;
+    private Value[] inputs;
+    private int[] versions;
+
     public abstract Value<T> apply();
 
+    /**
+     * If functions are memoized, the output is only computed again
+     * after an input value has been replaced by {@link #setInput} or changed by {@link Value#setValue}.
+     * Otherwise it is computed on every call.
+     */
     public Value<T> generate() {
-        return apply();
+        if (!memoized) return apply();
+        return memoizedApply();
     }
 
+    /**
+     * @return the value of {@link #generate()}, which is only computed on demand if functions are memoized.
+     */
     @Override
     public T value() {
-    	return apply().value();
+        return generate().value();
+    }
+
+    private synchronized Value<T> memoizedApply() {
+        Map<String, Value> params = getParams();
+        if (output != null && inputsUnchanged(params)) {
+            cacheHits.increment();
+            return output;
+        }
+        evaluations.increment();
+        Value<T> newOutput = apply();
+
+        Value[] newInputs = new Value[params.size()];
+        int[] newVersions = new int[newInputs.length];
+        int i = 0;
+        for (Value input : params.values()) {
+            newInputs[i] = input;
+            newVersions[i] = input != null ? input.getVersion() : 0;
+            i += 1;
+        }
+        output = newOutput;
+        inputs = newInputs;
+        versions = newVersions;
+        return output;
+    }
+
+    private boolean inputsUnchanged(Map<String, Value> params) {
+        if (params.size() != inputs.length) return false;
+        int i = 0;
+        for (Value input : params.values()) {
+            if (input != inputs[i] || (input != null && input.getVersion() != versions[i])) return false;
+            i += 1;
+        }
+        return true;
+    }
+
+    /**
+     * Memoizing avoids computing a function again when its inputs have not changed,
+     * e.g. a rate matrix of constant parameters shared by many partitions,
+     * but assumes that the output only depends on the values of the parameters in {@link #getParams()}.
+     * @param memoized true to memoize the outputs of all deterministic functions.
+     */
+    public static void setMemoized(boolean memoized) {
+        DeterministicFunction.memoized = memoized;
+    }
+
+    public static boolean isMemoized() {
+        return memoized;
+    }
+
+    /**
+     * @return the number of times a memoized output was reused since the last reset.
+     */
+    public static long getCacheHits() {
+        return cacheHits.sum();
+    }
+
+    /**
+     * @return the number of times a memoized function was computed since the last reset.
+     */
+    public static long getEvaluations() {
+        return evaluations.sum();
+    }
+
+    public static void resetCacheStatistics() {
+        cacheHits.reset();
+        evaluations.reset();
     }
 
     @Override
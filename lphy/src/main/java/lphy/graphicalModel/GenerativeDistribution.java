@@ -29,6 +29,19 @@ public interface GenerativeDistribution<T> extends Generator<T> {
         return v;
     }
 
+    /**
+     * Optional bulk sampling for distributions of doubles, which draws many independent values into a primitive array
+     * without creating a random variable, or a distribution, for each of them.
+     * Used by vectorized and iid distributions when the base distribution supports it.
+     * @param params the parameter values by name, each either a value of the parameter type shared by all the draws,
+     *               or an array with one value for each draw.
+     * @param draws filled with one draw for each element.
+     * @return true if the draws were filled, false if this distribution does not support bulk sampling, or these parameters.
+     */
+    default boolean sampleDoubles(Map<String, Value> params, double[] draws) {
+        return false;
+    }
+
     default double density(T t) {
         return Math.exp(logDensity(t));
     }
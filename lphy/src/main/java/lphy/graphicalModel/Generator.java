@@ -2,6 +2,7 @@ package lphy.graphicalModel;
 
 import lphy.core.narrative.Narrative;
 import lphy.parser.functions.ExpressionNode;
+import lphy.reflection.Invokers;
 import net.steppschuh.markdowngenerator.link.Link;
 import net.steppschuh.markdowngenerator.list.UnorderedList;
 import net.steppschuh.markdowngenerator.text.Text;
@@ -148,18 +149,18 @@ public interface Generator<T> extends GraphicalModelNode<T> {
         String methodName = "set" + Character.toUpperCase(paramName.charAt(0)) + paramName.substring(1);
 
         try {
-            Method method = getClass().getMethod(methodName, value.value().getClass());
-
-            method.invoke(this, value.value());
-        } catch (NoSuchMethodException e) {
-
-            Method[] methods = getClass().getMethods();
-            for (Method method : methods) {
-                if (method.getName().equals(methodName)) {
-                    try {
-                        method.invoke(this, value.value());
-                        break;
-                    } catch (InvocationTargetException | IllegalAccessException ignored) {
+            Method method = Invokers.findMethod(getClass(), methodName, value.value().getClass());
+
+            if (method != null) {
+                Invokers.invoke(method, this, value.value());
+            } else {
+                for (Method m : Invokers.getMethods(getClass())) {
+                    if (m.getName().equals(methodName)) {
+                        try {
+                            Invokers.invoke(m, this, value.value());
+                            break;
+                        } catch (InvocationTargetException | IllegalAccessException ignored) {
+                        }
                     }
                 }
             }
@@ -0,0 +1,95 @@
+package lphy.graphicalModel;
+
+import lphy.core.distributions.IID;
+
+import java.lang.reflect.Constructor;
+import java.util.*;
+
+/**
+ * The signature of a public constructor of a generator, i.e. its arguments with their names, generic types and optionality,
+ * inspected once so that matching the named arguments of a generator call is a few set lookups.
+ * {@link lphy.LPhyExtensionFactory} keeps the signatures of all registered generators.
+ */
+public class GeneratorSignature {
+
+    private final Constructor<?> constructor;
+    private final List<Argument> arguments;
+
+    private final Set<String> requiredNames = new HashSet<>();
+    private final Set<String> optionalNames = new HashSet<>();
+    // true if it is a generative distribution without a replicates argument of its own, so can be the base of an IID
+    private final boolean replicable;
+
+    public GeneratorSignature(Constructor<?> constructor) {
+        this.constructor = constructor;
+        arguments = Collections.unmodifiableList(Generator.getArguments(constructor));
+
+        for (Argument argument : arguments) {
+            if (argument.optional) optionalNames.add(argument.name);
+            else requiredNames.add(argument.name);
+        }
+        replicable = GenerativeDistribution.class.isAssignableFrom(constructor.getDeclaringClass()) &&
+                !requiredNames.contains(IID.replicatesParamName) && !optionalNames.contains(IID.replicatesParamName);
+    }
+
+    public Constructor<?> getConstructor() {
+        return constructor;
+    }
+
+    /**
+     * @return the arguments in the order of the constructor parameters, as an unmodifiable list.
+     */
+    public List<Argument> getArguments() {
+        return arguments;
+    }
+
+    public boolean isAllOptional() {
+        return requiredNames.isEmpty();
+    }
+
+    public boolean isReplicable() {
+        return replicable;
+    }
+
+    /**
+     * A match occurs if the required arguments are among the names and the remaining names are optional arguments,
+     * or the replicates argument of an IID.
+     * @param names the names of the arguments of a generator call.
+     */
+    public boolean matchesNames(Set<String> names) {
+        int required = 0;
+        for (String name : names) {
+            if (requiredNames.contains(name)) required += 1;
+            else if (!optionalNames.contains(name) && !name.equals(IID.replicatesParamName)) return false;
+        }
+        return required == requiredNames.size();
+    }
+
+    /**
+     * @return the constructor arguments for the named values, with null for missing optional arguments.
+     */
+    public Object[] getInitArgs(Map<String, Value> values) {
+        Object[] initArgs = new Object[arguments.size()];
+        for (int i = 0; i < initArgs.length; i++) {
+            Argument argument = arguments.get(i);
+            Value value = values.get(argument.name);
+            if (value == null && !argument.optional) {
+                throw new RuntimeException("Required argument " + argument.name + " not found!");
+            }
+            initArgs[i] = value;
+        }
+        return initArgs;
+    }
+
+    /**
+     * @return the signatures of the public constructors of the generator class.
+     */
+    public static List<GeneratorSignature> getSignatures(Class<?> generatorClass) {
+        Constructor<?>[] constructors = generatorClass.getConstructors();
+        List<GeneratorSignature> signatures = new ArrayList<>(constructors.length);
+        for (Constructor<?> constructor : constructors) {
+            signatures.add(new GeneratorSignature(constructor));
+        }
+        return Collections.unmodifiableList(signatures);
+    }
+}
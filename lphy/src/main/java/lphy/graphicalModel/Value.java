@@ -15,6 +15,8 @@ public class Value<T> implements GraphicalModelNode<T> {
     private String id;
     List<ValueListener> listeners = new ArrayList<>();
     List<GraphicalModelNode> outputs = new ArrayList<>();
+    // incremented by every setValue, so that the functions of this value can tell it has changed
+    private int version = 0;
 
     // the function that produced this value, or null if this value was initialized another way;
     DeterministicFunction<T> function = null;
@@ -95,11 +97,19 @@ public class Value<T> implements GraphicalModelNode<T> {
     public void setValue(T value) {
         T oldValue = this.value;
         this.value = value;
+        version += 1;
         for (ValueListener listener : listeners) {
             listener.valueSet(oldValue, value);
         }
     }
 
+    /**
+     * @return the number of times the value has been set since construction.
+     */
+    public int getVersion() {
+        return version;
+    }
+
     // returns a unique id for this value for internal purposes.
     public String getUniqueId() {
         if (!isAnonymous()) return getId();
@@ -2,6 +2,7 @@ package lphy.graphicalModel;
 
 import lphy.core.distributions.IID;
 import lphy.graphicalModel.types.VectorValue;
+import lphy.reflection.Invokers;
 
 import java.lang.reflect.Array;
 import java.lang.reflect.Constructor;
@@ -125,7 +126,7 @@ public class VectorUtils {
             }
         }
 
-        return (Generator) constructor.newInstance(args);
+        return (Generator) Invokers.newInstance(constructor, args);
     }
 
 
@@ -167,7 +168,7 @@ public class VectorUtils {
             }
         }
 
-        return (Generator) constructor.newInstance(args);
+        return (Generator) Invokers.newInstance(constructor, args);
     }
 
     /**
@@ -212,6 +213,36 @@ public class VectorUtils {
         return false;
     }
 
+    /**
+     * @param value a number shared by all the elements, or an array of numbers with one for each element.
+     * @param size the number of elements.
+     * @return the numbers of the elements as doubles, or null if the value is neither a number nor an array of numbers of that size.
+     */
+    public static double[] broadcastDoubles(Value value, int size) {
+        if (value == null) return null;
+        Object v = value.value();
+        double[] doubles = new double[size];
+        if (v instanceof Number) {
+            Arrays.fill(doubles, ((Number) v).doubleValue());
+        } else if (v instanceof Number[] && ((Number[]) v).length == size) {
+            Number[] numbers = (Number[]) v;
+            for (int i = 0; i < size; i++) {
+                doubles[i] = numbers[i].doubleValue();
+            }
+        } else {
+            return null;
+        }
+        return doubles;
+    }
+
+    public static Double[] box(double[] doubles) {
+        Double[] boxed = new Double[doubles.length];
+        for (int i = 0; i < doubles.length; i++) {
+            boxed[i] = doubles[i];
+        }
+        return boxed;
+    }
+
     public static Object getElement(Value value, int i) {
         if (value instanceof Vector) {
             return ((VectorValue)value).getComponent(i);
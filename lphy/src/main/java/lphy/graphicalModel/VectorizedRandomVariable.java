@@ -2,11 +2,14 @@ package lphy.graphicalModel;
 
 import java.lang.reflect.Array;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.function.IntFunction;
 
 public class VectorizedRandomVariable<T> extends RandomVariable<T[]> implements CompoundVector<T> {
 
     List<RandomVariable<T>> componentVariables = new ArrayList<>();
+    IntFunction<GenerativeDistribution<T>> componentGenerators = null;
 
 //    public VectorizedRandomVariable(String id, T[] value, GenerativeDistribution<T[]> generativeDistribution, List<GenerativeDistribution<T>> componentGenerators) {
 //        super(id, value, generativeDistribution);
@@ -25,6 +28,16 @@ public class VectorizedRandomVariable<T> extends RandomVariable<T[]> implements
         }
     }
 
+    /**
+     * A vector drawn in bulk, whose component random variables are only created when they are asked for.
+     * @param componentGenerators the generator of each component.
+     */
+    public VectorizedRandomVariable(String id, T[] value, GenerativeDistribution<T[]> generativeDistribution, IntFunction<GenerativeDistribution<T>> componentGenerators) {
+        super(id, value, generativeDistribution);
+        this.componentVariables = new ArrayList<>(Collections.nCopies(value.length, null));
+        this.componentGenerators = componentGenerators;
+    }
+
     private static Object[] unwrapValues(List<RandomVariable> values) {
         Object[] result = (Object[]) Array.newInstance(values.get(0).value().getClass(), values.size());
         for (int i = 0; i < result.length; i++) {
@@ -36,7 +49,8 @@ public class VectorizedRandomVariable<T> extends RandomVariable<T[]> implements
     public void setId(String id) {
         super.setId(id);
         for (int i = 0; i < componentVariables.size(); i++) {
-            componentVariables.get(i).setId(id + VectorUtils.INDEX_SEPARATOR + i);
+            RandomVariable<T> componentVariable = componentVariables.get(i);
+            if (componentVariable != null) componentVariable.setId(id + VectorUtils.INDEX_SEPARATOR + i);
         }
     }
 
@@ -57,6 +71,12 @@ public class VectorizedRandomVariable<T> extends RandomVariable<T[]> implements
 
     @Override
     public RandomVariable<T> getComponentValue(int i) {
-        return componentVariables.get(i);
+        RandomVariable<T> componentVariable = componentVariables.get(i);
+        if (componentVariable == null) {
+            String componentId = getId() == null ? null : getId() + VectorUtils.INDEX_SEPARATOR + i;
+            componentVariable = new RandomVariable<>(componentId, value()[i], componentGenerators.apply(i));
+            componentVariables.set(i, componentVariable);
+        }
+        return componentVariable;
     }
 }
@@ -0,0 +1,73 @@
+package lphy.parser;
+
+import org.antlr.v4.runtime.ANTLRErrorListener;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.tree.ParseTree;
+
+import java.lang.ref.SoftReference;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The parse trees of the scripts parsed before, keyed by their content,
+ * so that parsing the same script again, e.g. to simulate it with another seed, skips lexing and parsing.
+ * The visitors of the listeners only read the parse trees, so a tree can be visited any number of times.
+ * The tokens of a tree refer back to the lexer, so the error listeners, which may hold the listener of the parsed model,
+ * are removed before a tree is cached. The trees are softly referenced and the least recently used tree is evicted
+ * beyond {@link #MAX_CACHED_TREES}, so the cache never keeps the memory of large scripts from being reclaimed.
+ */
+final class ParseTreeCache {
+
+    static final int MAX_CACHED_TREES = 64;
+
+    private static final Map<String, SoftReference<ParseTree>> parseTrees = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, SoftReference<ParseTree>> eldest) {
+            return size() > MAX_CACHED_TREES;
+        }
+    };
+
+    private ParseTreeCache() {
+    }
+
+    /**
+     * @param script         the script of {@link SimulatorParser#input()}.
+     * @param errorListener  the error listener of the lexer and the parser if the script has not been parsed before.
+     *                       Only the trees of scripts without syntax errors are cached.
+     * @return the parse tree of the script.
+     */
+    static ParseTree getParseTree(String script, ANTLRErrorListener errorListener) {
+        synchronized (parseTrees) {
+            SoftReference<ParseTree> reference = parseTrees.get(script);
+            ParseTree parseTree = reference == null ? null : reference.get();
+            if (parseTree != null) return parseTree;
+            // the tree has been reclaimed
+            if (reference != null) parseTrees.remove(script);
+        }
+
+        // Get our lexer
+        SimulatorLexer lexer = new SimulatorLexer(CharStreams.fromString(script));
+        lexer.removeErrorListeners();
+        lexer.addErrorListener(errorListener);
+
+        // Get a list of matched tokens
+        CommonTokenStream tokens = new CommonTokenStream(lexer);
+
+        // Pass the tokens to the parser
+        SimulatorParser parser = new SimulatorParser(tokens);
+        parser.removeErrorListeners();
+        parser.addErrorListener(errorListener);
+
+        ParseTree parseTree = parser.input();
+        // a syntax error the error listener does not throw leaves the tree incomplete
+        if (parser.getNumberOfSyntaxErrors() == 0) {
+            lexer.removeErrorListeners();
+            parser.removeErrorListeners();
+            synchronized (parseTrees) {
+                parseTrees.put(script, new SoftReference<>(parseTree));
+            }
+        }
+        return parseTree;
+    }
+}
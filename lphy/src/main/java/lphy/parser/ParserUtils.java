@@ -7,6 +7,7 @@ import lphy.core.distributions.VectorizedDistribution;
 import lphy.core.functions.VectorizedFunction;
 import lphy.evolution.datatype.SequenceTypeFactory;
 import lphy.graphicalModel.*;
+import lphy.reflection.Invokers;
 import lphy.util.LoggerUtils;
 
 import java.lang.reflect.Constructor;
@@ -15,6 +16,7 @@ import java.util.*;
 
 public class ParserUtils {
 
+    static LPhyExtensionFactory factory;
     static Map<String, Set<Class<?>>> genDistDictionary;
     static Map<String, Set<Class<?>>> functionDictionary;
     public static Set<String> bivarOperators;
@@ -27,7 +29,7 @@ public class ParserUtils {
     static {
         // registration process is moved to LPhyExtensionFactory
 
-        LPhyExtensionFactory factory = LPhyExtensionFactory.getInstance();
+        factory = LPhyExtensionFactory.getInstance();
         genDistDictionary = factory.genDistDictionary;
         functionDictionary = factory.functionDictionary;
 
@@ -82,77 +84,29 @@ public class ParserUtils {
 
         List<Generator> matches = new ArrayList<>();
 
-        for (Constructor constructor : generatorClass.getConstructors()) {
-            List<Argument> argumentInfo = Generator.getArguments(constructor);
-            List<Object> initargs = new ArrayList<>();
-
-            if (match(arguments, argumentInfo)) {
-
-                for (int i = 0; i < argumentInfo.size(); i++) {
-                    Value arg = arguments.get(argumentInfo.get(i).name);
-                    if (arg != null) {
-                        initargs.add(arg);
-                    } else if (!argumentInfo.get(i).optional) {
-                        throw new RuntimeException("Required argument " + argumentInfo.get(i).name + " not found!");
-                    } else {
-                        initargs.add(null);
-                    }
-                }
-
-                matches.add(constructGenerator(name, constructor, argumentInfo, initargs.toArray(), arguments,false));
+        // a match occurs if the required arguments are in the argument map and the remaining arguments are optional,
+        // an iid match occurs if the remaining arguments also include "replicates"
+        for (GeneratorSignature signature : factory.getSignatures(generatorClass)) {
+            if (signature.matchesNames(arguments.keySet())) {
+                matches.add(constructGenerator(name, signature, signature.getInitArgs(arguments), arguments, false));
             }
         }
         return matches;
     }
 
-
-    /**
-     * A match occurs if the required parameters are in the argument map and the remaining arguments in the map match names of optional arguments.
-     *
-     * an iid match occurs if the required parameters are in the argument map and the remaining arguments include "replicates" and are otherwise named matchs for the optional arguments
-     *
-     * @param arguments the arguments that are attempting to be passed.
-     * @param argumentInfo the arguments of the constructor
-     * @return
-     */
-    private static boolean match(Map<String, Value> arguments, List<Argument> argumentInfo) {
-
-        Set<String> requiredArguments = new TreeSet<>();
-        Set<String> optionalArguments = new TreeSet<>();
-        Set<String> keys = new TreeSet<>();
-        keys.addAll(arguments.keySet());
-
-        for (Argument argumentInf : argumentInfo) {
-            if (argumentInf.optional) {
-                optionalArguments.add(argumentInf.name);
-            } else {
-                requiredArguments.add(argumentInf.name);
-            }
-        }
-
-        // return false if not all required arguments are present
-        if (!keys.containsAll(requiredArguments)) {
-            return false;
-        }
-
-        keys.removeAll(requiredArguments);
-        keys.removeAll(optionalArguments);
-        return keys.size() == 0 || (keys.size() == 1 && keys.contains(IID.replicatesParamName));
-    }
-
     private static List<DeterministicFunction> getFunctionByArguments(String name, Value[] values, Class generatorClass) {
 
         List<DeterministicFunction> matches = new ArrayList<>();
-        for (Constructor constructor : generatorClass.getConstructors()) {
-            List<Argument> arguments = Generator.getArguments(constructor);
+        for (GeneratorSignature signature : factory.getSignatures(generatorClass)) {
+            int argumentCount = signature.getArguments().size();
 
-            if (values.length == arguments.size() && (values.length == 1 || values.length == 2)) {
-                DeterministicFunction f = (DeterministicFunction) constructGenerator(name, constructor, arguments, values, null, false);
+            if (values.length == argumentCount && (values.length == 1 || values.length == 2)) {
+                DeterministicFunction f = (DeterministicFunction) constructGenerator(name, signature, values, null, false);
                 if (f != null) {
                     matches.add(f);
                 }
-            } else if (values.length == 0 && arguments.stream().allMatch(x -> x.optional)) {
-                DeterministicFunction f = (DeterministicFunction) constructGenerator(name, constructor, arguments, new Object[arguments.size()], null, false);
+            } else if (values.length == 0 && signature.isAllOptional()) {
+                DeterministicFunction f = (DeterministicFunction) constructGenerator(name, signature, new Object[argumentCount], null, false);
                 if (f != null) {
                     matches.add(f);
                 }
@@ -163,18 +117,19 @@ public class ParserUtils {
 
     /**
      * @param name the name of the generator
-     * @param constructor the constructor
-     * @param arguments
+     * @param signature the signature of the constructor
      * @param initargs
      * @param params
      * @param lightweight
      * @return
      */
-    private static Generator constructGenerator(String name, Constructor constructor, List<Argument> arguments, Object[] initargs, Map<String, Value> params, boolean lightweight) {
+    private static Generator constructGenerator(String name, GeneratorSignature signature, Object[] initargs, Map<String, Value> params, boolean lightweight) {
+        Constructor constructor = signature.getConstructor();
+        List<Argument> arguments = signature.getArguments();
         try {
             if (Generator.matchingParameterTypes(arguments, initargs, params, lightweight)) {
-                return (Generator) constructor.newInstance(initargs);
-            } else if (IID.match(constructor, arguments, initargs, params)) {
+                return (Generator) Invokers.newInstance(constructor, initargs);
+            } else if (IID.match(signature, initargs, params)) {
                 return new IID(constructor, initargs, params);
             } else if (vectorMatch(arguments, initargs) > 0) {
                 // do vector match
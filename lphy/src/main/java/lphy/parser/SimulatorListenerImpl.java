@@ -899,20 +899,8 @@ public class SimulatorListenerImpl extends SimulatorBaseListener {
 //            }
         };
 
-        // Get our lexer
-        SimulatorLexer lexer = new SimulatorLexer(CharStreams.fromString(CASentence));
-        lexer.removeErrorListeners();
-        lexer.addErrorListener(errorListener);
-
-        // Get a list of matched tokens
-        CommonTokenStream tokens = new CommonTokenStream(lexer);
-
-        // Pass the tokens to the parser
-        SimulatorParser parser = new SimulatorParser(tokens);
-        parser.removeErrorListeners();
-        parser.addErrorListener(errorListener);
-
-        ParseTree parseTree = parser.input();
+        // the lexer and parser only run for a script not parsed before
+        ParseTree parseTree = ParseTreeCache.getParseTree(CASentence, errorListener);
 //	    // Specify our entry point
 //	    CasentenceContext CASentenceContext = parser.casentence();
 //	 
@@ -10,6 +10,7 @@ import lphy.parser.SimulatorParser.*;
 import lphy.parser.functions.ExpressionNode;
 import lphy.parser.functions.ExpressionNode1Arg;
 import lphy.parser.functions.ExpressionNode2Args;
+import lphy.reflection.Invokers;
 import lphy.util.LoggerUtils;
 import org.antlr.v4.runtime.*;
 import org.antlr.v4.runtime.tree.ParseTree;
@@ -431,7 +432,7 @@ public class SimulatorListenerLightweightImpl extends AbstractLightweightBaseLis
                     Constructor constructor = getConstructorByArguments(arguments, genDistClass, initargs);
 
                     if (constructor != null) {
-                        GenerativeDistribution dist = (GenerativeDistribution) constructor.newInstance(initargs.toArray());
+                        GenerativeDistribution dist = (GenerativeDistribution) Invokers.newInstance(constructor, initargs.toArray());
                         for (String parameterName : arguments.keySet()) {
                             Value value = arguments.get(parameterName);
 
@@ -624,7 +625,7 @@ public class SimulatorListenerLightweightImpl extends AbstractLightweightBaseLis
                     Constructor constructor = getConstructorByArguments(arguments, functionClass, initargs);
 
                     if (constructor != null) {
-                        DeterministicFunction f = (DeterministicFunction) constructor.newInstance(initargs.toArray());
+                        DeterministicFunction f = (DeterministicFunction) Invokers.newInstance(constructor, initargs.toArray());
                         for (String parameterName : arguments.keySet()) {
                             Value value = arguments.get(parameterName);
 
@@ -658,7 +659,7 @@ public class SimulatorListenerLightweightImpl extends AbstractLightweightBaseLis
     }
 
     private Constructor getConstructorByArguments(Map<String, Value> arguments, Class generatorClass, List<Object> initargs) {
-        for (Constructor constructor : generatorClass.getConstructors()) {
+        for (Constructor constructor : Invokers.getConstructors(generatorClass)) {
             List<ParameterInfo> pInfo = Generator.getParameterInfo(constructor);
             if (match(arguments, pInfo)) {
                 for (int i = 0; i < pInfo.size(); i++) {
@@ -733,20 +734,8 @@ public class SimulatorListenerLightweightImpl extends AbstractLightweightBaseLis
 //            }
         };
 
-        // Get our lexer
-        SimulatorLexer lexer = new SimulatorLexer(CharStreams.fromString(CASentence));
-        lexer.removeErrorListeners();
-        lexer.addErrorListener(errorListener);
-
-        // Get a list of matched tokens
-        CommonTokenStream tokens = new CommonTokenStream(lexer);
-
-        // Pass the tokens to the parser
-        SimulatorParser parser = new SimulatorParser(tokens);
-        parser.removeErrorListeners();
-        parser.addErrorListener(errorListener);
-
-        ParseTree parseTree = parser.input();
+        // the lexer and parser only run for a script not parsed before
+        ParseTree parseTree = ParseTreeCache.getParseTree(CASentence, errorListener);
 //	    // Specify our entry point
 //	    CasentenceContext CASentenceContext = parser.casentence();
 //	 
@@ -7,6 +7,7 @@ import lphy.core.narrative.Narrative;
 import lphy.graphicalModel.Vector;
 import lphy.graphicalModel.*;
 import lphy.graphicalModel.types.CompoundVectorValue;
+import lphy.reflection.Invokers;
 
 import java.lang.reflect.Array;
 import java.lang.reflect.InvocationTargetException;
@@ -63,10 +64,10 @@ public class MethodCall extends DeterministicFunction {
 
         c = value.value().getClass();
 
-        try {
-            // check for exact match
-            method = c.getMethod(methodName, paramTypes);
-        } catch (NoSuchMethodException nsme) {
+        // check for exact match
+        method = Invokers.findMethod(c, methodName, paramTypes);
+
+        if (method == null) {
 
             if (value instanceof Vector) {
                 // check for vectorized object match
@@ -74,10 +75,10 @@ public class MethodCall extends DeterministicFunction {
                 Class<?> componentClass = ((Vector<?>)value).getComponentType();
 
                 // check for exact match within vectorized object
-                try {
-                    method = componentClass.getMethod(methodName, paramTypes);
+                method = Invokers.findMethod(componentClass, methodName, paramTypes);
+                if (method != null) {
                     vectorizedObject = true;
-                } catch (NoSuchMethodException nsme2) {
+                } else {
                     // check for doubly vectorized
                     method = getVectorMatch(methodName, componentClass, paramTypes);
                     if (method != null) {
@@ -94,7 +95,11 @@ public class MethodCall extends DeterministicFunction {
                 if (method != null) vectorizedArguments = true;
             }
 
-            if (method == null) throw nsme;
+            if (method == null) {
+                StringJoiner signature = new StringJoiner(",", c.getName() + "." + methodName + "(", ")");
+                for (Class<?> paramType : paramTypes) signature.add(paramType.getName());
+                throw new NoSuchMethodException(signature.toString());
+            }
         }
 
         methodInfo = getMethodInfo(method);
@@ -132,7 +137,7 @@ public class MethodCall extends DeterministicFunction {
      */
     public Method getVectorMatch(String methodName, Class c, Class[] paramTypes) {
         // check for vectorized arguments match
-        for (Method method : c.getMethods()) {
+        for (Method method : Invokers.getMethods(c)) {
             if (method.getName().equals(methodName)) {
                 if (or(isVectorMatch(method, paramTypes))) {
                     return method;
@@ -157,19 +162,16 @@ public class MethodCall extends DeterministicFunction {
 
         Class c = value.value().getClass();
 
-        try {
-            // check for exact match
-            Method method = c.getMethod(methodName, paramTypes);
-        } catch (NoSuchMethodException nsme) {
-            // check for vectorized match
-            for (Method method : c.getMethods()) {
-                if (method.getName().equals(methodName)) {
-                    if (or(isVectorMatch(method, paramTypes))) {
-                        return method;
-                    }
+        // no vector match if there is an exact match
+        if (Invokers.findMethod(c, methodName, paramTypes) != null) return null;
+
+        // check for vectorized match
+        for (Method method : Invokers.getMethods(c)) {
+            if (method.getName().equals(methodName)) {
+                if (or(isVectorMatch(method, paramTypes))) {
+                    return method;
                 }
             }
-            return null;
         }
         return null;
     }
@@ -253,7 +255,7 @@ public class MethodCall extends DeterministicFunction {
 
                 List<Value> resultValues = new ArrayList<>();
                 for (int i = 0; i < size; i++) {
-                    resultValues.add(ValueUtils.createValue(method.invoke(((Vector)value).getComponent(i), args), this));
+                    resultValues.add(ValueUtils.createValue(Invokers.invoke(method, ((Vector)value).getComponent(i), args), this));
                 }
                 return new CompoundVectorValue(null, resultValues, this);
             }
@@ -263,7 +265,7 @@ public class MethodCall extends DeterministicFunction {
                 return vectorApply(args);
             }
 
-            Object obj = method.invoke(value.value(), args);
+            Object obj = Invokers.invoke(method, value.value(), args);
 
             // unwrap
             if (obj instanceof Value) {
@@ -294,7 +296,7 @@ public class MethodCall extends DeterministicFunction {
                     callArgs[j] = args[j];
                 }
             }
-            returnValues.add(ValueUtils.createValue(method.invoke(value.value(), callArgs), this));
+            returnValues.add(ValueUtils.createValue(Invokers.invoke(method, value.value(), callArgs), this));
         }
 
         return new CompoundVectorValue<>(null,returnValues, this);
@@ -0,0 +1,117 @@
+package lphy.reflection;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The constructors and methods that the parser and the lightweight layer call reflectively,
+ * looked up through caches instead of scanning the class on every call.
+ * They are invoked by core reflection, which is faster than spread method handles once its accessors are generated,
+ * and so has exactly the exceptions of {@link Constructor#newInstance} and {@link Method#invoke}:
+ * anything thrown by the invoked code is wrapped in an {@link InvocationTargetException},
+ * and arguments of the wrong number or types throw an {@link IllegalArgumentException}.
+ */
+public class Invokers {
+
+    // Class.getConstructors and Class.getMethods copy their arrays on every call
+    private static final ClassValue<Constructor<?>[]> constructors = new ClassValue<>() {
+        @Override
+        protected Constructor<?>[] computeValue(Class<?> type) {
+            return type.getConstructors();
+        }
+    };
+
+    private static final ClassValue<Method[]> methods = new ClassValue<>() {
+        @Override
+        protected Method[] computeValue(Class<?> type) {
+            return type.getMethods();
+        }
+    };
+
+    // the results of Class.getMethod by signature, empty if there is no such method
+    private static final ClassValue<Map<Signature, Optional<Method>>> methodsBySignature = new ClassValue<>() {
+        @Override
+        protected Map<Signature, Optional<Method>> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    // a method name and parameter types, whose hash is cheap to compute, unlike the string of the types
+    private static final class Signature {
+        final String name;
+        final Class<?>[] parameterTypes;
+        final int hash;
+
+        Signature(String name, Class<?>[] parameterTypes) {
+            this.name = name;
+            this.parameterTypes = parameterTypes;
+            hash = 31 * name.hashCode() + Arrays.hashCode(parameterTypes);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Signature)) return false;
+            Signature other = (Signature) o;
+            return name.equals(other.name) && Arrays.equals(parameterTypes, other.parameterTypes);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * @return the public constructors of the class, as a shared array that must not be modified.
+     */
+    public static Constructor<?>[] getConstructors(Class<?> c) {
+        return constructors.get(c);
+    }
+
+    /**
+     * @return the public methods of the class, as a shared array that must not be modified.
+     */
+    public static Method[] getMethods(Class<?> c) {
+        return methods.get(c);
+    }
+
+    /**
+     * @return the public method of the class with this name and these parameter types as {@link Class#getMethod} finds it,
+     * or null if there is none.
+     */
+    public static Method findMethod(Class<?> c, String name, Class<?>... parameterTypes) {
+        Map<Signature, Optional<Method>> cache = methodsBySignature.get(c);
+        Optional<Method> method = cache.get(new Signature(name, parameterTypes));
+        if (method == null) {
+            try {
+                method = Optional.of(c.getMethod(name, parameterTypes));
+            } catch (NoSuchMethodException e) {
+                method = Optional.empty();
+            }
+            // the caller may reuse its array of parameter types
+            cache.putIfAbsent(new Signature(name, parameterTypes.clone()), method);
+        }
+        return method.orElse(null);
+    }
+
+    /**
+     * The equivalent of {@link Constructor#newInstance}.
+     */
+    public static Object newInstance(Constructor<?> constructor, Object... args)
+            throws InstantiationException, IllegalAccessException, InvocationTargetException {
+        return constructor.newInstance(args);
+    }
+
+    /**
+     * The equivalent of {@link Method#invoke}.
+     */
+    public static Object invoke(Method method, Object target, Object... args)
+            throws IllegalAccessException, InvocationTargetException {
+        return method.invoke(target, args);
+    }
+}
@@ -15,6 +15,7 @@ import lphy.core.functions.datatype.StandardDatatypeFunction;
 import lphy.evolution.alignment.ErrorModel;
 import lphy.evolution.birthdeath.*;
 import lphy.evolution.branchrates.LocalBranchRates;
+import lphy.evolution.coalescent.MultilocusMultispeciesCoalescent;
 import lphy.evolution.coalescent.MultispeciesCoalescent;
 import lphy.evolution.coalescent.SerialCoalescent;
 import lphy.evolution.coalescent.SkylineCoalescent;
@@ -29,6 +30,7 @@ import lphy.evolution.functions.ExtantTaxa;
 import lphy.evolution.likelihood.PhyloCTMC;
 import lphy.evolution.likelihood.PhyloCTMCSiteModel;
 import lphy.evolution.substitutionmodel.*;
+import lphy.evolution.tree.EmpiricalTree;
 import lphy.evolution.tree.ExtantTree;
 import lphy.evolution.tree.PruneTree;
 import lphy.graphicalModel.Func;
@@ -59,7 +61,8 @@ public class LPhyExtImpl implements LPhyExtension {
             BirthDeathSamplingTree.class, BirthDeathSamplingTreeDT.class, BirthDeathSerialSamplingTree.class,
             RhoSampleTree.class, FossilBirthDeathTree.class,
             SimBDReverse.class, SimFBDAge.class, SimFossilsPoisson.class,
-            SerialCoalescent.class, StructuredCoalescent.class, MultispeciesCoalescent.class,
+            SerialCoalescent.class, StructuredCoalescent.class, MultispeciesCoalescent.class, MultilocusMultispeciesCoalescent.class,
+            EmpiricalTree.class,
             // skyline
             SkylineCoalescent.class, ExpMarkovChain.class, RandomComposition.class,
             // others
@@ -87,7 +90,7 @@ public class LPhyExtImpl implements LPhyExtension {
             // Matrix
             BinaryRateMatrix.class, MigrationMatrix.class, MigrationCount.class,
             // IO
-            Newick.class, ReadNexus.class, ReadFasta.class, ExtractTrait.class, Species.class,
+            Newick.class, ReadNexus.class, ReadTrees.class, ReadFasta.class, ExtractTrait.class, Species.class,
             // Math
             lphy.core.functions.Exp.class, Sum.class, SumBoolean.class,
             // Utils
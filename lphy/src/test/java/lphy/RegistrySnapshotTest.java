@@ -0,0 +1,108 @@
+package lphy;
+
+import lphy.core.distributions.Normal;
+import lphy.core.functions.Exp;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+import java.util.stream.Stream;
+
+public class RegistrySnapshotTest {
+
+    private Path dir;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("snapshot");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> walk = Files.walk(dir)) {
+            walk.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    public void roundTrip() {
+        Map<String, Class<?>> providers = new LinkedHashMap<>();
+        providers.put(getClass().getName(), getClass());
+        List<String> sources = RegistrySnapshot.getSources(providers);
+        Assert.assertTrue(RegistrySnapshot.isFingerprinted(sources));
+
+        RegistrySnapshot snapshot = new RegistrySnapshot(sources);
+        snapshot.addGenerator(RegistrySnapshot.DISTRIBUTION, getClass(), "Normal", Normal.class);
+        snapshot.addGenerator(RegistrySnapshot.FUNCTION, getClass(), "exp", Exp.class);
+        snapshot.addType(getClass(), Double.class);
+        Path file = dir.resolve("registry.txt");
+        snapshot.write(file);
+
+        RegistrySnapshot read = RegistrySnapshot.read(file);
+        Assert.assertNotNull(read);
+        Assert.assertEquals(sources, read.getSources());
+        Assert.assertTrue(read.isValidFor(RegistrySnapshot.getSources(providers)));
+        Assert.assertEquals(3, read.getRecords().size());
+        Assert.assertArrayEquals(new String[]{RegistrySnapshot.DISTRIBUTION, getClass().getName(), "Normal", Normal.class.getName()},
+                read.getRecords().get(0));
+        Assert.assertArrayEquals(new String[]{RegistrySnapshot.TYPE, getClass().getName(), Double.class.getName()},
+                read.getRecords().get(2));
+    }
+
+    @Test
+    public void changedSourcesInvalidate() throws IOException {
+        Path classes = Files.createDirectories(dir.resolve("classes/lphy"));
+        Path file = classes.resolve("A.class");
+        Files.write(file, "a".getBytes(StandardCharsets.UTF_8));
+        URL location = dir.resolve("classes").toUri().toURL();
+
+        String fingerprint = RegistrySnapshot.getFingerprint(location);
+        Assert.assertEquals(fingerprint, RegistrySnapshot.getFingerprint(location));
+
+        // a file added to a class directory
+        Path other = classes.resolve("B.class");
+        Files.write(other, "b".getBytes(StandardCharsets.UTF_8));
+        String added = RegistrySnapshot.getFingerprint(location);
+        Assert.assertNotEquals(fingerprint, added);
+
+        // a recompiled class of the same size
+        Files.setLastModifiedTime(other, FileTime.fromMillis(Files.getLastModifiedTime(other).toMillis() + 1000));
+        Assert.assertNotEquals(added, RegistrySnapshot.getFingerprint(location));
+
+        // a jar
+        Path jar = dir.resolve("ext.jar");
+        Files.write(jar, "jar".getBytes(StandardCharsets.UTF_8));
+        String jarFingerprint = RegistrySnapshot.getFingerprint(jar.toUri().toURL());
+        Files.write(jar, "jar2".getBytes(StandardCharsets.UTF_8));
+        Assert.assertNotEquals(jarFingerprint, RegistrySnapshot.getFingerprint(jar.toUri().toURL()));
+
+        RegistrySnapshot snapshot = new RegistrySnapshot(Collections.singletonList("Ext\t" + location + "\t" + fingerprint));
+        Assert.assertFalse(snapshot.isValidFor(Collections.singletonList("Ext\t" + location + "\t" + added)));
+    }
+
+    @Test
+    public void unknownSourcesFallBack() throws IOException {
+        Assert.assertEquals(RegistrySnapshot.UNKNOWN, RegistrySnapshot.getFingerprint(null));
+        Assert.assertEquals(RegistrySnapshot.UNKNOWN, RegistrySnapshot.getFingerprint(new URL("http://example.org/ext.jar")));
+        Assert.assertEquals(RegistrySnapshot.UNKNOWN, RegistrySnapshot.getFingerprint(dir.resolve("missing.jar").toUri().toURL()));
+
+        // an unchanged source without a fingerprint is never trusted
+        List<String> sources = Collections.singletonList("Ext\thttp://example.org/ext.jar\t" + RegistrySnapshot.UNKNOWN);
+        Assert.assertFalse(RegistrySnapshot.isFingerprinted(sources));
+        Assert.assertFalse(new RegistrySnapshot(sources).isValidFor(sources));
+
+        // files that are missing or not snapshots are ignored
+        Assert.assertNull(RegistrySnapshot.read(dir.resolve("missing.txt")));
+        Path other = dir.resolve("other.txt");
+        Files.write(other, "lphy-registry-snapshot\t1\n".getBytes(StandardCharsets.UTF_8));
+        Assert.assertNull(RegistrySnapshot.read(other));
+    }
+}
@@ -0,0 +1,169 @@
+package lphy.core;
+
+import lphy.graphicalModel.RandomVariable;
+import lphy.graphicalModel.Value;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+public class OnlineStatisticsTest {
+
+    private static OnlineStatistics stats(double[] x, int maxBatches) {
+        OnlineStatistics stats = new OnlineStatistics(maxBatches);
+        for (double d : x) {
+            stats.add(d);
+        }
+        return stats;
+    }
+
+    private static double mean(double[] x) {
+        return Arrays.stream(x).sum() / x.length;
+    }
+
+    private static double variance(double[] x) {
+        double mean = mean(x);
+        return Arrays.stream(x).map(d -> (d - mean) * (d - mean)).sum() / (x.length - 1);
+    }
+
+    // x[t] = phi * x[t-1] + e[t] with e[t] ~ N(0, 1), started from its stationary distribution
+    private static double[] ar1(int n, double phi, Random random) {
+        double[] x = new double[n];
+        x[0] = random.nextGaussian() / Math.sqrt(1 - phi * phi);
+        for (int t = 1; t < n; t++) {
+            x[t] = phi * x[t - 1] + random.nextGaussian();
+        }
+        return x;
+    }
+
+    @Test
+    public void welfordMatchesTwoPass() {
+        Random random = new Random(1);
+        // a large offset, which loses precision in the naive sum of squares
+        double[] x = new double[10000];
+        for (int i = 0; i < x.length; i++) {
+            x[i] = 1e9 + random.nextGaussian();
+        }
+        OnlineStatistics stats = stats(x, OnlineStatistics.DEFAULT_MAX_BATCHES);
+        Assert.assertEquals(x.length, stats.getCount());
+        Assert.assertEquals(mean(x), stats.getMean(), 1e-5);
+        Assert.assertEquals(variance(x), stats.getVariance(), 1e-6);
+        Assert.assertEquals(Arrays.stream(x).min().getAsDouble(), stats.getMin(), 0.0);
+        Assert.assertEquals(Arrays.stream(x).max().getAsDouble(), stats.getMax(), 0.0);
+    }
+
+    @Test
+    public void emptyAndNaN() {
+        OnlineStatistics stats = new OnlineStatistics();
+        Assert.assertTrue(Double.isNaN(stats.getMean()));
+        Assert.assertTrue(Double.isNaN(stats.getMin()));
+        stats.add(Double.NaN);
+        stats.add(2.0);
+        Assert.assertEquals(1, stats.getCount());
+        Assert.assertEquals(2.0, stats.getMean(), 0.0);
+        Assert.assertTrue(Double.isNaN(stats.getVariance()));
+        Assert.assertTrue(Double.isNaN(stats.getLag1Autocorrelation()));
+        Assert.assertTrue(Double.isNaN(stats.getESS()));
+
+        try {
+            new OnlineStatistics(5);
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            new OnlineStatistics(2);
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void lag1MatchesTwoPass() {
+        double[] x = ar1(5000, 0.5, new Random(2));
+        OnlineStatistics stats = stats(x, OnlineStatistics.DEFAULT_MAX_BATCHES);
+
+        double[] prev = Arrays.copyOfRange(x, 0, x.length - 1);
+        double[] next = Arrays.copyOfRange(x, 1, x.length);
+        double meanPrev = mean(prev);
+        double meanNext = mean(next);
+        double coMoment = 0.0;
+        for (int t = 0; t < prev.length; t++) {
+            coMoment += (prev[t] - meanPrev) * (next[t] - meanNext);
+        }
+        Assert.assertEquals(coMoment / (prev.length - 1) / variance(x), stats.getLag1Autocorrelation(), 1e-10);
+    }
+
+    @Test
+    public void batchMeansMatchByHand() {
+        double[] x = ar1(12, 0.3, new Random(3));
+        // with 4 batches, the batch size doubles at 4 and at 8 samples, leaving three complete batches of 4
+        OnlineStatistics stats = stats(x, 4);
+        double[] batchMeans = new double[3];
+        for (int b = 0; b < 3; b++) {
+            batchMeans[b] = mean(Arrays.copyOfRange(x, 4 * b, 4 * b + 4));
+        }
+        double ess = Math.min(x.length * variance(x) / (4 * variance(batchMeans)), x.length);
+        Assert.assertEquals(ess, stats.getESS(), 1e-10);
+        Assert.assertEquals(x.length / ess, stats.getAutocorrelationTime(), 1e-10);
+        Assert.assertEquals(Math.sqrt(variance(x) / ess), stats.getStandardError(), 1e-10);
+
+        // the batch means of an incomplete batch are not used
+        double[] y = Arrays.copyOf(x, 13);
+        y[12] = 1.0;
+        stats.add(y[12]);
+        Assert.assertEquals(Math.min(y.length * variance(y) / (4 * variance(batchMeans)), y.length), stats.getESS(), 1e-10);
+    }
+
+    @Test
+    public void ar1Sequence() {
+        Random random = new Random(4);
+        int n = 1 << 20;
+        for (double phi : new double[]{0.0, 0.5, 0.9}) {
+            double[] x = ar1(n, phi, random);
+            OnlineStatistics stats = stats(x, OnlineStatistics.DEFAULT_MAX_BATCHES);
+
+            double variance = 1 / (1 - phi * phi);
+            double act = (1 + phi) / (1 - phi);
+            Assert.assertEquals(0.0, stats.getMean(), 5 * Math.sqrt(variance * act / n));
+            Assert.assertEquals(variance, stats.getVariance(), 0.05 * variance);
+            Assert.assertEquals(phi, stats.getLag1Autocorrelation(), 0.01);
+            // 32 to 64 batch means estimate the effective sample size with a relative error of about 25%
+            Assert.assertEquals(act, stats.getAutocorrelationTime(), 0.5 * act);
+            Assert.assertEquals(n / act, stats.getESS(), 0.5 * n / act);
+            Assert.assertTrue(stats.getESS() <= n);
+        }
+    }
+
+    @Test
+    public void loggerReports() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        OnlineStatsLogger logger = new OnlineStatsLogger(new PrintStream(bytes), false, 5, true, true);
+        double[] x = ar1(10, 0.5, new Random(5));
+        for (int rep = 0; rep < x.length; rep++) {
+            List<Value<?>> values = new ArrayList<>();
+            values.add(new RandomVariable<>("x", x[rep], null));
+            values.add(new RandomVariable<>("i", rep, null));
+            logger.log(rep, values);
+        }
+        logger.close();
+
+        Assert.assertEquals(10, logger.getSampleCount());
+        Assert.assertEquals(Arrays.asList("x", "i"), new ArrayList<>(logger.getColumns().keySet()));
+        Assert.assertEquals(mean(x), logger.getColumns().get("x").getMean(), 1e-12);
+        Assert.assertEquals(4.5, logger.getColumns().get("i").getMean(), 1e-12);
+
+        // a report after 5 and 10 replicates, and none repeated by close
+        String report = new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+        Assert.assertEquals(2, report.split("column\t", -1).length - 1);
+        Assert.assertTrue(report.startsWith("sample\t5"));
+        Assert.assertTrue(report.contains("sample\t10"));
+    }
+}
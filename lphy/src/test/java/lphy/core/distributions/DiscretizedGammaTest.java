@@ -0,0 +1,43 @@
+package lphy.core.distributions;
+
+import org.apache.commons.math3.distribution.GammaDistribution;
+import org.apache.commons.math3.special.Gamma;
+import org.junit.Assert;
+import org.junit.Test;
+
+/*
+ * Compares the category rates of DiscretizedGamma with the quantiles of GammaDistribution with mean 1.
+ */
+public class DiscretizedGammaTest {
+
+    static final double[] SHAPES = {0.01, 0.05, 0.1, 0.5, 1.0, 2.0, 10.0, 100.0, 1000.0};
+    static final int[] NCATS = {1, 2, 4, 8, 16};
+
+    @Test
+    public void categoryRatesAreGammaQuantiles() {
+        for (double shape : SHAPES) {
+            GammaDistribution gamma = new GammaDistribution(shape, 1.0 / shape);
+            for (int ncat : NCATS) {
+                double[] rates = DiscretizedGamma.getCategoryRates(shape, ncat);
+                Assert.assertEquals(ncat, rates.length);
+                for (int i = 0; i < ncat; i++) {
+                    double p = (2.0 * i + 1.0) / (2.0 * ncat);
+                    String message = "shape " + shape + ", ncat " + ncat + ", category " + i;
+                    // the solver of inverseCumulativeProbability has an absolute accuracy of 1e-9
+                    double expected = gamma.inverseCumulativeProbability(p);
+                    Assert.assertEquals(message, expected, rates[i], 1e-8 + 1e-8 * expected);
+                    // the tiny quantiles of small shapes are only checked relatively through the distribution function
+                    Assert.assertEquals(message, p, Gamma.regularizedGammaP(shape, rates[i] * shape), 1e-10);
+                    if (i > 0) Assert.assertTrue(message, rates[i] > rates[i - 1]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void categoryRatesAreCopies() {
+        double[] rates = DiscretizedGamma.getCategoryRates(0.5, 4);
+        rates[0] = -1.0;
+        Assert.assertTrue(DiscretizedGamma.getCategoryRates(0.5, 4)[0] > 0.0);
+    }
+}
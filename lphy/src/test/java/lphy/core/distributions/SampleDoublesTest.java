@@ -0,0 +1,206 @@
+package lphy.core.distributions;
+
+import lphy.graphicalModel.GenerativeDistribution;
+import lphy.graphicalModel.RandomVariable;
+import lphy.graphicalModel.Value;
+import lphy.graphicalModel.VectorizedRandomVariable;
+import lphy.parser.REPL;
+import org.apache.commons.math3.random.MersenneTwister;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+/*
+ * Compares the bulk draws of sampleDoubles, used by vectorized and iid distributions, with the draws of the
+ * per-element distributions they replace.
+ */
+public class SampleDoublesTest {
+
+    static final int N = 4000;
+
+    // the two-sample Kolmogorov-Smirnov critical value at a significance level of 1e-6
+    static final double KS_CRITICAL = 2.69 * Math.sqrt(2.0 / N);
+
+    @Before
+    public void setUp() {
+        Utils.setRandom(new MersenneTwister(17));
+    }
+
+    private static GenerativeDistribution<?> parse(String script) {
+        REPL parser = new REPL();
+        parser.parse(script);
+        return (GenerativeDistribution<?>) parser.getModelDictionary().get("x").getGenerator();
+    }
+
+    // N bulk draws of each component
+    private static double[][] bulkDraws(GenerativeDistribution<?> distribution, int size) {
+        double[][] draws = new double[size][N];
+        for (int j = 0; j < N; j++) {
+            RandomVariable<?> x = distribution.sample();
+            Assert.assertTrue(x instanceof VectorizedRandomVariable);
+            Double[] value = (Double[]) x.value();
+            Assert.assertEquals(size, value.length);
+            for (int i = 0; i < size; i++) {
+                draws[i][j] = value[i];
+            }
+        }
+        return draws;
+    }
+
+    // N draws of the distribution of a single component
+    private static double[] elementDraws(GenerativeDistribution<?> distribution) {
+        double[] draws = new double[N];
+        for (int j = 0; j < N; j++) {
+            draws[j] = (Double) distribution.sample().value();
+        }
+        return draws;
+    }
+
+    private static double mean(double[] x) {
+        return Arrays.stream(x).average().getAsDouble();
+    }
+
+    private static double variance(double[] x) {
+        double mean = mean(x);
+        return Arrays.stream(x).map(d -> (d - mean) * (d - mean)).sum() / (x.length - 1);
+    }
+
+    private static double ksStatistic(double[] x, double[] y) {
+        double[] a = x.clone();
+        double[] b = y.clone();
+        Arrays.sort(a);
+        Arrays.sort(b);
+        int i = 0;
+        int j = 0;
+        double d = 0.0;
+        while (i < a.length && j < b.length) {
+            double t = Math.min(a[i], b[j]);
+            while (i < a.length && a[i] <= t) i++;
+            while (j < b.length && b[j] <= t) j++;
+            d = Math.max(d, Math.abs((double) i / a.length - (double) j / b.length));
+        }
+        return d;
+    }
+
+    /**
+     * Checks the bulk and per-element draws of a component against the analytic moments and against each other.
+     */
+    private static void assertSameDistribution(String name, double[] bulk, double[] element, double mean, double variance) {
+        double se = Math.sqrt(variance / N);
+        Assert.assertEquals(name + " bulk mean", mean, mean(bulk), 5 * se);
+        Assert.assertEquals(name + " element mean", mean, mean(element), 5 * se);
+        // the variance of a sample variance is about 2 sigma^4 / N for the normal, larger for skewed distributions
+        Assert.assertEquals(name + " bulk variance", variance, variance(bulk), 0.25 * variance);
+        Assert.assertEquals(name + " element variance", variance, variance(element), 0.25 * variance);
+        Assert.assertTrue(name + " KS", ksStatistic(bulk, element) < KS_CRITICAL);
+    }
+
+    private static void assertVectorized(String script, double[] means, double[] variances) {
+        VectorizedDistribution<?> distribution = (VectorizedDistribution<?>) parse(script);
+        double[][] bulk = bulkDraws(distribution, means.length);
+        for (int i = 0; i < means.length; i++) {
+            double[] element = elementDraws(distribution.getBaseDistribution(i));
+            assertSameDistribution(script + " [" + i + "]", bulk[i], element, means[i], variances[i]);
+        }
+    }
+
+    private static void assertIID(String script, int replicates, double mean, double variance) {
+        IID<?> distribution = (IID<?>) parse(script);
+        double[][] bulk = bulkDraws(distribution, replicates);
+        for (int i = 0; i < replicates; i++) {
+            double[] element = elementDraws(distribution.getBaseDistribution());
+            assertSameDistribution(script + " [" + i + "]", bulk[i], element, mean, variance);
+        }
+    }
+
+    private static double logNormalMean(double meanLog, double sdLog) {
+        return Math.exp(meanLog + sdLog * sdLog / 2);
+    }
+
+    private static double logNormalVariance(double meanLog, double sdLog) {
+        return (Math.exp(sdLog * sdLog) - 1) * Math.exp(2 * meanLog + sdLog * sdLog);
+    }
+
+    @Test
+    public void normal() {
+        assertVectorized("x ~ Normal(mean=[0.0, 10.0, -5.0], sd=[1.0, 0.1, 2.0]);",
+                new double[]{0.0, 10.0, -5.0}, new double[]{1.0, 0.01, 4.0});
+        // an array broadcast against a scalar
+        assertVectorized("x ~ Normal(mean=[0.0, 10.0], sd=3.0);",
+                new double[]{0.0, 10.0}, new double[]{9.0, 9.0});
+        assertVectorized("x ~ Normal(mean=2.0, sd=[0.5, 4.0]);",
+                new double[]{2.0, 2.0}, new double[]{0.25, 16.0});
+        assertIID("x ~ Normal(mean=1.0, sd=2.0, replicates=3);", 3, 1.0, 4.0);
+    }
+
+    @Test
+    public void logNormal() {
+        assertVectorized("x ~ LogNormal(meanlog=[0.0, 1.0], sdlog=[0.5, 0.25]);",
+                new double[]{logNormalMean(0.0, 0.5), logNormalMean(1.0, 0.25)},
+                new double[]{logNormalVariance(0.0, 0.5), logNormalVariance(1.0, 0.25)});
+        assertVectorized("x ~ LogNormal(meanlog=[-1.0, 2.0], sdlog=0.3);",
+                new double[]{logNormalMean(-1.0, 0.3), logNormalMean(2.0, 0.3)},
+                new double[]{logNormalVariance(-1.0, 0.3), logNormalVariance(2.0, 0.3)});
+        assertIID("x ~ LogNormal(meanlog=0.5, sdlog=0.4, replicates=2);", 2,
+                logNormalMean(0.5, 0.4), logNormalVariance(0.5, 0.4));
+    }
+
+    @Test
+    public void uniform() {
+        assertVectorized("x ~ Uniform(lower=[0.0, -2.0], upper=[1.0, 6.0]);",
+                new double[]{0.5, 2.0}, new double[]{1.0 / 12, 64.0 / 12});
+        assertVectorized("x ~ Uniform(lower=0.0, upper=[1.0, 3.0]);",
+                new double[]{0.5, 1.5}, new double[]{1.0 / 12, 9.0 / 12});
+        assertIID("x ~ Uniform(lower=1.0, upper=2.0, replicates=3);", 3, 1.5, 1.0 / 12);
+    }
+
+    @Test
+    public void exp() {
+        assertVectorized("x ~ Exp(mean=[1.0, 0.1, 5.0]);",
+                new double[]{1.0, 0.1, 5.0}, new double[]{1.0, 0.01, 25.0});
+        assertIID("x ~ Exp(mean=2.0, replicates=2);", 2, 2.0, 4.0);
+    }
+
+    @Test
+    public void lazyComponentIds() {
+        VectorizedDistribution<?> distribution = (VectorizedDistribution<?>) parse("x ~ Normal(mean=[0.0, 10.0, -5.0], sd=1.0);");
+
+        VectorizedRandomVariable<?> x = (VectorizedRandomVariable<?>) distribution.sample();
+        x.setId("x");
+        for (int i = 0; i < 3; i++) {
+            Value<?> component = x.getComponentValue(i);
+            Assert.assertEquals("x_" + i, component.getId());
+            Assert.assertEquals(x.value()[i], component.value());
+            Assert.assertSame(distribution.getBaseDistribution(i), component.getGenerator());
+            Assert.assertSame(component, x.getComponentValue(i));
+        }
+
+        // a component created before the vector is named is renamed with it, and later ones are named after it
+        VectorizedRandomVariable<?> y = (VectorizedRandomVariable<?>) distribution.sample();
+        Value<?> first = y.getComponentValue(0);
+        Assert.assertNull(first.getId());
+        y.setId("y");
+        Assert.assertEquals("y_0", first.getId());
+        Assert.assertEquals("y_2", y.getComponentValue(2).getId());
+        y.setId("z");
+        Assert.assertEquals("z_0", first.getId());
+        Assert.assertEquals("z_1", y.getComponentValue(1).getId());
+        Assert.assertEquals("z_2", y.getComponentValue(2).getId());
+    }
+
+    @Test
+    public void lazyComponentIdsOfParsedVariable() {
+        REPL parser = new REPL();
+        parser.parse("x ~ Exp(mean=2.0, replicates=3);");
+        VectorizedRandomVariable<?> x = (VectorizedRandomVariable<?>) parser.getModelDictionary().get("x");
+        IID<?> iid = (IID<?>) x.getGenerator();
+        for (int i = 2; i >= 0; i--) {
+            Value<?> component = x.getComponentValue(i);
+            Assert.assertEquals("x_" + i, component.getId());
+            Assert.assertEquals(x.value()[i], component.value());
+            Assert.assertSame(iid.getBaseDistribution(), component.getGenerator());
+        }
+    }
+}
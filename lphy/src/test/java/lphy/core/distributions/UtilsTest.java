@@ -0,0 +1,100 @@
+package lphy.core.distributions;
+
+import org.apache.commons.math3.random.MersenneTwister;
+import org.apache.commons.math3.random.RandomGenerator;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/*
+ * Two-sample Kolmogorov-Smirnov tests of the samplers in Utils against exact constructions
+ * from uniform and normal variates of java.util.Random.
+ */
+public class UtilsTest {
+
+    static final int N = 100000;
+    // the critical value of the two-sample statistic at the 0.001 level
+    static final double CRITICAL = 1.95 * Math.sqrt(2.0 / N);
+
+    RandomGenerator oldRandom;
+    Random reference;
+
+    @Before
+    public void setUp() {
+        oldRandom = Utils.getRandom();
+        Utils.setRandom(new MersenneTwister(777));
+        reference = new Random(777);
+    }
+
+    @After
+    public void tearDown() {
+        Utils.setRandom(oldRandom);
+    }
+
+    static double ksStatistic(double[] a, double[] b) {
+        Arrays.sort(a);
+        Arrays.sort(b);
+        int i = 0, j = 0;
+        double d = 0.0;
+        while (i < a.length && j < b.length) {
+            if (a[i] <= b[j]) i++;
+            else j++;
+            d = Math.max(d, Math.abs((double) i / a.length - (double) j / b.length));
+        }
+        return d;
+    }
+
+    @Test
+    public void testNormal() {
+        double[] a = new double[N], b = new double[N];
+        for (int i = 0; i < N; i++) {
+            a[i] = Utils.randomNormal();
+            b[i] = reference.nextGaussian();
+        }
+        Assert.assertTrue(ksStatistic(a, b) < CRITICAL);
+    }
+
+    @Test
+    public void testGamma() {
+        double[] a = new double[N], b = new double[N];
+        // integer shape as a sum of exponentials
+        for (int i = 0; i < N; i++) {
+            a[i] = Utils.randomGamma(3.0, 2.0);
+            b[i] = 0.0;
+            for (int k = 0; k < 3; k++) b[i] -= 2.0 * Math.log(1.0 - reference.nextDouble());
+        }
+        Assert.assertTrue(ksStatistic(a, b) < CRITICAL);
+
+        // shape 1/2 as a scaled chi-square with one degree of freedom
+        for (int i = 0; i < N; i++) {
+            a[i] = Utils.randomGamma(0.5, 1.0);
+            double z = reference.nextGaussian();
+            b[i] = z * z / 2.0;
+        }
+        Assert.assertTrue(ksStatistic(a, b) < CRITICAL);
+    }
+
+    @Test
+    public void testBetaAndDirichlet() {
+        double[] a = new double[N], b = new double[N];
+        // Beta(alpha, 1) as U^(1/alpha)
+        for (int i = 0; i < N; i++) {
+            a[i] = Utils.randomBeta(0.3, 1.0);
+            b[i] = Math.pow(reference.nextDouble(), 1.0 / 0.3);
+        }
+        Assert.assertTrue(ksStatistic(a, b) < CRITICAL);
+
+        // the first component of Dirichlet(1, 1, 1) is Beta(1, 2), i.e. 1 - sqrt(U)
+        double[] draw = new double[3];
+        for (int i = 0; i < N; i++) {
+            Utils.randomDirichlet(new double[]{1.0, 1.0, 1.0}, draw);
+            a[i] = draw[0];
+            b[i] = 1.0 - Math.sqrt(reference.nextDouble());
+        }
+        Assert.assertTrue(ksStatistic(a, b) < CRITICAL);
+    }
+}
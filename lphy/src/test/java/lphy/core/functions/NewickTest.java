@@ -0,0 +1,78 @@
+package lphy.core.functions;
+
+import junit.framework.TestCase;
+import lphy.core.functions.newickParser.FastNewickParser;
+import lphy.evolution.tree.TimeTree;
+import lphy.evolution.tree.TimeTreeNode;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Tests that {@link FastNewickParser} produces the same trees as the ANTLR-generated parser.
+ */
+public class NewickTest extends TestCase {
+
+    private void assertSameTree(String newick) {
+        TimeTree expected = Newick.parseWithAntlr(newick);
+        TimeTree actual = FastNewickParser.parseTree(newick);
+
+        assertEquals(newick, Arrays.asList(expected.getTaxa().getTaxaNames()), Arrays.asList(actual.getTaxa().getTaxaNames()));
+        assertSameNode(newick, expected.getRoot(), actual.getRoot());
+    }
+
+    private void assertSameNode(String newick, TimeTreeNode expected, TimeTreeNode actual) {
+        assertEquals(newick, expected.getId(), actual.getId());
+        assertEquals(newick, expected.getAge(), actual.getAge(), 0.0);
+        assertEquals(newick, expected.getIndex(), actual.getIndex());
+        assertEquals(newick, expected.getLeafIndex(), actual.getLeafIndex());
+
+        Map<String, Object> expectedMetaData = expected.getMetaData();
+        Map<String, Object> actualMetaData = actual.getMetaData();
+        assertEquals(newick, expectedMetaData.keySet(), actualMetaData.keySet());
+        for (String key : expectedMetaData.keySet()) {
+            Object value = expectedMetaData.get(key);
+            if (value instanceof Object[]) {
+                assertTrue(newick + " " + key, Arrays.deepEquals((Object[]) value, (Object[]) actualMetaData.get(key)));
+            } else {
+                assertEquals(newick + " " + key, value, actualMetaData.get(key));
+            }
+        }
+
+        assertEquals(newick, expected.getChildCount(), actual.getChildCount());
+        for (int i = 0; i < expected.getChildCount(); i++) {
+            assertSameNode(newick, expected.getChildren().get(i), actual.getChildren().get(i));
+        }
+    }
+
+    public void testBranchLengths() {
+        assertSameTree("((A:1.0,B:1.0):2.0,(C:0.5,D:0.5):2.5);");
+        assertSameTree("((A:1e-3,B:2.5E+1):0.25,C:-1):0;");
+    }
+
+    public void testMissingBranchLengths() {
+        assertSameTree("((A,B),C);");
+        assertSameTree("((A:1.0,B),(C,D:0.5):2.0);");
+        assertSameTree("(A,B)root;");
+    }
+
+    public void testQuotedLabels() {
+        assertSameTree("(('taxon one':1.0,\"taxon two\":1.0):1.0,'C,D':2.0);");
+        assertSameTree("(('(x)':1.0,'a b':1.0):1.0,C:2.0);");
+    }
+
+    public void testMetaData() {
+        assertSameTree("((A[&rate=2.0]:1.0,B[&rate=0.5,type=\"x\"]:1.0)[&height_95%_HPD={1.5,2.5}]:1.0,C:2.0)[&location=NZ];");
+        assertSameTree("((A:[&rate=2.0]1.0,B:[&type=a,dates={x,y}]1.0):1.0,C[&pos={{1,2},{3,4}}]:2.0);");
+    }
+
+    public void testSingleChildNodes() {
+        assertSameTree("(((A:1.0,B:1.0):1.0):0.5,C:2.5);");
+        assertSameTree("((A:1.0)X:1.0,(B:0.5)Y:1.5)Z;");
+        assertSameTree("((A:1.0,B:1.0):2.0):1.0;");
+    }
+
+    public void testWhitespace() {
+        assertSameTree(" ( ( A : 1.0 , B : 1.0 ) : 2.0 ,\n C : 3.0 ) ; ");
+    }
+}
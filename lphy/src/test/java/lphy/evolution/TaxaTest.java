@@ -0,0 +1,92 @@
+package lphy.evolution;
+
+import jebl.evolution.sequences.SequenceType;
+import junit.framework.TestCase;
+import lphy.evolution.alignment.SimpleAlignment;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class TaxaTest extends TestCase {
+
+    private static Taxa.Simple taxa(String... names) {
+        Taxon[] taxa = new Taxon[names.length];
+        for (int i = 0; i < names.length; i++) {
+            taxa[i] = new Taxon(names[i]);
+        }
+        return new Taxa.Simple(taxa);
+    }
+
+    // the linear scan of Taxa, which the index of Taxa.Simple replaces
+    private static int linearIndexOf(Taxa taxa, String name) {
+        String[] names = taxa.getTaxaNames();
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) return i;
+        }
+        return -1;
+    }
+
+    public void testFirstMatchOfDuplicateNames() {
+        Taxa.Simple taxa = taxa("a", "b", "a", "c", "b");
+        for (String name : new String[]{"a", "b", "c", "d"}) {
+            assertEquals(name, linearIndexOf(taxa, name), taxa.indexOfTaxon(name));
+        }
+        assertEquals(0, taxa.indexOfTaxon("a"));
+        assertEquals(1, taxa.indexOfTaxon("b"));
+        assertEquals(-1, taxa.indexOfTaxon("d"));
+    }
+
+    public void testNamesAreCopies() {
+        Taxa.Simple taxa = taxa("a", "b");
+        taxa.getTaxaNames()[0] = "x";
+        assertEquals("a", taxa.getTaxaNames()[0]);
+        assertEquals(0, taxa.indexOfTaxon("a"));
+        assertEquals(-1, taxa.indexOfTaxon("x"));
+    }
+
+    public void testAlignmentDelegation() {
+        Taxa.Simple taxa = taxa("a", "b", "a", "c");
+        SimpleAlignment alignment = new SimpleAlignment(taxa, 2, SequenceType.NUCLEOTIDE);
+        assertEquals(0, alignment.indexOfTaxon("a"));
+        alignment.setState("c", 1, 3);
+        alignment.setState("a", 0, 2);
+        assertEquals(3, alignment.getState(3, 1));
+        // the first taxon named a
+        assertEquals(2, alignment.getState(0, 0));
+        assertEquals(Integer.valueOf(2), alignment.getState("a", 0));
+        assertEquals(0, alignment.getState(2, 0));
+    }
+
+    public void testSharedBetweenThreads() throws InterruptedException, ExecutionException {
+        int n = 1000;
+        String[] names = new String[n];
+        for (int i = 0; i < n; i++) {
+            names[i] = "t" + i;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for (int r = 0; r < 20; r++) {
+                // a fresh index, first used by all threads at once
+                Taxa.Simple taxa = taxa(names);
+                List<Future<Boolean>> results = new ArrayList<>();
+                for (int t = 0; t < 4; t++) {
+                    results.add(executor.submit(() -> {
+                        for (int i = n - 1; i >= 0; i--) {
+                            if (taxa.indexOfTaxon(names[i]) != i || !taxa.getTaxaNames()[i].equals(names[i])) return false;
+                        }
+                        return true;
+                    }));
+                }
+                for (Future<Boolean> result : results) {
+                    assertTrue(result.get());
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package lphy.evolution.birthdeath;
+
+import junit.framework.TestCase;
+import lphy.core.distributions.Utils;
+import lphy.evolution.tree.ExtantTree;
+import lphy.evolution.tree.PruneTree;
+import lphy.evolution.tree.TimeTree;
+import lphy.evolution.tree.TimeTreeNode;
+import lphy.graphicalModel.Value;
+import lphy.parser.REPL;
+import org.apache.commons.math3.random.MersenneTwister;
+
+import java.util.Arrays;
+
+import static lphy.evolution.tree.CopyKeptNodesTest.*;
+
+public class FullBirthDeathTreeTest extends TestCase {
+
+    static final int N = 3000;
+
+    // the two-sample Kolmogorov-Smirnov critical value at a significance level of 1e-6
+    static final double KS_CRITICAL = 2.69 * Math.sqrt(2.0 / N);
+
+    @Override
+    protected void setUp() {
+        Utils.setRandom(new MersenneTwister(5));
+    }
+
+    private static FullBirthDeathTree fullBirthDeath(Double rootAge, Double originAge, Boolean pruneExtinct) {
+        return new FullBirthDeathTree(new Value<>(null, 1.0), new Value<>(null, 0.5),
+                rootAge == null ? null : new Value<>(null, rootAge),
+                originAge == null ? null : new Value<>(null, originAge),
+                pruneExtinct == null ? null : new Value<>(null, pruneExtinct));
+    }
+
+    // the number of extant taxa and the root age of N reconstructed trees
+    private static double[][] extantStatistics(FullBirthDeathTree fullBirthDeath) {
+        double[][] statistics = new double[2][N];
+        for (int i = 0; i < N; i++) {
+            TimeTree tree = fullBirthDeath.sample().value();
+            if (!fullBirthDeath.isPruneExtinct()) {
+                tree = new ExtantTree(new Value<>(null, tree)).apply().value();
+            }
+            assertReconstructed(tree);
+            statistics[0][i] = tree.n();
+            statistics[1][i] = tree.getRoot().getAge();
+        }
+        return statistics;
+    }
+
+    // only extant leaves and no single-child nodes
+    private static void assertReconstructed(TimeTree tree) {
+        for (TimeTreeNode node : tree.getNodes()) {
+            if (node.isLeaf()) {
+                assertEquals(0.0, node.getAge());
+            } else {
+                assertEquals(2, node.getChildCount());
+            }
+        }
+    }
+
+    private static double mean(double[] x) {
+        return Arrays.stream(x).average().getAsDouble();
+    }
+
+    private static double variance(double[] x) {
+        double mean = mean(x);
+        return Arrays.stream(x).map(d -> (d - mean) * (d - mean)).sum() / (x.length - 1);
+    }
+
+    private static double ksStatistic(double[] x, double[] y) {
+        double[] a = x.clone();
+        double[] b = y.clone();
+        Arrays.sort(a);
+        Arrays.sort(b);
+        int i = 0;
+        int j = 0;
+        double d = 0.0;
+        while (i < a.length && j < b.length) {
+            double t = Math.min(a[i], b[j]);
+            while (i < a.length && a[i] <= t) i++;
+            while (j < b.length && b[j] <= t) j++;
+            d = Math.max(d, Math.abs((double) i / a.length - (double) j / b.length));
+        }
+        return d;
+    }
+
+    private static void assertSameDistribution(String name, double[] pruned, double[] extant) {
+        double se = Math.sqrt((variance(pruned) + variance(extant)) / N);
+        assertEquals(name + " mean", mean(extant), mean(pruned), 5 * se);
+        assertTrue(name + " KS", ksStatistic(pruned, extant) < KS_CRITICAL);
+    }
+
+    public void testPruneExtinctMatchesExtantTree() {
+        double[][] pruned = extantStatistics(fullBirthDeath(3.0, null, true));
+        double[][] extant = extantStatistics(fullBirthDeath(3.0, null, false));
+        assertSameDistribution("extant taxa, rootAge", pruned[0], extant[0]);
+        assertSameDistribution("tree height, rootAge", pruned[1], extant[1]);
+
+        pruned = extantStatistics(fullBirthDeath(null, 3.0, true));
+        extant = extantStatistics(fullBirthDeath(null, 3.0, false));
+        assertSameDistribution("extant taxa, originAge", pruned[0], extant[0]);
+        assertSameDistribution("tree height, originAge", pruned[1], extant[1]);
+    }
+
+    public void testOldCallFormParses() {
+        REPL parser = new REPL();
+        parser.parse("T ~ FullBirthDeath(lambda=1.0, mu=0.5, rootAge=3.0);");
+        FullBirthDeathTree generator = (FullBirthDeathTree) parser.getModelDictionary().get("T").getGenerator();
+        assertFalse(generator.isPruneExtinct());
+        assertFalse(generator.getParams().containsKey(FullBirthDeathTree.pruneExtinctParamName));
+        assertEquals(3.0, ((TimeTree) parser.getModelDictionary().get("T").value()).getRoot().getAge());
+
+        parser = new REPL();
+        parser.parse("T ~ FullBirthDeath(lambda=1.0, mu=0.5, originAge=3.0, pruneExtinct=true);");
+        generator = (FullBirthDeathTree) parser.getModelDictionary().get("T").getGenerator();
+        assertTrue(generator.isPruneExtinct());
+        assertReconstructed((TimeTree) parser.getModelDictionary().get("T").value());
+    }
+
+    /**
+     * Benchmark extantTree and pruneTree on a large full birth-death tree against the previous implementations,
+     * which marked a deep copy of the whole tree and then removed the unmarked and single-child nodes.
+     */
+    public static void main(String[] args) {
+        double rootAge = args.length > 0 ? Double.parseDouble(args[0]) : 19.0;
+        int reps = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        Value<TimeTree> fullTree = fullBirthDeath(rootAge, null, false).sample();
+        ExtantTree extantTree = new ExtantTree(fullTree);
+        PruneTree pruneTree = new PruneTree(fullTree);
+
+        for (int round = 0; round < 2; round++) {
+            TimeTree oldExtant = null, oldPruned = null, newExtant = null, newPruned = null;
+
+            long start = System.nanoTime();
+            for (int r = 0; r < reps; r++) {
+                oldExtant = extantTreeByMarking(fullTree.value());
+            }
+            long oldExtantTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int r = 0; r < reps; r++) {
+                newExtant = extantTree.apply().value();
+            }
+            long newExtantTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int r = 0; r < reps; r++) {
+                oldPruned = pruneTreeByMarking(fullTree.value());
+            }
+            long oldPrunedTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int r = 0; r < reps; r++) {
+                newPruned = pruneTree.apply().value();
+            }
+            long newPrunedTime = System.nanoTime() - start;
+
+            System.out.println(fullTree.value().getNodeCount() + " nodes, " + reps + " transforms: " +
+                    "extantTree " + oldExtantTime / 1e6 + " ms before, " + newExtantTime / 1e6 + " ms now, same tree " +
+                    sameTree(oldExtant.getRoot(), newExtant.getRoot()) + "; " +
+                    "pruneTree " + oldPrunedTime / 1e6 + " ms before, " + newPrunedTime / 1e6 + " ms now, same tree " +
+                    sameTree(oldPruned.getRoot(), newPruned.getRoot()));
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package lphy.evolution.birthdeath;
+
+import junit.framework.TestCase;
+import lphy.evolution.tree.TimeTree;
+import lphy.evolution.tree.TimeTreeNode;
+import lphy.graphicalModel.Value;
+
+public class RhoSampleTreeTest extends TestCase {
+
+    // a caterpillar tree of n extant leaves
+    private TimeTree tree(int n) {
+        TimeTree tree = new TimeTree();
+        TimeTreeNode node = new TimeTreeNode("t0", tree);
+        for (int i = 1; i < n; i++) {
+            node = new TimeTreeNode(i, new TimeTreeNode[]{node, new TimeTreeNode("t" + i, tree)});
+        }
+        tree.setRoot(node);
+        return tree;
+    }
+
+    public void testSampleOfSample() {
+        TimeTree full = tree(100);
+
+        TimeTree sample = new RhoSampleTree(new Value<>(null, full), new Value<>(null, 0.5)).sample().value();
+        assertTrue(sample.n() < full.n());
+
+        // the nodes marked while sampling must not be carried into the copy that is sampled again
+        TimeTree sampleOfSample = new RhoSampleTree(new Value<>(null, sample), new Value<>(null, 0.5)).sample().value();
+        assertTrue(sampleOfSample.n() < sample.n());
+    }
+}
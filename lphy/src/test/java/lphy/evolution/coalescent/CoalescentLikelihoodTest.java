@@ -0,0 +1,57 @@
+package lphy.evolution.coalescent;
+
+import junit.framework.TestCase;
+import lphy.evolution.tree.TimeTree;
+import lphy.evolution.tree.TimeTreeNode;
+import lphy.graphicalModel.Value;
+
+public class CoalescentLikelihoodTest extends TestCase {
+
+    private TimeTree tree(double[] leafAges, double[] internalAges) {
+        TimeTree tree = new TimeTree();
+        TimeTreeNode node = new TimeTreeNode("t0", tree);
+        node.setAge(leafAges[0]);
+        // a caterpillar, adding leaf i at the i'th internal node
+        for (int i = 1; i < leafAges.length; i++) {
+            TimeTreeNode leaf = new TimeTreeNode("t" + i, tree);
+            leaf.setAge(leafAges[i]);
+            node = new TimeTreeNode(internalAges[i - 1], new TimeTreeNode[]{node, leaf});
+        }
+        tree.setRoot(node);
+        return tree;
+    }
+
+    // ((t0:1.0,t1:1.0):2.0,t2:1.5), with t2 sampled at 1.5
+    public void testHeterochronous() {
+        TimeTree tree = tree(new double[]{0.0, 0.0, 1.5}, new double[]{1.0, 3.0});
+        double theta = 2.0;
+
+        // 2 lineages for 1.0, a single lineage until t2 is sampled, and 2 lineages for 1.5
+        double expected = -1.0 / theta - 1.5 / theta - 2 * Math.log(theta);
+        assertEquals(expected, CoalescentLikelihood.logDensity(tree.getCoalescentIntervals(), theta), 1e-12);
+
+        SerialCoalescent serialCoalescent = new SerialCoalescent(new Value<>(null, theta), null, null,
+                new Value<>(null, new Double[]{0.0, 0.0, 1.5}));
+        assertEquals(expected, serialCoalescent.logDensity(tree), 1e-12);
+    }
+
+    // (((t0,t1),t2),t3) with internal nodes at 0.5, 1.0 and 3.0, t3 sampled at 2.0, and a first group of two intervals
+    public void testGroupedSkyline() {
+        TimeTree tree = tree(new double[]{0.0, 0.0, 0.0, 2.0}, new double[]{0.5, 1.0, 3.0});
+        double theta1 = 2.0;
+        double theta2 = 4.0;
+
+        double expected =
+                // 3 lineages for 0.5 and 2 lineages for 0.5 in the first group
+                -3.0 * 0.5 / theta1 - Math.log(theta1) - 0.5 / theta1 - Math.log(theta1)
+                // a single lineage until t3 is sampled, then 2 lineages for 1.0 in the second group
+                - 1.0 / theta2 - Math.log(theta2);
+        assertEquals(expected, CoalescentLikelihood.logDensity(tree.getCoalescentIntervals(),
+                new double[]{theta1, theta1, theta2}), 1e-12);
+
+        SkylineCoalescent skyline = new SkylineCoalescent(new Value<>(null, new Double[]{theta1, theta2}),
+                new Value<>(null, new Integer[]{2, 1}), null, null,
+                new Value<>(null, new Double[]{0.0, 0.0, 0.0, 2.0}));
+        assertEquals(expected, skyline.logDensity(tree), 1e-12);
+    }
+}
@@ -0,0 +1,141 @@
+package lphy.evolution.coalescent;
+
+import junit.framework.TestCase;
+import lphy.core.distributions.Utils;
+import lphy.evolution.Taxa;
+import lphy.evolution.Taxon;
+import lphy.evolution.tree.TimeTree;
+import lphy.evolution.tree.TimeTreeNode;
+import lphy.graphicalModel.Value;
+import org.apache.commons.math3.random.MersenneTwister;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+
+public class MultispeciesCoalescentTest extends TestCase {
+
+    TimeTree speciesTree;
+    Double[] thetas;
+    Taxa geneTaxa;
+
+    // (A:1.0,B:1.0) with the population sizes 2, 3 and 4 of A, B and the root
+    @Override
+    protected void setUp() {
+        speciesTree = new TimeTree();
+        TimeTreeNode a = new TimeTreeNode("A", speciesTree);
+        TimeTreeNode b = new TimeTreeNode("B", speciesTree);
+        speciesTree.setRoot(new TimeTreeNode(1.0, new TimeTreeNode[]{a, b}));
+        thetas = new Double[3];
+        thetas[a.getIndex()] = 2.0;
+        thetas[b.getIndex()] = 3.0;
+        thetas[speciesTree.getRoot().getIndex()] = 4.0;
+
+        geneTaxa = new Taxa.Simple(new Taxon[]{new Taxon("a0", "A"), new Taxon("a1", "A"), new Taxon("b0", "B")});
+    }
+
+    private TimeTree geneTree(String x, String y, double xyAge, String z, double rootAge) {
+        TimeTree geneTree = new TimeTree(geneTaxa);
+        Taxon[] taxa = geneTaxa.getTaxonArray();
+        TimeTreeNode[] leaves = new TimeTreeNode[taxa.length];
+        for (int i = 0; i < taxa.length; i++) {
+            leaves[i] = new TimeTreeNode(taxa[i], geneTree);
+        }
+        TimeTreeNode xy = new TimeTreeNode(xyAge, new TimeTreeNode[]{leaves[geneTaxa.indexOfTaxon(x)], leaves[geneTaxa.indexOfTaxon(y)]});
+        geneTree.setRoot(new TimeTreeNode(rootAge, new TimeTreeNode[]{xy, leaves[geneTaxa.indexOfTaxon(z)]}));
+        return geneTree;
+    }
+
+    private MultispeciesCoalescent msc() {
+        return new MultispeciesCoalescent(new Value<>(null, thetas), null, new Value<>(null, geneTaxa), new Value<>(null, speciesTree));
+    }
+
+    public void testLogDensity() {
+        // a0 and a1 coalesce in A at 0.5, and b0 joins them in the root at 1.5
+        double expected = -0.5 / 2.0 - Math.log(2.0) - 0.5 / 4.0 - Math.log(4.0);
+        assertEquals(expected, msc().logDensity(geneTree("a0", "a1", 0.5, "b0", 1.5)), 1e-12);
+
+        // the two lineages of A do not coalesce before 1, then a0 and b0 coalesce in the root at 1.25 and a1 joins them at 2.0
+        expected = -1.0 / 2.0
+                - 3.0 * 0.25 / 4.0 - Math.log(4.0)
+                - 0.75 / 4.0 - Math.log(4.0);
+        assertEquals(expected, msc().logDensity(geneTree("a0", "b0", 1.25, "a1", 2.0)), 1e-12);
+    }
+
+    public void testIncompatibleGeneTree() {
+        // a0 and b0 cannot coalesce before their species diverge
+        assertEquals(Double.NEGATIVE_INFINITY, msc().logDensity(geneTree("a0", "b0", 0.5, "a1", 2.0)));
+    }
+
+    private TimeTree[] sampleLoci(long seed, int numLoci, int threads) throws InterruptedException, ExecutionException {
+        Utils.setRandom(new MersenneTwister(seed));
+        MultispeciesCoalescent msc = msc();
+        // a parallel stream started from a pool runs its tasks in that pool
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            return pool.submit(() -> msc.sampleLoci(numLoci)).get();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    public void testSampleLociIndependentOfThreads() throws InterruptedException, ExecutionException {
+        TimeTree[] sequential = sampleLoci(42, 200, 1);
+        for (int threads : new int[]{2, 8}) {
+            for (int r = 0; r < 3; r++) {
+                TimeTree[] parallel = sampleLoci(42, 200, threads);
+                assertEquals(sequential.length, parallel.length);
+                for (int i = 0; i < sequential.length; i++) {
+                    assertEquals(sequential[i].toNewick(true), parallel[i].toNewick(true));
+                }
+            }
+        }
+        // the loci differ from each other and from another seed
+        assertFalse(sequential[0].toNewick(true).equals(sequential[1].toNewick(true)));
+        assertFalse(sequential[0].toNewick(true).equals(sampleLoci(43, 1, 1)[0].toNewick(true)));
+    }
+
+    // whether a0 and a1 coalesce first, and the age of the root
+    private static double[] summary(TimeTree geneTree) {
+        TimeTreeNode root = geneTree.getRoot();
+        boolean a0a1 = false;
+        for (TimeTreeNode child : root.getChildren()) {
+            if (!child.isLeaf()) {
+                a0a1 = child.getChildren().get(0).getId().startsWith("a") && child.getChildren().get(1).getId().startsWith("a");
+            }
+        }
+        return new double[]{a0a1 ? 1.0 : 0.0, root.getAge()};
+    }
+
+    public void testSingleLocusDistribution() {
+        Utils.setRandom(new MersenneTwister(7));
+        MultispeciesCoalescent msc = msc();
+
+        int n = 20000;
+        double[] single = new double[2];
+        double[] loci = new double[2];
+        for (int i = 0; i < n; i++) {
+            double[] s = summary((TimeTree) msc.sample().value());
+            TimeTree[] geneTrees = msc.sampleLoci(1);
+            assertEquals(1, geneTrees.length);
+            double[] l = summary(geneTrees[0]);
+            for (int k = 0; k < 2; k++) {
+                single[k] += s[k] / n;
+                loci[k] += l[k] / n;
+            }
+        }
+
+        // a0 and a1 coalesce in A with rate 1/2 before 1, or are the first of the three pairs to coalesce in the root
+        double pCoalesceInA = 1.0 - Math.exp(-0.5);
+        double pA0A1 = pCoalesceInA + (1.0 - pCoalesceInA) / 3.0;
+        double se = Math.sqrt(pA0A1 * (1 - pA0A1) / n);
+        assertEquals(pA0A1, single[0], 5 * se);
+        assertEquals(pA0A1, loci[0], 5 * se);
+
+        // the root is 1 plus the waiting times with rates 3/4 and 1/4 from three lineages, or 1/4 from two
+        double pThree = Math.exp(-0.5);
+        double rootAge = 1.0 + pThree * (4.0 / 3.0 + 4.0) + (1 - pThree) * 4.0;
+        // the standard deviation of the root age is below 5
+        assertEquals(rootAge, single[1], 25 / Math.sqrt(n));
+        assertEquals(rootAge, loci[1], 25 / Math.sqrt(n));
+    }
+}
@@ -0,0 +1,132 @@
+package lphy.evolution.continuous;
+
+import lphy.core.functions.newickParser.FastNewickParser;
+import lphy.evolution.alignment.ContinuousCharacterData;
+import lphy.evolution.tree.TimeTree;
+import lphy.evolution.tree.TimeTreeNode;
+import lphy.graphicalModel.Value;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/*
+ * Compares the pruning log densities of the Brownian models with the multivariate normal density
+ * of the leaf traits, whose covariance is built from the shared path lengths of the tree.
+ */
+public class PhyloBrownianLogDensityTest {
+
+    // D is sampled at 0.3, and the root is at 2.0
+    private final TimeTree tree = FastNewickParser.parseTree("((A:1.0,B:1.0):1.0,(C:1.5,D:1.2):0.5);");
+
+    private TimeTreeNode leaf(String id) {
+        for (TimeTreeNode node : tree.getNodes()) {
+            if (id.equals(node.getId())) return node;
+        }
+        throw new IllegalArgumentException(id);
+    }
+
+    // the length of the path shared by two leaves from the root, i.e. the covariance of their traits per unit rate
+    private double sharedPath(String a, String b) {
+        Set<TimeTreeNode> ancestors = new HashSet<>();
+        for (TimeTreeNode node = leaf(a); node != null; node = node.getParent()) {
+            ancestors.add(node);
+        }
+        TimeTreeNode mrca = leaf(b);
+        while (!ancestors.contains(mrca)) mrca = mrca.getParent();
+        return tree.getRoot().getAge() - mrca.getAge();
+    }
+
+    // the dense multivariate normal log density, by Cholesky decomposition of the covariance
+    private static double logMultivariateNormal(double[] x, double[] mean, double[][] covariance) {
+        int n = x.length;
+        double[][] lower = new double[n][n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j <= i; j++) {
+                double sum = covariance[i][j];
+                for (int k = 0; k < j; k++) sum -= lower[i][k] * lower[j][k];
+                lower[i][j] = i == j ? Math.sqrt(sum) : sum / lower[j][j];
+            }
+        }
+        double logDensity = -0.5 * n * Math.log(2.0 * Math.PI);
+        double[] z = new double[n];
+        for (int i = 0; i < n; i++) {
+            double sum = x[i] - mean[i];
+            for (int k = 0; k < i; k++) sum -= lower[i][k] * z[k];
+            z[i] = sum / lower[i][i];
+            logDensity -= Math.log(lower[i][i]) + 0.5 * z[i] * z[i];
+        }
+        return logDensity;
+    }
+
+    private ContinuousCharacterData data(String[] names, Double[][] values) {
+        String[] taxa = tree.getTaxa().getTaxaNames();
+        Double[][] rows = new Double[taxa.length][];
+        for (int i = 0; i < taxa.length; i++) {
+            for (int j = 0; j < names.length; j++) {
+                if (names[j].equals(taxa[i])) rows[i] = values[j];
+            }
+        }
+        return new ContinuousCharacterData(tree.getTaxa(), rows);
+    }
+
+    @Test
+    public void univariateLogDensity() {
+        String[] names = {"A", "B", "C", "D"};
+        // the second trait is missing for D
+        Double[][] values = {{0.3, -1.0}, {0.8, -0.5}, {-0.4, 0.2}, {1.1, null}};
+        double rate = 0.7;
+        double y0 = 0.25;
+
+        double expected = 0.0;
+        for (int trait = 0; trait < 2; trait++) {
+            int n = trait == 0 ? 4 : 3;
+            double[] x = new double[n];
+            double[] mean = new double[n];
+            double[][] covariance = new double[n][n];
+            for (int a = 0; a < n; a++) {
+                x[a] = values[a][trait];
+                mean[a] = y0;
+                for (int b = 0; b < n; b++) {
+                    covariance[a][b] = rate * sharedPath(names[a], names[b]);
+                }
+            }
+            expected += logMultivariateNormal(x, mean, covariance);
+        }
+
+        PhyloBrownian brownian = new PhyloBrownian(new Value<>(null, tree), new Value<>(null, rate), new Value<>(null, y0));
+        Assert.assertEquals(expected, brownian.logDensity(data(names, values)), 1e-10);
+    }
+
+    @Test
+    public void multivariateLogDensity() {
+        String[] names = {"A", "B", "C", "D"};
+        Double[][] values = {{0.3, -1.0}, {0.8, -0.5}, {-0.4, 0.2}, {1.1, 0.6}};
+        Double[][] diffusionMatrix = {{1.0, 0.3}, {0.3, 0.5}};
+        Double[] y0 = {0.25, -0.1};
+
+        // the covariance of (leaf a, trait i) and (leaf b, trait j) is sharedPath(a, b) * diffusionMatrix[i][j]
+        int n = names.length;
+        int k = y0.length;
+        double[] x = new double[n * k];
+        double[] mean = new double[n * k];
+        double[][] covariance = new double[n * k][n * k];
+        for (int a = 0; a < n; a++) {
+            for (int i = 0; i < k; i++) {
+                x[a * k + i] = values[a][i];
+                mean[a * k + i] = y0[i];
+                for (int b = 0; b < n; b++) {
+                    for (int j = 0; j < k; j++) {
+                        covariance[a * k + i][b * k + j] = sharedPath(names[a], names[b]) * diffusionMatrix[i][j];
+                    }
+                }
+            }
+        }
+        double expected = logMultivariateNormal(x, mean, covariance);
+
+        PhyloMultivariateBrownian brownian = new PhyloMultivariateBrownian(new Value<>(null, tree),
+                new Value<>(null, diffusionMatrix), new Value<>(null, y0));
+        Assert.assertEquals(expected, brownian.logDensity(data(names, values)), 1e-10);
+    }
+}
@@ -0,0 +1,66 @@
+package lphy.evolution.io;
+
+import junit.framework.TestCase;
+import lphy.evolution.tree.TimeTree;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+public class TreeFileIndexTest extends TestCase {
+
+    private Path write(String suffix, String content) throws IOException {
+        Path file = Files.createTempFile("trees", suffix);
+        file.toFile().deleteOnExit();
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static List<String> leafNames(TimeTree tree) {
+        String[] names = tree.getTaxaNames();
+        Arrays.sort(names);
+        return Arrays.asList(names);
+    }
+
+    public void testNexusTranslate() throws IOException {
+        Path file = write(".trees", "#NEXUS\n\n" +
+                "Begin taxa;\n\tDimensions ntax=3;\n\tTaxlabels\n\t\tZürich 'São Paulo' Ōtautahi\n\t\t;\nEnd;\n" +
+                "Begin trees;\n" +
+                "\tTranslate\n\t\t1 Zürich,\n\t\t2 'São Paulo',\n\t\t3 Ōtautahi\n\t\t;\n" +
+                "tree STATE_0 = [&R] ((1:1.0,2:1.0):1.0,3:2.0);\n" +
+                "tree STATE_1000 = [&R] ((1[&rate=0.5]:0.5,3[&type=\"a;b]\"]:0.5):1.5,2:2.0);\n" +
+                "End;\n");
+
+        TreeFileIndex index = new TreeFileIndex(file);
+        assertEquals(2, index.size());
+        assertEquals("STATE_0", index.getTreeName(0));
+        assertEquals("STATE_1000", index.getTreeName(1));
+
+        List<String> expected = Arrays.asList("São Paulo", "Zürich", "Ōtautahi");
+        assertEquals(expected, leafNames(index.getTree(0)));
+        assertEquals(expected, leafNames(index.getTree(1)));
+        assertEquals(2.0, index.getTree(1).getRoot().getAge(), 1e-12);
+        // trees can be read again, in any order
+        assertEquals(2.0, index.getTree(0).getRoot().getAge(), 1e-12);
+    }
+
+    public void testNewickTrees() throws IOException {
+        Path file = write(".newick",
+                "((A:1.0,B:1.0):1.0,C:2.0);\n" +
+                "((can't:1.0,'B;C':1.0):1.0,D:2.0);\n" +
+                "\n" +
+                "(('Ä':1.0,B:2.0):1.0,'x''y':3.0);\n");
+
+        TreeFileIndex index = new TreeFileIndex(file);
+        assertEquals(3, index.size());
+        assertNull(index.getTreeName(0));
+
+        assertEquals(Arrays.asList("A", "B", "C"), leafNames(index.getTree(0)));
+        assertEquals(Arrays.asList("'B;C'", "D", "can't"), leafNames(index.getTree(1)));
+        assertEquals(Arrays.asList("'x''y'", "'Ä'", "B"), leafNames(index.getTree(2)));
+        assertEquals(3.0, index.getTree(2).getRoot().getAge(), 1e-12);
+    }
+}
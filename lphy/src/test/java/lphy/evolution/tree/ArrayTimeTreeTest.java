@@ -0,0 +1,64 @@
+package lphy.evolution.tree;
+
+import junit.framework.TestCase;
+import lphy.evolution.Taxa;
+
+public class ArrayTimeTreeTest extends TestCase {
+
+    // ((t0:1,t1:1):2,(t2:0.5,t3:0.5)[&rate=2.0]:2.5) with an origin above the root
+    private TimeTree tree() {
+        TimeTree tree = new TimeTree();
+        TimeTreeNode[] leaves = new TimeTreeNode[4];
+        for (int i = 0; i < leaves.length; i++) {
+            leaves[i] = new TimeTreeNode("t" + i, tree);
+        }
+        leaves[2].setAge(0.5);
+        leaves[3].setAge(0.5);
+        TimeTreeNode a = new TimeTreeNode(1.0, new TimeTreeNode[]{leaves[0], leaves[1]});
+        TimeTreeNode b = new TimeTreeNode(1.0, new TimeTreeNode[]{leaves[2], leaves[3]});
+        b.setMetaData("rate", 2.0);
+        TimeTreeNode root = new TimeTreeNode(3.0, new TimeTreeNode[]{a, b});
+        TimeTreeNode origin = new TimeTreeNode(4.0, new TimeTreeNode[]{root});
+        tree.setRoot(origin);
+        return tree;
+    }
+
+    public void testRoundTrip() {
+        TimeTree tree = tree();
+        ArrayTimeTree arrayTree = ArrayTimeTree.fromTimeTree(tree);
+
+        assertEquals(4, arrayTree.getLeafCount());
+        assertEquals(tree.getNodeCount(), arrayTree.getNodeCount());
+        assertEquals(tree.treeLength(), arrayTree.treeLength(), 1e-12);
+        assertEquals(4.0, arrayTree.rootAge());
+        assertEquals(1, arrayTree.getChildCount(arrayTree.getRoot()));
+
+        TimeTree copy = arrayTree.toTimeTree();
+        assertEquals(tree.toNewick(true), copy.toNewick(true));
+        assertEquals(tree.toNewick(false), ArrayTimeTree.fromTimeTree(copy).toTimeTree().toNewick(false));
+    }
+
+    public void testSparseLeafIndices() {
+        // the taxa of a larger tree that this one was pruned from
+        TimeTree tree = new TimeTree(Taxa.createTaxa(11));
+        TimeTreeNode[] leaves = new TimeTreeNode[3];
+        int[] leafIndices = {7, 3, 10};
+        for (int i = 0; i < leaves.length; i++) {
+            leaves[i] = new TimeTreeNode("t" + leafIndices[i], tree);
+            leaves[i].setLeafIndex(leafIndices[i]);
+        }
+        TimeTreeNode a = new TimeTreeNode(1.0, new TimeTreeNode[]{leaves[0], leaves[1]});
+        TimeTreeNode root = new TimeTreeNode(2.0, new TimeTreeNode[]{a, leaves[2]});
+        // kept leaf indices, as after pruning
+        tree.setRoot(root, false);
+
+        ArrayTimeTree arrayTree = ArrayTimeTree.fromTimeTree(tree);
+        assertEquals(3, arrayTree.getLeafCount());
+        assertEquals(5, arrayTree.getNodeCount());
+        // the leaves are compacted in the order of their leaf indices
+        assertEquals("t3", arrayTree.getId(0));
+        assertEquals("t7", arrayTree.getId(1));
+        assertEquals("t10", arrayTree.getId(2));
+        assertEquals(tree.toNewick(false), arrayTree.toTimeTree().toNewick(false));
+    }
+}
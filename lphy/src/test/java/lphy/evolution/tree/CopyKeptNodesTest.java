@@ -0,0 +1,181 @@
+package lphy.evolution.tree;
+
+import junit.framework.TestCase;
+import lphy.graphicalModel.Value;
+
+import java.util.*;
+
+import static lphy.evolution.tree.TimeTreeUtils.*;
+
+/*
+ * Compares extantTree and pruneTree, which copy only the kept nodes, with the previous implementations,
+ * which marked a deep copy of the whole tree and then removed the unmarked and single-child nodes.
+ */
+public class CopyKeptNodesTest extends TestCase {
+
+    public static TimeTree extantTreeByMarking(TimeTree tree) {
+        TimeTree extantTree = new TimeTree(tree);
+        for (TimeTreeNode node : extantTree.getNodes()) {
+            if (node.isLeaf() && node.getAge() == 0.0) markNodeAndDirectAncestors(node);
+        }
+        removeUnmarkedNodes(extantTree);
+        TimeTreeNode newRoot = getFirstNonSingleChildNode(extantTree);
+        if (!newRoot.isRoot()) newRoot.getParent().removeChild(newRoot);
+        removeSingleChildNodes(newRoot, false);
+        removeMarks(newRoot);
+        extantTree.setRoot(newRoot, true);
+        return extantTree;
+    }
+
+    public static TimeTree pruneTreeByMarking(TimeTree tree) {
+        TimeTree prunedTree = new TimeTree(tree);
+        for (TimeTreeNode node : prunedTree.getNodes()) {
+            if (node.getId() != null) markNodeAndDirectAncestors(node);
+        }
+        removeUnmarkedNodes(prunedTree);
+        removeSingleChildNodes(prunedTree, true);
+        prunedTree.setRoot(prunedTree.getRoot(), true);
+        removeMarks(prunedTree);
+        return prunedTree;
+    }
+
+    // the previous implementations moved spliced children to the end of their parent's children, so ignore the order of children
+    public static boolean sameTree(TimeTreeNode a, TimeTreeNode b) {
+        return canonicalNewick(a).equals(canonicalNewick(b));
+    }
+
+    public static String canonicalNewick(TimeTreeNode node) {
+        String label = (node.getId() == null ? "" : node.getId()) + ":" + node.getAge();
+        if (node.isLeaf()) return label;
+        List<String> children = new ArrayList<>();
+        for (TimeTreeNode child : node.getChildren()) {
+            children.add(canonicalNewick(child));
+        }
+        Collections.sort(children);
+        return "(" + String.join(",", children) + ")" + label;
+    }
+
+    /**
+     * A random tree with extant tips, named fossil tips, anonymous extinct tips, named sampled ancestors
+     * and anonymous single-child nodes, and sometimes a single-child origin above the root.
+     * The first tip is always extant.
+     */
+    private static TimeTree randomTree(int n, double pFossil, double pExtinct, Random random) {
+        TimeTree tree = new TimeTree();
+        List<TimeTreeNode> active = new ArrayList<>();
+        int fossils = 0;
+        for (int i = 0; i < n; i++) {
+            double u = i == 0 ? 1.0 : random.nextDouble();
+            TimeTreeNode tip;
+            if (u < pFossil) {
+                tip = new TimeTreeNode("f" + fossils++, tree);
+                tip.setAge(random.nextDouble());
+            } else if (u < pFossil + pExtinct) {
+                tip = new TimeTreeNode((String) null, tree);
+                tip.setAge(random.nextDouble());
+            } else {
+                tip = new TimeTreeNode("t" + i, tree);
+            }
+            active.add(tip);
+        }
+
+        double age = 1.0;
+        while (active.size() > 1) {
+            age += random.nextDouble();
+            TimeTreeNode a = active.remove(random.nextInt(active.size()));
+            if (random.nextInt(4) == 0) {
+                // a sampled ancestor or an anonymous single-child node
+                a = new TimeTreeNode(age, new TimeTreeNode[]{a});
+                if (random.nextBoolean()) a.setId("f" + fossils++);
+                age += random.nextDouble();
+            }
+            TimeTreeNode b = active.remove(random.nextInt(active.size()));
+            active.add(new TimeTreeNode(age, new TimeTreeNode[]{a, b}));
+        }
+
+        TimeTreeNode root = active.get(0);
+        if (random.nextBoolean()) root = new TimeTreeNode(age + 1.0, new TimeTreeNode[]{root});
+        tree.setRoot(root, true);
+        return tree;
+    }
+
+    private static void assertSameTree(TimeTree expected, TimeTree actual) {
+        assertEquals(canonicalNewick(expected.getRoot()), canonicalNewick(actual.getRoot()));
+        assertEquals(expected.getNodeCount(), actual.getNodeCount());
+        assertEquals(expected.n(), actual.n());
+        assertTrue(actual.getRoot().isRoot());
+    }
+
+    // the transformed tree is a copy, and the tree it was made from is unchanged
+    private static void assertCopy(TimeTree tree, String newick, TimeTree copy) {
+        assertEquals(newick, canonicalNewick(tree.getRoot()));
+        Set<TimeTreeNode> nodes = Collections.newSetFromMap(new IdentityHashMap<>());
+        nodes.addAll(tree.getNodes());
+        for (TimeTreeNode node : copy.getNodes()) {
+            assertFalse(nodes.contains(node));
+        }
+    }
+
+    private static void assertEquivalent(TimeTree tree) {
+        String newick = canonicalNewick(tree.getRoot());
+        Value<TimeTree> value = new Value<>(null, tree);
+
+        TimeTree extantTree = new ExtantTree(value).apply().value();
+        assertCopy(tree, newick, extantTree);
+        assertSameTree(extantTreeByMarking(tree), extantTree);
+        for (TimeTreeNode node : extantTree.getNodes()) {
+            assertTrue(node.isLeaf() ? node.getAge() == 0.0 : node.getChildCount() == 2);
+        }
+
+        TimeTree prunedTree = new PruneTree(value).apply().value();
+        assertCopy(tree, newick, prunedTree);
+        assertSameTree(pruneTreeByMarking(tree), prunedTree);
+    }
+
+    public void testFossilHeavyTrees() {
+        Random random = new Random(3);
+        for (int r = 0; r < 200; r++) {
+            assertEquivalent(randomTree(2 + random.nextInt(60), 0.7, 0.1, random));
+        }
+    }
+
+    public void testExtinctHeavyTrees() {
+        Random random = new Random(5);
+        for (int r = 0; r < 200; r++) {
+            assertEquivalent(randomTree(2 + random.nextInt(60), 0.05, 0.85, random));
+        }
+    }
+
+    public void testSingleExtantTip() {
+        Random random = new Random(7);
+        for (int r = 0; r < 50; r++) {
+            // every tip but the first is extinct
+            TimeTree tree = randomTree(2 + random.nextInt(20), 0.0, 1.0, random);
+            TimeTree extantTree = new ExtantTree(new Value<>(null, tree)).apply().value();
+            assertSameTree(extantTreeByMarking(tree), extantTree);
+            assertEquals(1, extantTree.getNodeCount());
+            assertEquals("t0", extantTree.getRoot().getId());
+        }
+    }
+
+    public void testSplicing() {
+        // ((t0, x:0.5) sa:1.5 (single child), f1:0.2) root:3, where x is anonymous and extinct
+        TimeTree tree = new TimeTree();
+        TimeTreeNode t0 = new TimeTreeNode("t0", tree);
+        TimeTreeNode x = new TimeTreeNode((String) null, tree);
+        x.setAge(0.5);
+        TimeTreeNode f1 = new TimeTreeNode("f1", tree);
+        f1.setAge(0.2);
+        TimeTreeNode cherry = new TimeTreeNode(1.0, new TimeTreeNode[]{t0, x});
+        TimeTreeNode sa = new TimeTreeNode(1.5, new TimeTreeNode[]{cherry});
+        sa.setId("sa");
+        tree.setRoot(new TimeTreeNode(3.0, new TimeTreeNode[]{sa, f1}), true);
+        assertEquivalent(tree);
+
+        // extantTree splices everything down to t0, while pruneTree keeps the sampled ancestor above it
+        TimeTree extantTree = new ExtantTree(new Value<>(null, tree)).apply().value();
+        assertEquals("t0:0.0", canonicalNewick(extantTree.getRoot()));
+        TimeTree prunedTree = new PruneTree(new Value<>(null, tree)).apply().value();
+        assertEquals("((t0:0.0)sa:1.5,f1:0.2):3.0", canonicalNewick(prunedTree.getRoot()));
+    }
+}
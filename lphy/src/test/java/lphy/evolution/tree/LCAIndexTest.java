@@ -0,0 +1,136 @@
+package lphy.evolution.tree;
+
+import junit.framework.TestCase;
+
+import java.util.*;
+
+public class LCAIndexTest extends TestCase {
+
+    // a random tree that joins random lineages, some of which first pass through a single-child node
+    private TimeTree randomTree(int n, Random random) {
+        TimeTree tree = new TimeTree();
+        List<TimeTreeNode> active = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            TimeTreeNode leaf = new TimeTreeNode("t" + i, tree);
+            leaf.setAge(random.nextInt(3) == 0 ? random.nextDouble() : 0.0);
+            active.add(leaf);
+        }
+        double age = 1.0;
+        while (active.size() > 1) {
+            age += random.nextDouble();
+            TimeTreeNode a = active.remove(random.nextInt(active.size()));
+            if (random.nextInt(5) == 0) {
+                a = new TimeTreeNode(age, new TimeTreeNode[]{a});
+                age += random.nextDouble();
+            }
+            TimeTreeNode b = active.remove(random.nextInt(active.size()));
+            active.add(new TimeTreeNode(age, new TimeTreeNode[]{a, b}));
+        }
+        tree.setRoot(new TimeTreeNode(age + 1.0, new TimeTreeNode[]{active.get(0)}));
+        return tree;
+    }
+
+    private static List<TimeTreeNode> ancestors(TimeTreeNode node) {
+        List<TimeTreeNode> ancestors = new ArrayList<>();
+        for (; node != null; node = node.getParent()) {
+            ancestors.add(node);
+        }
+        return ancestors;
+    }
+
+    private static TimeTreeNode naiveMRCA(TimeTreeNode a, TimeTreeNode b) {
+        Set<TimeTreeNode> ancestors = Collections.newSetFromMap(new IdentityHashMap<>());
+        ancestors.addAll(ancestors(a));
+        while (!ancestors.contains(b)) b = b.getParent();
+        return b;
+    }
+
+    private static Set<String> naiveClade(TimeTreeNode node) {
+        Set<String> clade = new TreeSet<>();
+        for (TimeTreeNode descendant : TimeTreeTraversal.getPreOrder(node)) {
+            if (descendant.isLeaf()) clade.add(descendant.getId());
+        }
+        return clade;
+    }
+
+    private static void assertAgrees(TimeTree tree, LCAIndex index, Random random) {
+        List<TimeTreeNode> nodes = TimeTreeTraversal.getPreOrder(tree.getRoot());
+        List<TimeTreeNode> leaves = new ArrayList<>();
+        for (TimeTreeNode node : nodes) {
+            if (node.isLeaf()) leaves.add(node);
+        }
+
+        for (TimeTreeNode a : nodes) {
+            for (TimeTreeNode b : nodes) {
+                assertSame(naiveMRCA(a, b), index.getMRCA(a, b));
+                assertEquals(ancestors(b).contains(a), index.isAncestor(a, b));
+            }
+            Set<String> clade = naiveClade(a);
+            assertEquals(clade.size(), index.getCladeSize(a));
+            Set<String> cladeLeaves = new TreeSet<>();
+            for (TimeTreeNode leaf : index.getCladeLeaves(a)) {
+                cladeLeaves.add(leaf.getId());
+            }
+            assertEquals(clade, cladeLeaves);
+        }
+
+        for (int i = 0; i < 50; i++) {
+            int k = 1 + random.nextInt(leaves.size());
+            Collections.shuffle(leaves, random);
+            List<TimeTreeNode> subset = leaves.subList(0, k);
+            TimeTreeNode mrca = subset.get(0);
+            String[] taxa = new String[k];
+            for (int j = 0; j < k; j++) {
+                mrca = naiveMRCA(mrca, subset.get(j));
+                taxa[j] = subset.get(j).getId();
+            }
+            assertSame(mrca, index.getMRCA(subset));
+            assertSame(mrca, index.getMRCA(taxa));
+            assertEquals(naiveClade(mrca).equals(new TreeSet<>(Arrays.asList(taxa))), index.isMonophyletic(taxa));
+        }
+    }
+
+    public void testRandomTrees() {
+        Random random = new Random(7);
+        for (int r = 0; r < 20; r++) {
+            TimeTree tree = randomTree(2 + random.nextInt(40), random);
+            assertAgrees(tree, tree.getLCAIndex(), random);
+        }
+    }
+
+    public void testSingleLeaf() {
+        TimeTree tree = new TimeTree();
+        TimeTreeNode leaf = new TimeTreeNode("t0", tree);
+        tree.setRoot(leaf);
+        LCAIndex index = tree.getLCAIndex();
+        assertSame(leaf, index.getMRCA(leaf, leaf));
+        assertTrue(index.isMonophyletic("t0"));
+        assertEquals(1, index.getCladeSize(leaf));
+    }
+
+    public void testIndependentOfNodeIndices() {
+        Random random = new Random(11);
+        TimeTree tree = randomTree(20, random);
+
+        // a new clade added below a leaf's parent is not indexed until the tree is rooted again
+        TimeTreeNode t20 = new TimeTreeNode("t20", tree);
+        TimeTreeNode t21 = new TimeTreeNode("t21", tree);
+        TimeTreeNode clade = new TimeTreeNode(0.5, new TimeTreeNode[]{t20, t21});
+        TimeTreeNode leaf = tree.getStatistics().getLeafNodes().get(3);
+        TimeTreeNode parent = leaf.getParent();
+        parent.removeChild(leaf);
+        parent.addChild(new TimeTreeNode(Math.max(leaf.getAge(), 0.5) + 1e-3, new TimeTreeNode[]{leaf, clade}));
+        // the new nodes share the index 0 with an indexed leaf
+        assertEquals(0, t20.getIndex());
+
+        LCAIndex index = tree.getLCAIndex();
+        assertSame(clade, index.getMRCA(t20, t21));
+        assertTrue(index.isMonophyletic("t20", "t21"));
+        assertAgrees(tree, index, random);
+
+        // leaf indices that are kept by setRoot are not 0 to n-1
+        TimeTree copy = new TimeTree(tree);
+        copy.setRoot(copy.getRoot(), false);
+        assertAgrees(copy, copy.getLCAIndex(), random);
+    }
+}
@@ -0,0 +1,55 @@
+package lphy.evolution.tree;
+
+import junit.framework.TestCase;
+
+import java.util.List;
+
+public class TimeTreeTraversalTest extends TestCase {
+
+    // a caterpillar tree deep enough to overflow a recursive traversal
+    private TimeTree caterpillar(int n) {
+        TimeTree tree = new TimeTree();
+        TimeTreeNode node = new TimeTreeNode("t0", tree);
+        for (int i = 1; i < n; i++) {
+            TimeTreeNode leaf = new TimeTreeNode("t" + i, tree);
+            node = new TimeTreeNode(i, new TimeTreeNode[]{node, leaf});
+        }
+        tree.setRoot(node);
+        return tree;
+    }
+
+    public void testOrders() {
+        TimeTree tree = caterpillar(4);
+        TimeTreeNode root = tree.getRoot();
+
+        List<TimeTreeNode> preOrder = TimeTreeTraversal.getPreOrder(root);
+        List<TimeTreeNode> postOrder = TimeTreeTraversal.getPostOrder(root);
+
+        assertEquals(7, preOrder.size());
+        assertEquals(7, postOrder.size());
+        assertSame(root, preOrder.get(0));
+        assertSame(root, postOrder.get(postOrder.size() - 1));
+        assertEquals("t0", postOrder.get(0).getId());
+        assertEquals("t1", postOrder.get(1).getId());
+
+        for (int i = 0; i < preOrder.size(); i++) {
+            TimeTreeNode node = preOrder.get(i);
+            if (!node.isRoot()) assertTrue(preOrder.indexOf(node.getParent()) < i);
+            node = postOrder.get(i);
+            if (!node.isRoot()) assertTrue(postOrder.indexOf(node.getParent()) > i);
+        }
+    }
+
+    public void testDeepTree() {
+        int n = 100000;
+        TimeTree tree = caterpillar(n);
+
+        assertEquals(2 * n - 1, tree.getNodeCount());
+        assertEquals(n, tree.getRoot().countLeaves());
+        assertEquals(n, tree.getTaxa().ntaxa());
+
+        String newick = tree.toNewick(true);
+        assertTrue(newick.endsWith(":0.0;"));
+        assertEquals(newick, new TimeTree(tree).toNewick(true));
+    }
+}
@@ -0,0 +1,100 @@
+package lphy.evolution.tree;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class TreeStatisticsTest extends TestCase {
+
+    TimeTree tree;
+    TimeTreeNode[] leaves;
+    TimeTreeNode singleChild;
+    TimeTreeNode b;
+
+    // an origin at 5 above the root at 3, with the clades (t0,t1) at 1
+    // and a single-child node at 2 above (t2,t3) at 1.5, where t2 is sampled at 0.5 and t3 is a zero-branch-length leaf
+    @Override
+    protected void setUp() {
+        tree = new TimeTree();
+        leaves = new TimeTreeNode[4];
+        for (int i = 0; i < leaves.length; i++) {
+            leaves[i] = new TimeTreeNode("t" + i, tree);
+        }
+        leaves[2].setAge(0.5);
+        leaves[3].setAge(1.5);
+        TimeTreeNode a = new TimeTreeNode(1.0, new TimeTreeNode[]{leaves[0], leaves[1]});
+        b = new TimeTreeNode(1.5, new TimeTreeNode[]{leaves[2], leaves[3]});
+        singleChild = new TimeTreeNode(2.0, new TimeTreeNode[]{b});
+        TimeTreeNode root = new TimeTreeNode(3.0, new TimeTreeNode[]{a, singleChild});
+        tree.setRoot(new TimeTreeNode(5.0, new TimeTreeNode[]{root}));
+    }
+
+    public void testStatistics() {
+        TreeStatistics statistics = tree.getStatistics();
+
+        double treeLength = 0.0;
+        for (TimeTreeNode node : tree.getNodes()) {
+            if (!node.isRoot()) treeLength += node.getParent().getAge() - node.getAge();
+        }
+        assertEquals(8.5, treeLength, 1e-12);
+        assertEquals(treeLength, statistics.getTreeLength(), 1e-12);
+        assertEquals(4, statistics.getLeafCount());
+        assertEquals(2, statistics.getExtantCount());
+        // the origin and the single-child node
+        assertEquals(2, statistics.getSingleChildNodeCount());
+        // the single-child node and t3
+        assertEquals(2, statistics.getDirectAncestorCount());
+        assertEquals(3, (int) tree.leafCount());
+        for (int i = 0; i < leaves.length; i++) {
+            assertSame(leaves[i], statistics.getLeafNodes().get(i));
+        }
+    }
+
+    public void testInvalidatedByAgesAndTopologyOnly() {
+        TreeStatistics statistics = tree.getStatistics();
+        int modCount = tree.getModCount();
+        assertSame(statistics, tree.getStatistics());
+
+        // metadata is not part of the statistics
+        leaves[0].setMetaData("rate", 2.0);
+        singleChild.setMetaData("deme", "a");
+        leaves[0].removeMetaData("rate");
+        assertEquals(modCount, tree.getModCount());
+        assertSame(statistics, tree.getStatistics());
+
+        leaves[2].setAge(0.25);
+        assertNotSame(statistics, tree.getStatistics());
+        assertEquals(8.75, tree.treeLength(), 1e-12);
+
+        statistics = tree.getStatistics();
+        TimeTreeNode t4 = new TimeTreeNode("t4", tree);
+        b.addChild(t4);
+        assertNotSame(statistics, tree.getStatistics());
+    }
+
+    public void testMigrationCountFollowsMetaData() {
+        for (TimeTreeNode node : tree.getNodes()) {
+            node.setMetaData("deme", "a");
+        }
+        assertEquals(0, tree.getStatistics().getMigrationCount("deme"));
+
+        b.setMetaData("deme", "b");
+        assertEquals(1, tree.getStatistics().getMigrationCount("deme"));
+    }
+
+    public void testLeavesOfChangedTopology() {
+        // before the tree is reindexed by setRoot, the leaves are found by traversing the children
+        TimeTreeNode t4 = new TimeTreeNode("t4", tree);
+        TimeTreeNode t5 = new TimeTreeNode("t5", tree);
+        TimeTreeNode c = new TimeTreeNode(0.5, new TimeTreeNode[]{t4, t5});
+        tree.getRoot().getChildren().get(0).getChildren().get(0).addChild(c);
+
+        List<String> ids = new ArrayList<>();
+        for (TimeTreeNode leaf : tree.getRoot().getAllLeafNodes()) {
+            ids.add(leaf.getId());
+        }
+        assertEquals(Arrays.asList("t0", "t1", "t4", "t5", "t2", "t3"), ids);
+    }
+}
@@ -0,0 +1,101 @@
+package lphy.graphicalModel;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/*
+ * Tests when a memoized deterministic function is computed again.
+ */
+public class DeterministicFunctionTest {
+
+    // x * y, counting its evaluations
+    static class Product extends DeterministicFunction<Double> {
+        int applied = 0;
+
+        Product(Value<Double> x, Value<Double> y) {
+            setParam("x", x);
+            setParam("y", y);
+        }
+
+        @Override
+        public Value<Double> apply() {
+            applied += 1;
+            double x = (Double) getParams().get("x").value();
+            double y = (Double) getParams().get("y").value();
+            return new Value<>(x * y, this);
+        }
+    }
+
+    boolean wasMemoized;
+    Value<Double> x;
+    Value<Double> y;
+    Product product;
+
+    @Before
+    public void setUp() {
+        wasMemoized = DeterministicFunction.isMemoized();
+        DeterministicFunction.setMemoized(true);
+        DeterministicFunction.resetCacheStatistics();
+        x = new Value<>("x", 2.0);
+        y = new Value<>("y", 3.0);
+        product = new Product(x, y);
+    }
+
+    @After
+    public void tearDown() {
+        DeterministicFunction.setMemoized(wasMemoized);
+        DeterministicFunction.resetCacheStatistics();
+    }
+
+    @Test
+    public void unchangedInputsHitTheCache() {
+        Value<Double> output = product.generate();
+        Assert.assertEquals(6.0, output.value(), 0.0);
+        Assert.assertSame(output, product.generate());
+        Assert.assertEquals(6.0, product.value(), 0.0);
+
+        Assert.assertEquals(1, product.applied);
+        Assert.assertEquals(1, DeterministicFunction.getEvaluations());
+        Assert.assertEquals(2, DeterministicFunction.getCacheHits());
+    }
+
+    @Test
+    public void replacedInputIsRecomputed() {
+        Assert.assertEquals(6.0, product.generate().value(), 0.0);
+
+        product.setInput("y", new Value<>("z", 5.0));
+        Assert.assertEquals(10.0, product.generate().value(), 0.0);
+        Assert.assertEquals(2, product.applied);
+
+        // the old input is no longer used, so changing it does not invalidate the output
+        y.setValue(7.0);
+        Assert.assertEquals(10.0, product.generate().value(), 0.0);
+        Assert.assertEquals(2, product.applied);
+    }
+
+    @Test
+    public void changedInputValueIsRecomputed() {
+        Assert.assertEquals(6.0, product.generate().value(), 0.0);
+
+        x.setValue(4.0);
+        Assert.assertEquals(12.0, product.generate().value(), 0.0);
+        Assert.assertEquals(2, product.applied);
+
+        // setting an equal value is still a change
+        x.setValue(4.0);
+        Assert.assertEquals(12.0, product.generate().value(), 0.0);
+        Assert.assertEquals(3, product.applied);
+        Assert.assertEquals(0, DeterministicFunction.getCacheHits());
+    }
+
+    @Test
+    public void notMemoizedIsAlwaysComputed() {
+        DeterministicFunction.setMemoized(false);
+        product.generate();
+        product.generate();
+        Assert.assertEquals(2, product.applied);
+        Assert.assertEquals(0, DeterministicFunction.getEvaluations());
+    }
+}
@@ -0,0 +1,58 @@
+package lphy.parser;
+
+import junit.framework.TestCase;
+import lphy.core.LPhyParser;
+import lphy.graphicalModel.Generator;
+import lphy.graphicalModel.Value;
+import org.antlr.v4.runtime.BaseErrorListener;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.Recognizer;
+import org.antlr.v4.runtime.tree.ParseTree;
+
+import java.util.Arrays;
+import java.util.Map;
+
+public class ParseTreeCacheTest extends TestCase {
+
+    static final String SCRIPT = "a = 3.0; b = 2.0 * a; x = [1.0, a, b]; L ~ LogNormal(meanlog=a, sdlog=0.5);";
+
+    public void testCachedTreeKeepsNoListener() {
+        String script = "c = 1.0; d = c + 1.0;";
+        ParseTree parseTree = ParseTreeCache.getParseTree(script, new BaseErrorListener());
+        assertSame(parseTree, ParseTreeCache.getParseTree(script, new BaseErrorListener()));
+
+        // the tokens of the cached tree refer back to the lexer
+        Recognizer<?, ?> lexer = (Recognizer<?, ?>) ((ParserRuleContext) parseTree).getStart().getTokenSource();
+        assertTrue(lexer.getErrorListeners().isEmpty());
+    }
+
+    public void testCachedTreeProducesSameModel() {
+        LPhyParser first = new REPL();
+        first.parse(SCRIPT);
+        // the second parser visits the cached parse tree
+        LPhyParser second = new REPL();
+        second.parse(SCRIPT);
+
+        Map<String, Value<?>> expected = first.getModelDictionary();
+        Map<String, Value<?>> actual = second.getModelDictionary();
+        assertEquals(expected.keySet(), actual.keySet());
+        for (String id : expected.keySet()) {
+            Value<?> e = expected.get(id);
+            Value<?> a = actual.get(id);
+            assertNotSame(e, a);
+            Generator<?> generator = e.getGenerator();
+            if (generator == null) {
+                assertNull(a.getGenerator());
+            } else {
+                assertEquals(id, generator.getClass(), a.getGenerator().getClass());
+                assertEquals(id, generator.codeString(), a.getGenerator().codeString());
+            }
+            if (e.value() instanceof Object[]) {
+                assertTrue(id, Arrays.equals((Object[]) e.value(), (Object[]) a.value()));
+            } else if (!e.isRandom()) {
+                assertEquals(id, e.value(), a.value());
+            }
+        }
+        assertEquals(6.0, (Double) actual.get("b").value(), 0.0);
+    }
+}
@@ -0,0 +1,144 @@
+package lphy.reflection;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/*
+ * Compares the exceptions of Invokers with those of core reflection, whose behaviour the callers rely on.
+ */
+public class InvokersTest {
+
+    public static class Target {
+
+        private double x;
+
+        public Target(Double x) {
+            this.x = x;
+        }
+
+        public void setX(Double x) {
+            this.x = x;
+        }
+
+        public void setCount(int count) {
+            this.x = count;
+        }
+
+        public double getX() {
+            return x;
+        }
+
+        public static Double twice(Double x) {
+            return 2.0 * x;
+        }
+
+        public void cast(Object o) {
+            this.x = (Double) o;
+        }
+    }
+
+    private static Method method(String name, Class<?>... parameterTypes) {
+        return Invokers.findMethod(Target.class, name, parameterTypes);
+    }
+
+    // the class of the exception thrown by the call, or null
+    private interface Call {
+        Object call() throws Exception;
+    }
+
+    private static Class<?> thrown(Call call) {
+        try {
+            call.call();
+            return null;
+        } catch (Exception e) {
+            return e.getClass();
+        }
+    }
+
+    private static void assertSameOutcome(Method method, Object target, Object... args) {
+        Class<?> expected = thrown(() -> method.invoke(target, args));
+        Assert.assertEquals(method + " " + expected, expected, thrown(() -> Invokers.invoke(method, target, args)));
+    }
+
+    @Test
+    public void invokes() throws Exception {
+        Target target = (Target) Invokers.newInstance(Target.class.getConstructor(Double.class), 1.0);
+        Invokers.invoke(method("setX", Double.class), target, 3.0);
+        Assert.assertEquals(3.0, (Double) Invokers.invoke(method("getX"), target), 0.0);
+        Invokers.invoke(method("setCount", int.class), target, 4);
+        Assert.assertEquals(4.0, target.getX(), 0.0);
+        Assert.assertEquals(6.0, (Double) Invokers.invoke(method("twice", Double.class), null, 3.0), 0.0);
+    }
+
+    @Test
+    public void mismatchesAreIllegalArguments() throws Exception {
+        Target target = new Target(1.0);
+
+        // wrong types, nulls for primitives, wrong numbers of arguments and wrong targets
+        Object[][] arguments = {{"a"}, {1}, {null}, {}, {1.0, 2.0}};
+        for (Object[] args : arguments) {
+            assertSameOutcome(method("setX", Double.class), target, args);
+            assertSameOutcome(method("setCount", int.class), target, args);
+            assertSameOutcome(method("twice", Double.class), null, args);
+        }
+        assertSameOutcome(method("setX", Double.class), "not a target", 1.0);
+        Assert.assertEquals(IllegalArgumentException.class, thrown(() -> Invokers.invoke(method("setX", Double.class), target, "a")));
+
+        Constructor<?> constructor = Target.class.getConstructor(Double.class);
+        Assert.assertEquals(IllegalArgumentException.class, thrown(() -> constructor.newInstance("a")));
+        Assert.assertEquals(IllegalArgumentException.class, thrown(() -> Invokers.newInstance(constructor, "a")));
+        Assert.assertEquals(IllegalArgumentException.class, thrown(() -> Invokers.newInstance(constructor)));
+    }
+
+    @Test
+    public void exceptionsOfTheTargetAreWrapped() throws Exception {
+        Target target = new Target(1.0);
+
+        // a ClassCastException thrown inside the method is not a mismatch of its arguments
+        assertSameOutcome(method("cast", Object.class), target, "a");
+        try {
+            Invokers.invoke(method("cast", Object.class), target, "a");
+            Assert.fail();
+        } catch (InvocationTargetException e) {
+            Assert.assertTrue(e.getCause() instanceof ClassCastException);
+        }
+
+        Constructor<?> constructor = Target.class.getConstructor(Double.class);
+        try {
+            Invokers.newInstance(constructor, (Object) null);
+            Assert.fail();
+        } catch (InvocationTargetException e) {
+            Assert.assertTrue(e.getCause() instanceof NullPointerException);
+        }
+    }
+
+    /**
+     * Times the lookup and call of a setter, as in Generator.setParam, through core reflection and through Invokers.
+     */
+    public static void main(String[] args) throws Exception {
+        Target target = new Target(0.0);
+        Double value = 1.0;
+        int calls = 1_000_000;
+
+        for (int round = 0; round < 5; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < calls; i++) {
+                Target.class.getMethod("setX", value.getClass()).invoke(target, value);
+            }
+            long reflection = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < calls; i++) {
+                Invokers.invoke(Invokers.findMethod(Target.class, "setX", value.getClass()), target, value);
+            }
+            long invokers = System.nanoTime() - start;
+
+            System.out.printf("%d calls: core reflection %.1f ns/call, Invokers %.1f ns/call%n",
+                    calls, (double) reflection / calls, (double) invokers / calls);
+        }
+    }
+}